@@ -1,179 +1,232 @@
 package deck;
 
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
-import java.net.URL;
-
-import javax.imageio.ImageIO;
 
 /**
- * Representation of a card in a standard poker deck. Each card has a corresponding suit, rank and image.
+ * Representation of a card in a standard poker deck. Each card has a corresponding suit and rank. A
+ * game can be played with up to MAX_DECKS decks, so a card is identified by the index of the deck
+ * it came from and its ordinal number in that deck. There is only one instance of each card,
+ * obtained through of(int), of(Rank, Suit) or of(int, int), so cards can be compared with ==. Cards
+ * are immutable; whether a card is face up is kept by whatever is displaying it. Images of the
+ * cards are provided by gui.CardRenderer, so this class does not use AWT.
  * @author Gabriel
  *
  */
 public class Card implements Comparable, Serializable {
 	public final Rank rank;
 	public final Suit suit;
-	protected boolean faceUp = true;
+	private final int ordinal;
+	private final int deckIndex;
+
+	/**
+	 * Number of cards in one deck.
+	 */
+	public static final int DECK_SIZE = 52;
+	/**
+	 * Maximum number of decks a game can be played with.
+	 */
+	public static final int MAX_DECKS = 4;
 
-	private static BufferedImage[][] cardImages; // array of card images
-													// [Rank][Suit]
-	private static BufferedImage verticalCardBack;
-	private static BufferedImage horizontalCardBack;
+	private static final Card[] CARDS = createCards(); // the only instances, indexed by id
 
 	public static final int WIDTH = 72, // width of the cards
 			HEIGHT = 96; // height of the cards
 
-	static {
-		loadImages();
-	}
-	
 	/**
-	 * Construct a new card object.
+	 * Construct a new card object. Only used to create the shared instances.
 	 * 
+	 * @param deckIndex
+	 *            the index of the deck the card belongs to
 	 * @param rank
 	 *            the rank of the new card
 	 * @param suit
 	 *            the suit of the new card
 	 */
-	public Card(Rank rank, Suit suit) {
+	private Card(int deckIndex, Rank rank, Suit suit) {
+		this.deckIndex = deckIndex;
 		this.rank = rank;
 		this.suit = suit;
+		this.ordinal = rank.ordinal() * 4 + suit.ordinal();
 	}
 
 	/**
-	 * Construct a new card object out of the 52 standard cards in a deck. The
-	 * cards are ordered by increasing rank from 2 to Ace, then by suit. (new
-	 * Card(number)).getOrdinalNumber() == number
+	 * Creates the shared card instances of every deck.
+	 * @return the cards indexed by id
+	 */
+	private static Card[] createCards() {
+		Card[] cards = new Card[MAX_DECKS * DECK_SIZE];
+		for (int deck = 0; deck < MAX_DECKS; deck++)
+			for (Rank rank : Rank.values())
+				for (Suit suit : Suit.values())
+					cards[deck * DECK_SIZE + rank.ordinal() * 4 + suit.ordinal()] = new Card(deck, rank, suit);
+		return cards;
+	}
+
+	/**
+	 * Returns one of the 52 standard cards in the first deck. The cards are ordered by
+	 * increasing rank from 3 to 2, then by suit. Card.of(number).getOrdinalNumber() == number
 	 * 
 	 * @param number
 	 *            the number of the card from 0 - 51.
+	 * @return the card with the given ordinal number
 	 * @throws IllegalArgumentException
 	 *             If number is not in the interval [0,51]
 	 */
-	public Card(int number) throws IllegalArgumentException {
-		this(Rank.getRank(number / 4), Suit.getSuit(number % 4));
+	public static Card of(int number) throws IllegalArgumentException {
+		return of(0, number);
 	}
 
 	/**
-	 * Returns the image of the card
+	 * Returns one of the 52 standard cards in a given deck.
 	 * 
-	 * @return the image of the card
+	 * @param deckIndex
+	 *            the index of the deck, from 0 to MAX_DECKS - 1
+	 * @param number
+	 *            the number of the card from 0 - 51.
+	 * @return the card with the given deck index and ordinal number
+	 * @throws IllegalArgumentException
+	 *             If deckIndex or number is out of range
 	 */
-	public BufferedImage getImage() {
-		return getImage(faceUp);
+	public static Card of(int deckIndex, int number) throws IllegalArgumentException {
+		if (number < 0 || number >= DECK_SIZE)
+			throw new IllegalArgumentException("Card number not in the range [0,51]");
+		if (deckIndex < 0 || deckIndex >= MAX_DECKS)
+			throw new IllegalArgumentException("Deck index not in the range [0," + (MAX_DECKS - 1) + "]");
+		return CARDS[deckIndex * DECK_SIZE + number];
 	}
 
 	/**
-	 * Returns the image of the card when either face up or face down.
+	 * Returns the card with a given id.
+	 * Card.ofId(id).getId() == id
 	 * 
-	 * @param faceUp
-	 *            return face up image or face down image
-	 * @return the image of the card
+	 * @param id
+	 *            the id of the card, from 0 to MAX_DECKS * DECK_SIZE - 1
+	 * @return the card with the given id
+	 * @throws IllegalArgumentException
+	 *             If id is out of range
 	 */
-	public BufferedImage getImage(boolean faceUp) {
-		if (cardImages == null)
-			loadImages();
-		return faceUp ? cardImages[rank.ordinal()][suit.ordinal()]
-				: verticalCardBack;
+	public static Card ofId(int id) throws IllegalArgumentException {
+		if (id < 0 || id >= CARDS.length)
+			throw new IllegalArgumentException("Card id not in the range [0," + (CARDS.length - 1) + "]");
+		return CARDS[id];
 	}
 
 	/**
-	 * Returns the back of a card rotated in a portrait format.
-	 * @return the image of the back of the card
+	 * Returns the card in the first deck with the given rank and suit.
+	 * 
+	 * @param rank
+	 *            the rank of the card
+	 * @param suit
+	 *            the suit of the card
+	 * @return the card with the given rank and suit
 	 */
-	public static BufferedImage getVerticalBack() {
-		if (verticalCardBack == null)
-			loadImages();
-		return verticalCardBack;
+	public static Card of(Rank rank, Suit suit) {
+		return CARDS[rank.ordinal() * 4 + suit.ordinal()];
 	}
 
 	/**
-	 * Returns the back of the card rotated in a landscape format.
-	 * @return the image of the back of the card
+	 * Returns whether the two cards have equal rank and suit
+	 * 
+	 * @param c
+	 *            the card to compare with
+	 * @return if the cards have equal rank and suit
 	 */
-	public static BufferedImage getHorizontalBack() {
-		if (horizontalCardBack == null)
-			loadImages();
-		return horizontalCardBack;
+	public boolean isSameCard(Card c) {
+		return (rank.equals(c.rank) && suit.equals(c.suit));
 	}
 
 	/**
-	 * Draws the image of the card on g with the top left corner at (x,y).
+	 * Returns the ordinal number of the card. Cards are ordered by rank, then
+	 * suit. Card.of(number).getOrdinalNumber() == number
 	 * 
-	 * @param g the graphics context to paint the card on
-	 * @param x the x value of the top left corner of the location where the card will be painted
-	 * @param y the y value of the top left corner of the location where the card will be painted
+	 * @return the ordinal number of the card.
 	 */
-	public void show(Graphics g, int x, int y) {
-		if (getImage() == null)
-			return;
-		g.drawImage(getImage(), x, y, null);
+	public int getOrdinalNumber() {
+		return ordinal;
 	}
 
 	/**
-	 * Flips the card over. (!faceUp)
+	 * Returns the index of the deck the card belongs to. This is 0 unless the game is played with
+	 * more than one deck.
+	 * 
+	 * @return the deck index of the card
 	 */
-	public void flip() {
-		faceUp = !faceUp;
+	public int getDeckIndex() {
+		return deckIndex;
 	}
 
 	/**
-	 * @return if the card is face up
+	 * Returns a number identifying the card among the cards of all decks,
+	 * getDeckIndex() * DECK_SIZE + getOrdinalNumber(). For cards of the first deck this is the ordinal number.
+	 * 
+	 * @return the id of the card
 	 */
-	public boolean isFaceUp() {
-		return faceUp;
+	public int getId() {
+		return deckIndex * DECK_SIZE + ordinal;
 	}
 
 	/**
-	 * Sets the face up status of the card.
-	 * 
-	 * @param faceUp
+	 * Compares the ordinal number of two cards. Copies of the same card from different decks are
+	 * ordered by deck index.
 	 */
-	public void setFaceUp(boolean faceUp) {
-		this.faceUp = faceUp;
+	public int compareTo(Object obj) {
+		Card c = (Card) obj;
+		if (ordinal != c.ordinal)
+			return (ordinal - c.ordinal);
+		return deckIndex - c.deckIndex;
 	}
 
 	/**
-	 * Returns whether the two cards have equal rank and suit
-	 * 
-	 * @param c
-	 *            the card to compare with
-	 * @return if the cards have equal rank and suit
+	 * Cards are shared instances, so two cards are equal only if they are the same object.
 	 */
-	public boolean isSameCard(Card c) {
-		return (rank.equals(c.rank) && suit.equals(c.suit));
+	public boolean equals(Object obj) {
+		return this == obj;
+	}
+
+	public int hashCode() {
+		return getId();
 	}
 
 	/**
-	 * Returns the ordinal number of the card. Cards are ordered by rank, then
-	 * suit. (new Card(number)).getOrdinalNumber() == number
-	 * 
-	 * @return the ordinal number of the card.
+	 * Replaces a deserialized card with the shared instance.
+	 * @return the shared instance of the card
 	 */
-	public int getOrdinalNumber() {
-		return rank.ordinal() * 4 + suit.ordinal();
+	private Object readResolve() {
+		return of(deckIndex, ordinal);
 	}
 
 	/**
-	 * Compares the ordinal number of two cards.
+	 * Serializes the card as its id instead of its rank and suit.
+	 * @return the serialized form of the card
 	 */
-	public int compareTo(Object obj) {
-		Card c = (Card) obj;
-		return (getOrdinalNumber() - c.getOrdinalNumber());
+	private Object writeReplace() {
+		return new SerializedCard(getId());
 	}
 
 	/**
-	 * Ignores whether the card is face up.
+	 * The serialized form of a card, a single byte.
 	 */
-	public boolean equals(Object obj) {
-		if (!(obj instanceof Card))
-			return false;
-		Card c = (Card) obj;
-		return (rank.equals(c.rank) && suit.equals(c.suit));
+	private static class SerializedCard implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final byte ordinal; // the id of the card, ordinal number for the first deck
+
+		private SerializedCard(int id) {
+			this.ordinal = (byte) id;
+		}
+
+		/**
+		 * Replaces the serialized form with the shared instance of the card.
+		 * @return the card
+		 * @throws ObjectStreamException if the id is not a valid card
+		 */
+		private Object readResolve() throws ObjectStreamException {
+			int id = ordinal & 0xFF;
+			if (id >= CARDS.length)
+				throw new InvalidObjectException("Invalid card number: " + id);
+			return CARDS[id];
+		}
 	}
 
 	/**
@@ -182,55 +235,4 @@ public class Card implements Comparable, Serializable {
 	public String toString() {
 		return rank.toString() + " of " + suit.toString();
 	}
-
-	/**
-	 * Load images from the file system and store them in images[][].
-	 */
-	public static void loadImages() {
-
-		cardImages = new BufferedImage[Rank.values().length][Suit.values().length];
-		// create blank array for images
-
-		for (Rank rank : Rank.values()) {
-			for (Suit suit : Suit.values()) {
-				String imageName = "/cards/" + rank.identifier()
-						+ (suit.identifier() + ".png");
-				URL path = imageName.getClass().getResource(imageName);
-				try {
-					// read image into array
-					cardImages[rank.ordinal()][suit.ordinal()] = ImageIO
-							.read(path);
-				} catch (Exception e) {
-					// blank images
-					cardImages[rank.ordinal()][suit.ordinal()] = new BufferedImage(
-							WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
-				}
-			}
-
-			URL cardBackPath = "".getClass().getResource("/cards/back.png"); // get
-																				// image
-																				// for
-																				// back
-																				// of
-																				// card
-
-			try {
-				verticalCardBack = ImageIO.read(cardBackPath);
-			} catch (Exception e) {
-				// black rectangle for back of card
-				verticalCardBack = new BufferedImage(WIDTH, HEIGHT,
-						BufferedImage.TYPE_INT_ARGB);
-				Graphics g = verticalCardBack.getGraphics();
-				g.setColor(java.awt.Color.BLACK);
-				g.fillRect(0, 0, WIDTH, HEIGHT);
-			}
-
-			horizontalCardBack = new BufferedImage(
-					verticalCardBack.getHeight(), verticalCardBack.getWidth(),
-					BufferedImage.TYPE_INT_ARGB);
-			Graphics2D g = horizontalCardBack.createGraphics();
-			g.rotate(Math.PI / 2);
-			g.drawImage(verticalCardBack, 0, -HEIGHT, null);
-		}
-	}
 }
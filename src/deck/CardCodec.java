@@ -0,0 +1,156 @@
+package deck;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+/**
+ * Compact binary encoding of cards and hands. A card is written as one byte (its deck index in the
+ * top two bits and its ordinal number in the rest), an unordered hand as one long per deck (its
+ * CardSet masks) and an ordered deck as a count followed by one byte per card. Cards of the first
+ * deck are written exactly as in a one deck game, so the encoding of such games does not grow. Only
+ * DataOutput and DataInput are used, so the same encoding works inside a JGroups Streamable, Java
+ * serialization, replay files and checkpoints.
+ * @author Gabriel
+ *
+ */
+public class CardCodec {
+	private CardCodec(){}
+
+	private static final int DECK_SHIFT = 6; // position of the deck index in a card's byte
+	private static final int ORDINAL_BITS = (1 << DECK_SHIFT) - 1;
+	private static final long MORE_DECKS = 1L << 63; // set in a hand's mask when another deck's mask follows
+
+	/**
+	 * Writes a card as one byte.
+	 * @param out the output to write to
+	 * @param card the card to write
+	 * @throws IOException if the card could not be written
+	 */
+	public static void writeCard(DataOutput out, Card card) throws IOException {
+		out.writeByte(card.getDeckIndex() << DECK_SHIFT | card.getOrdinalNumber());
+	}
+
+	/**
+	 * Reads a card written by writeCard.
+	 * @param in the input to read from
+	 * @return the card that was read
+	 * @throws IOException if the card could not be read or is not a valid card
+	 */
+	public static Card readCard(DataInput in) throws IOException {
+		int b = in.readUnsignedByte();
+		int ordinal = b & ORDINAL_BITS;
+		if (ordinal >= Card.DECK_SIZE)
+			throw new StreamCorruptedException("Invalid card number: " + b);
+		return Card.of(b >>> DECK_SHIFT, ordinal);
+	}
+
+	/**
+	 * Writes a mask of cards as one long.
+	 * @param out the output to write to
+	 * @param mask the mask to write
+	 * @throws IOException if the mask could not be written
+	 */
+	public static void writeMask(DataOutput out, long mask) throws IOException {
+		out.writeLong(mask);
+	}
+
+	/**
+	 * Reads a mask written by writeMask.
+	 * @param in the input to read from
+	 * @return the mask that was read
+	 * @throws IOException if the mask could not be read or contains bits that are not cards
+	 */
+	public static long readMask(DataInput in) throws IOException {
+		long mask = in.readLong();
+		if ((mask & ~CardSet.FULL_DECK) != 0)
+			throw new StreamCorruptedException("Invalid card mask: " + Long.toHexString(mask));
+		return mask;
+	}
+
+	/**
+	 * Writes an unordered hand as one long per deck. The top bit of each long is set if the mask of
+	 * another deck follows, so a hand with cards from only the first deck is written as one long.
+	 * @param out the output to write to
+	 * @param hand the hand to write
+	 * @throws IOException if the hand could not be written
+	 */
+	public static void writeHand(DataOutput out, CardSet hand) throws IOException {
+		int numDecks = hand.numDecks();
+		while (numDecks > 1 && hand.getMask(numDecks - 1) == 0)
+			numDecks--; // trailing empty decks are not written
+		for (int deck = 0; deck < numDecks; deck++)
+			out.writeLong(hand.getMask(deck) | (deck + 1 < numDecks ? MORE_DECKS : 0L));
+	}
+
+	/**
+	 * Reads a hand written by writeHand.
+	 * @param in the input to read from
+	 * @return the hand that was read
+	 * @throws IOException if the hand could not be read
+	 */
+	public static CardSet readHand(DataInput in) throws IOException {
+		CardSet hand = new CardSet();
+		int deck = 0;
+		long mask;
+		do {
+			if (deck >= Card.MAX_DECKS)
+				throw new StreamCorruptedException("Too many decks in hand");
+			mask = in.readLong();
+			if ((mask & ~(CardSet.FULL_DECK | MORE_DECKS)) != 0)
+				throw new StreamCorruptedException("Invalid card mask: " + Long.toHexString(mask));
+			hand.addAll(deck++, mask & CardSet.FULL_DECK);
+		} while ((mask & MORE_DECKS) != 0);
+		return hand;
+	}
+
+	/**
+	 * Writes the cards of a deck in order.
+	 * @param out the output to write to
+	 * @param deck the deck to write
+	 * @throws IOException if the deck could not be written
+	 */
+	public static void writeOrdered(DataOutput out, Deck deck) throws IOException {
+		out.writeShort(deck.size());
+		for (int i = 0; i < deck.size(); i++)
+			writeCard(out, deck.get(i));
+	}
+
+	/**
+	 * Reads cards written by writeOrdered and adds them to the end of a deck.
+	 * @param in the input to read from
+	 * @param deck the deck to add the cards to
+	 * @throws IOException if the cards could not be read
+	 */
+	public static void readOrdered(DataInput in, Deck deck) throws IOException {
+		int size = in.readUnsignedShort();
+		for (int i = 0; i < size; i++)
+			deck.add(readCard(in));
+	}
+
+	/**
+	 * Writes an array of cards in order.
+	 * @param out the output to write to
+	 * @param cards the cards to write
+	 * @throws IOException if the cards could not be written
+	 */
+	public static void writeOrdered(DataOutput out, Card[] cards) throws IOException {
+		out.writeShort(cards.length);
+		for (Card c : cards)
+			writeCard(out, c);
+	}
+
+	/**
+	 * Reads an array of cards written by writeOrdered.
+	 * @param in the input to read from
+	 * @return the cards that were read
+	 * @throws IOException if the cards could not be read
+	 */
+	public static Card[] readOrderedCards(DataInput in) throws IOException {
+		Card[] cards = new Card[in.readUnsignedShort()];
+		for (int i = 0; i < cards.length; i++)
+			cards[i] = readCard(in);
+		return cards;
+	}
+}
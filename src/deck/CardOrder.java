@@ -0,0 +1,85 @@
+package deck;
+
+/**
+ * The orders a hand can be sorted in. Each order maps every card to a small integer key through a
+ * precomputed table, so a hand can be sorted with a single counting pass (see Deck.sort(CardOrder)).
+ * @author Gabriel
+ *
+ */
+public enum CardOrder {
+	/**
+	 * Big 2 order: by rank (3, 4...A, 2), then by suit (D, C, H, S). This is the ordinal number order.
+	 */
+	BIG_TWO {
+		int computeKey(int rank, int suit){
+			return rank * 4 + suit;
+		}
+	},
+	/**
+	 * By suit (S, H, C, D), then by rank (A, 2...Q, K).
+	 */
+	SUIT_THEN_RANK {
+		int computeKey(int rank, int suit){
+			int suitOrder = 3 - suit;
+			return suitOrder * 13 + aceLowRank(rank);
+		}
+	},
+	/**
+	 * By rank (A, 2...Q, K), ignoring suit. Cards of the same rank keep their relative order.
+	 */
+	ACE_LOW {
+		int computeKey(int rank, int suit){
+			return aceLowRank(rank);
+		}
+	};
+
+	private final int[] keys = new int[52]; // key of each card, indexed by ordinal number
+	private final int numKeys;
+
+	private CardOrder(){
+		int max = 0;
+		for (int i = 0; i < keys.length; i++){
+			keys[i] = computeKey(i / 4, i % 4);
+			max = Math.max(max, keys[i]);
+		}
+		numKeys = max + 1;
+	}
+
+	/**
+	 * Computes the key of a card in this order.
+	 * @param rank the ordinal of the card's rank
+	 * @param suit the ordinal of the card's suit
+	 * @return the key of the card
+	 */
+	abstract int computeKey(int rank, int suit);
+
+	/**
+	 * Returns the position of a rank when the ace is the lowest rank (A, 2, 3...K).
+	 * @param rank the ordinal of the rank
+	 * @return the position of the rank
+	 */
+	private static int aceLowRank(int rank){
+		if (rank == Rank.ACE.ordinal())
+			return 0;
+		if (rank == Rank.TWO.ordinal())
+			return 1;
+		return rank + 2;
+	}
+
+	/**
+	 * Returns the key of a card. Cards with smaller keys come first.
+	 * @param card the card
+	 * @return the key of the card, in the range [0, numKeys())
+	 */
+	public int key(Card card){
+		return keys[card.getOrdinalNumber()];
+	}
+
+	/**
+	 * Returns the number of distinct keys in this order.
+	 * @return the number of keys
+	 */
+	public int numKeys(){
+		return numKeys;
+	}
+}
@@ -0,0 +1,347 @@
+package deck;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of cards stored as 52-bit masks, one per deck. Bit n of a deck's mask is set when the card of
+ * that deck with ordinal number n (see Card.getOrdinalNumber()) is in the set. The first deck is kept in
+ * a single long and the masks of any other decks are only allocated once one of their cards is added, so
+ * a one deck game pays nothing extra. Adding, removing and checking for a card are all constant time and
+ * the cards are iterated by deck, then in increasing ordinal order (the Big 2 order).
+ * @author Gabriel
+ *
+ */
+public class CardSet implements Iterable<Card>, Serializable {
+	private static final long serialVersionUID = 1L;
+	/**
+	 * Mask containing all 52 cards.
+	 */
+	public static final long FULL_DECK = (1L << 52) - 1;
+
+	private long bits; // mask of the first deck
+	private long[] upper; // masks of decks 1, 2... null until a card of those decks is added
+
+	/**
+	 * Creates an empty set.
+	 */
+	public CardSet(){
+		this(0L);
+	}
+
+	/**
+	 * Creates a set out of a mask of ordinal numbers.
+	 * @param bits the mask, bit n is set if the card with ordinal number n is in the set
+	 */
+	public CardSet(long bits){
+		this.bits = bits & FULL_DECK;
+	}
+
+	/**
+	 * Creates a copy of another set.
+	 * @param set the set to copy
+	 */
+	public CardSet(CardSet set){
+		this(set.bits);
+		if (set.upper != null)
+			upper = set.upper.clone();
+	}
+
+	/**
+	 * Returns the bit representing a card in the mask of its deck.
+	 * @param card the card
+	 * @return a mask with only the bit of the card set
+	 */
+	public static long bit(Card card){
+		return 1L << card.getOrdinalNumber();
+	}
+
+	/**
+	 * Returns the mask made up of the given cards. Cards of different decks with the same ordinal number
+	 * share a bit, so use a CardSet when the cards may come from more than one deck.
+	 * @param cards the cards
+	 * @return the mask of the cards
+	 */
+	public static long mask(Card[] cards){
+		long mask = 0L;
+		for (Card c : cards)
+			mask |= bit(c);
+		return mask;
+	}
+
+	/**
+	 * Adds a card to the set.
+	 * @param card the card to add
+	 * @return whether the card was not already in the set
+	 */
+	public boolean add(Card card){
+		long bit = bit(card);
+		int deck = card.getDeckIndex();
+		if (deck == 0){
+			boolean added = (bits & bit) == 0;
+			bits |= bit;
+			return added;
+		}
+		if (upper == null || upper.length < deck)
+			upper = upper == null ? new long[deck] : Arrays.copyOf(upper, deck);
+		boolean added = (upper[deck - 1] & bit) == 0;
+		upper[deck - 1] |= bit;
+		return added;
+	}
+
+	/**
+	 * Removes a card from the set.
+	 * @param card the card to remove
+	 * @return whether the card was in the set
+	 */
+	public boolean remove(Card card){
+		long bit = bit(card);
+		int deck = card.getDeckIndex();
+		if (deck == 0){
+			boolean removed = (bits & bit) != 0;
+			bits &= ~bit;
+			return removed;
+		}
+		if (upper == null || upper.length < deck)
+			return false;
+		boolean removed = (upper[deck - 1] & bit) != 0;
+		upper[deck - 1] &= ~bit;
+		return removed;
+	}
+
+	/**
+	 * Returns whether a card is in the set.
+	 * @param card the card to look for
+	 * @return if the card is in the set
+	 */
+	public boolean contains(Card card){
+		return (getMask(card.getDeckIndex()) & bit(card)) != 0;
+	}
+
+	/**
+	 * Returns whether all the cards in the set are in this set.
+	 * @param set the cards to look for
+	 * @return if all the cards are in this set
+	 */
+	public boolean containsAll(CardSet set){
+		for (int deck = 0; deck < set.numDecks(); deck++){
+			long mask = set.getMask(deck);
+			if ((getMask(deck) & mask) != mask)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether all the cards in the mask are in the first deck of the set.
+	 * @param mask the cards to look for
+	 * @return if all the cards are in the set
+	 */
+	public boolean containsAll(long mask){
+		return (bits & mask) == mask;
+	}
+
+	/**
+	 * Adds all the cards in the mask to the first deck of the set.
+	 * @param mask the cards to add
+	 */
+	public void addAll(long mask){
+		bits |= mask & FULL_DECK;
+	}
+
+	/**
+	 * Adds all the cards in the mask to a deck of the set.
+	 * @param deck the index of the deck
+	 * @param mask the cards of the deck to add
+	 */
+	public void addAll(int deck, long mask){
+		if (deck == 0){
+			addAll(mask);
+			return;
+		}
+		if (mask == 0)
+			return;
+		if (upper == null || upper.length < deck)
+			upper = upper == null ? new long[deck] : Arrays.copyOf(upper, deck);
+		upper[deck - 1] |= mask & FULL_DECK;
+	}
+
+	/**
+	 * Removes all the cards in the mask from the first deck of the set.
+	 * @param mask the cards to remove
+	 */
+	public void removeAll(long mask){
+		bits &= ~mask;
+	}
+
+	/**
+	 * Returns the number of cards in the set.
+	 * @return the number of cards in the set
+	 */
+	public int size(){
+		int size = Long.bitCount(bits);
+		if (upper != null)
+			for (long mask : upper)
+				size += Long.bitCount(mask);
+		return size;
+	}
+
+	/**
+	 * Returns whether the set has no cards.
+	 * @return if the set is empty
+	 */
+	public boolean isEmpty(){
+		if (bits != 0)
+			return false;
+		if (upper != null)
+			for (long mask : upper)
+				if (mask != 0)
+					return false;
+		return true;
+	}
+
+	/**
+	 * Removes all cards from the set.
+	 */
+	public void clear(){
+		bits = 0L;
+		if (upper != null)
+			Arrays.fill(upper, 0L);
+	}
+
+	/**
+	 * Returns the smallest ordinal number in the first deck of the set that is at least from.
+	 * @param from the ordinal number to start looking at
+	 * @return the next ordinal number in the set, -1 if there is none
+	 */
+	public int nextOrdinal(int from){
+		if (from >= 64)
+			return -1;
+		long remaining = bits & (-1L << from);
+		return remaining == 0 ? -1 : Long.numberOfTrailingZeros(remaining);
+	}
+
+	/**
+	 * Returns the card at a position in the set's iteration order.
+	 * @param index the position of the card
+	 * @return the card at index
+	 * @throws IndexOutOfBoundsException if index is not in the range [0, size())
+	 */
+	public Card get(int index) throws IndexOutOfBoundsException{
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		int deck = 0;
+		long remaining = bits;
+		while (index >= Long.bitCount(remaining)){ // skip whole decks
+			index -= Long.bitCount(remaining);
+			remaining = upper[deck++];
+		}
+		for (int i = 0; i < index; i++)
+			remaining &= remaining - 1; // clear lowest bit
+		return Card.of(deck, Long.numberOfTrailingZeros(remaining));
+	}
+
+	/**
+	 * Returns the mask of the first deck of the set. This is the whole set in a game played with one deck.
+	 * @return the mask, bit n is set if the card with ordinal number n is in the set
+	 */
+	public long toLong(){
+		return bits;
+	}
+
+	/**
+	 * Returns the mask of one deck of the set.
+	 * @param deck the index of the deck
+	 * @return the mask, bit n is set if the card of the deck with ordinal number n is in the set
+	 */
+	public long getMask(int deck){
+		if (deck == 0)
+			return bits;
+		if (upper == null || deck > upper.length)
+			return 0L;
+		return upper[deck - 1];
+	}
+
+	/**
+	 * Returns the number of decks that getMask(int) may return cards for. Every deck at or after this
+	 * index is empty.
+	 * @return the number of decks with a mask
+	 */
+	public int numDecks(){
+		return upper == null ? 1 : upper.length + 1;
+	}
+
+	/**
+	 * Returns the cards in the set by deck, then in increasing ordinal order.
+	 * @return an array of the cards
+	 */
+	public Card[] toArray(){
+		Card[] array = new Card[size()];
+		int i = 0;
+		for (int deck = 0; deck < numDecks(); deck++)
+			for (long remaining = getMask(deck); remaining != 0; remaining &= remaining - 1)
+				array[i++] = Card.of(deck, Long.numberOfTrailingZeros(remaining));
+		return array;
+	}
+
+	/**
+	 * Iterates through the cards by deck, then in increasing ordinal order.
+	 */
+	public Iterator<Card> iterator(){
+		return new Iterator<Card>(){
+			private int deck = 0;
+			private long remaining = bits;
+
+			public boolean hasNext(){
+				// Move on to the next deck with cards left
+				while (remaining == 0 && deck + 1 < numDecks())
+					remaining = getMask(++deck);
+				return remaining != 0;
+			}
+
+			public Card next(){
+				if (!hasNext())
+					throw new NoSuchElementException();
+				int ordinal = Long.numberOfTrailingZeros(remaining);
+				remaining &= remaining - 1;
+				return Card.of(deck, ordinal);
+			}
+
+			public void remove(){
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	public boolean equals(Object obj){
+		if (!(obj instanceof CardSet))
+			return false;
+		CardSet set = (CardSet) obj;
+		int numDecks = Math.max(numDecks(), set.numDecks());
+		for (int deck = 0; deck < numDecks; deck++)
+			if (getMask(deck) != set.getMask(deck))
+				return false;
+		return true;
+	}
+
+	public int hashCode(){
+		// Empty decks add nothing, so sets with and without space for them hash alike
+		long hash = bits;
+		for (int deck = 1; deck < numDecks(); deck++)
+			hash ^= Long.rotateLeft(getMask(deck), deck * 13);
+		return (int)(hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * String representation of all the cards in the set.
+	 */
+	public String toString(){
+		String s = "{";
+		for (Card c : this)
+			s += (c.toString() + ", ");
+		s += "}";
+		return s;
+	}
+}
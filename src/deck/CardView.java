@@ -0,0 +1,46 @@
+package deck;
+
+/**
+ * A read-only view of an ordered group of cards, such as a player's hand. A view reads straight from
+ * the cards it is a view of, so nothing is copied and it always shows the current cards.
+ * @author Gabriel
+ *
+ */
+public interface CardView extends Iterable<Card> {
+	/**
+	 * Returns the number of cards.
+	 * @return the number of cards
+	 */
+	public int size();
+
+	/**
+	 * Returns the card at an index.
+	 * @param index the index of the card
+	 * @return the card at index
+	 * @throws IndexOutOfBoundsException if index is not in the range [0, size())
+	 */
+	public Card get(int index) throws IndexOutOfBoundsException;
+
+	/**
+	 * Returns the ordinal number of the card at an index.
+	 * Equivalent to get(index).getOrdinalNumber()
+	 * @param index the index of the card
+	 * @return the ordinal number of the card at index
+	 * @throws IndexOutOfBoundsException if index is not in the range [0, size())
+	 */
+	public int ordinalAt(int index) throws IndexOutOfBoundsException;
+
+	/**
+	 * Returns whether a card is one of the cards. This takes constant time.
+	 * @param card the card to look for
+	 * @return if the card is in the view
+	 */
+	public boolean contains(Card card);
+
+	/**
+	 * Returns the cards of the first deck as a mask (see CardSet.toLong()). The mask is a snapshot, it
+	 * does not change with the cards.
+	 * @return the mask of the cards
+	 */
+	public long mask();
+}
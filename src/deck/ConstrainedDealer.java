@@ -0,0 +1,323 @@
+package deck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Deals one deck with some seats guaranteed to hold certain cards, such as a four of a kind or a
+ * straight flush. Each constraint picks its cards directly, uniformly among the ways it can be met with
+ * the cards that are left, and the rest of the deck is then dealt uniformly at random. No deal is ever
+ * thrown away for missing a constraint, so even rare hands take microseconds to deal.
+ * <p>
+ * Each constraint's cards are uniform over the sets of available cards that meet it: a full house is
+ * any of the available triples with any of the available pairs of another rank, each with the same
+ * probability, and a flush any 5 available cards of one suit. The hands only guarantee the constrained
+ * cards, they are not distributed exactly like random deals that happen to meet the constraints, since
+ * the other cards of a hand are dealt after them. Seats are given as many cards as in a normal round
+ * robin deal.
+ * @author Gabriel
+ *
+ */
+public class ConstrainedDealer implements DealSource {
+	private static final int MAX_ATTEMPTS = 100; // times the constraints are tried before giving up
+
+	private final int numSeats;
+	private final RandomGenerator random;
+	private final List<List<Constraint>> constraints; // constraints of each seat
+	private final int[] remaining = new int[Card.DECK_SIZE]; // unconstrained cards, reused by every deal
+
+	/**
+	 * Creates a dealer with no constraints.
+	 * @param numSeats the number of seats to deal to
+	 * @param random the random number generator to deal with
+	 */
+	public ConstrainedDealer(int numSeats, RandomGenerator random){
+		this.numSeats = numSeats;
+		this.random = random;
+		constraints = new ArrayList<List<Constraint>>(numSeats);
+		for (int i = 0; i < numSeats; i++)
+			constraints.add(new ArrayList<Constraint>());
+	}
+
+	/**
+	 * Adds a constraint on the hand of a seat. A seat can have more than one constraint.
+	 * @param seat the seat
+	 * @param constraint the cards the seat must hold
+	 * @return this dealer
+	 */
+	public ConstrainedDealer require(int seat, Constraint constraint){
+		constraints.get(seat).add(constraint);
+		return this;
+	}
+
+	/**
+	 * Removes all constraints.
+	 */
+	public void clearConstraints(){
+		for (List<Constraint> c : constraints)
+			c.clear();
+	}
+
+	public int getNumSeats(){
+		return numSeats;
+	}
+
+	/**
+	 * Returns the number of decks each deal is made from, always one.
+	 * @return 1
+	 */
+	public int getNumDecks(){
+		return 1;
+	}
+
+	/**
+	 * Returns the number of cards a seat is dealt.
+	 * @param seat the seat
+	 * @return the number of cards in the seat's hand
+	 */
+	public int getHandSize(int seat){
+		return Card.DECK_SIZE / numSeats + (seat < Card.DECK_SIZE % numSeats ? 1 : 0);
+	}
+
+	/**
+	 * Deals the hands, with every constraint met.
+	 * @param hands the hand of each seat, getNumSeats() of them
+	 * @throws IllegalStateException if the constraints could not be met
+	 */
+	public void nextDeal(CardSet[] hands){
+		// Choose the constrained cards. Constraints can take cards that a later one needs, so try again
+		long available = 0L;
+		boolean met = false;
+		for (int attempt = 0; attempt < MAX_ATTEMPTS && !met; attempt++){
+			available = CardSet.FULL_DECK;
+			met = true;
+			for (int seat = 0; seat < numSeats && met; seat++){
+				hands[seat].clear();
+				for (Constraint c : constraints.get(seat)){
+					long cards = c.choose(available, random);
+					if (cards == -1 || hands[seat].size() + Long.bitCount(cards) > getHandSize(seat)){
+						met = false;
+						break;
+					}
+					hands[seat].addAll(cards);
+					available &= ~cards;
+				}
+			}
+		}
+		if (!met)
+			throw new IllegalStateException("The constraints could not be met");
+
+		// Shuffle the cards that are left and fill up the hands in seat order
+		int numRemaining = 0;
+		for (long cards = available; cards != 0; cards &= cards - 1)
+			remaining[numRemaining++] = Long.numberOfTrailingZeros(cards);
+		for (int i = numRemaining - 1; i > 0; i--){
+			int pos = random.nextInt(i + 1);
+			int temp = remaining[i];
+			remaining[i] = remaining[pos];
+			remaining[pos] = temp;
+		}
+		int next = 0;
+		for (int seat = 0; seat < numSeats; seat++){
+			long cards = 0L;
+			for (int i = hands[seat].size(); i < getHandSize(seat); i++)
+				cards |= 1L << remaining[next++];
+			hands[seat].addAll(cards);
+		}
+	}
+
+	/**
+	 * Cards that a seat must hold. A constraint chooses its cards from the ones that have not been
+	 * dealt yet, uniformly among all the ways it can be met.
+	 */
+	public static abstract class Constraint {
+		/**
+		 * Chooses the cards to give the seat.
+		 * @param available the mask of the cards that can be chosen
+		 * @param random the random number generator to choose with
+		 * @return the mask of the chosen cards, -1 if the constraint cannot be met
+		 */
+		public abstract long choose(long available, RandomGenerator random);
+
+		/**
+		 * The seat holds the given cards.
+		 * @param cards the cards
+		 * @return the constraint
+		 */
+		public static Constraint cards(Card... cards){
+			final long mask = CardSet.mask(cards);
+			return new Constraint(){
+				public long choose(long available, RandomGenerator random){
+					return (available & mask) == mask ? mask : -1;
+				}
+			};
+		}
+
+		/**
+		 * The seat holds all four cards of any rank.
+		 * @return the constraint
+		 */
+		public static Constraint fourOfAKind(){
+			final long[] candidates = new long[Rank.values().length];
+			for (int rank = 0; rank < candidates.length; rank++)
+				candidates[rank] = rankMask(rank);
+			return oneOf(candidates);
+		}
+
+		/**
+		 * The seat holds all four cards of a rank, for example all four 2s.
+		 * @param rank the rank
+		 * @return the constraint
+		 */
+		public static Constraint fourOfAKind(Rank rank){
+			return oneOf(new long[]{rankMask(rank.ordinal())});
+		}
+
+		/**
+		 * The seat holds a straight flush (five cards of a suit with consecutive ranks).
+		 * @return the constraint
+		 */
+		public static Constraint straightFlush(){
+			int numRanks = Rank.values().length;
+			int numSuits = Suit.values().length;
+			long[] candidates = new long[(numRanks - 4) * numSuits];
+			int n = 0;
+			for (int low = 0; low + 4 < numRanks; low++)
+				for (int suit = 0; suit < numSuits; suit++){
+					long mask = 0L;
+					for (int rank = low; rank < low + 5; rank++)
+						mask |= 1L << (rank * 4 + suit);
+					candidates[n++] = mask;
+				}
+			return oneOf(candidates);
+		}
+
+		/**
+		 * The seat holds a full house (three cards of one rank and two of another).
+		 * @return the constraint
+		 */
+		public static Constraint fullHouse(){
+			return new Constraint(){
+				public long choose(long available, RandomGenerator random){
+					int numRanks = Rank.values().length;
+					// Pick the ranks with a weight of the number of full houses they make, so every full
+					// house is equally likely
+					int total = 0;
+					int tripleRank = -1, pairRank = -1;
+					for (int t = 0; t < numRanks; t++){
+						int triples = combinations(Long.bitCount(available & rankMask(t)), 3);
+						if (triples == 0)
+							continue;
+						for (int p = 0; p < numRanks; p++){
+							int weight = p == t ? 0 : triples * combinations(Long.bitCount(available & rankMask(p)), 2);
+							if (weight > 0 && random.nextInt(total += weight) < weight){
+								tripleRank = t;
+								pairRank = p;
+							}
+						}
+					}
+					if (total == 0)
+						return -1;
+					return pick(available & rankMask(tripleRank), 3, random)
+							| pick(available & rankMask(pairRank), 2, random);
+				}
+			};
+		}
+
+		/**
+		 * The seat holds a flush (five cards of the same suit).
+		 * @return the constraint
+		 */
+		public static Constraint flush(){
+			return new Constraint(){
+				public long choose(long available, RandomGenerator random){
+					// Pick the suit with a weight of the number of flushes it has
+					int total = 0;
+					int flushSuit = -1;
+					for (int suit = 0; suit < Suit.values().length; suit++){
+						int weight = combinations(Long.bitCount(available & suitMask(suit)), 5);
+						if (weight > 0 && random.nextInt(total += weight) < weight)
+							flushSuit = suit;
+					}
+					if (total == 0)
+						return -1;
+					return pick(available & suitMask(flushSuit), 5, random);
+				}
+			};
+		}
+
+		/**
+		 * A constraint met by any one of the given masks that is available, chosen uniformly.
+		 * @param candidates the masks
+		 * @return the constraint
+		 */
+		private static Constraint oneOf(final long[] candidates){
+			return new Constraint(){
+				public long choose(long available, RandomGenerator random){
+					long chosen = -1;
+					int count = 0;
+					for (long mask : candidates){
+						if ((available & mask) == mask && random.nextInt(++count) == 0)
+							chosen = mask;
+					}
+					return chosen;
+				}
+			};
+		}
+
+		/**
+		 * Picks cards out of a mask uniformly at random. This is a partial Fisher-Yates shuffle of the
+		 * cards in the mask: each card picked is drawn uniformly from those not picked yet, so every set
+		 * of n cards is equally likely. The cards are kept in the mask, so nothing is allocated.
+		 * @param mask the cards to pick from
+		 * @param n the number of cards to pick, at most the number of cards in mask
+		 * @param random the random number generator to pick with
+		 * @return the mask of the picked cards
+		 */
+		private static long pick(long mask, int n, RandomGenerator random){
+			long picked = 0L;
+			long left = mask;
+			for (int i = 0; i < n; i++){
+				// Take the card at a random position among those left
+				long cards = left;
+				for (int pos = random.nextInt(Long.bitCount(left)); pos > 0; pos--)
+					cards &= cards - 1;
+				long card = Long.lowestOneBit(cards);
+				picked |= card;
+				left &= ~card;
+			}
+			return picked;
+		}
+
+		/**
+		 * Returns the number of ways to choose k things out of n.
+		 */
+		private static int combinations(int n, int k){
+			if (n < k)
+				return 0;
+			int ways = 1;
+			for (int i = 0; i < k; i++)
+				ways = ways * (n - i) / (i + 1);
+			return ways;
+		}
+
+		/**
+		 * Returns the mask of all four cards of a rank.
+		 * @param rank the ordinal of the rank
+		 * @return the mask of the rank
+		 */
+		private static long rankMask(int rank){
+			return 0xFL << (rank * 4);
+		}
+
+		/**
+		 * Returns the mask of all the cards of a suit.
+		 * @param suit the ordinal of the suit
+		 * @return the mask of the suit
+		 */
+		private static long suitMask(int suit){
+			return 0x0001111111111111L << suit;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package deck;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * A file of pre-generated deals, read through a memory mapped FileChannel. Playing the same deals with
+ * the seats rotated (duplicate format) lets two players be compared without the luck of the deal.
+ * <p>
+ * The file starts with a 16 byte header: the magic number "B2DC", a short version, a byte for the
+ * number of seats, a byte for the number of decks and a long for the number of deals. Each deal follows
+ * as one CardSet mask (see CardSet.getMask(int)) per deck for each seat, all big endian. Reading a deal
+ * is just reading those longs out of the mapped file, so nothing is allocated. Each deal is checked
+ * before it is dealt: every card of every deck must be dealt to exactly one seat, round robin, so a
+ * corrupt file is reported instead of dealing hands that cannot exist.
+ * @author Gabriel
+ *
+ */
+public class DealCorpus implements DealSource {
+	/**
+	 * First four bytes of every corpus file.
+	 */
+	public static final int MAGIC = 0x42324443; // "B2DC"
+	/**
+	 * Version of the file format written by this class.
+	 */
+	public static final short VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final long MAX_REGION_SIZE = Integer.MAX_VALUE; // largest buffer that can be mapped
+
+	private final int numSeats;
+	private final int numDecks;
+	private final long numDeals;
+	private final int dealSize; // bytes per deal
+	private final int dealsPerRegion;
+	private final ByteBuffer[] regions; // the deals, split so no buffer is larger than MAX_REGION_SIZE
+
+	private long next = 0; // index of the next deal
+	private int rotation = 0; // seat that is given the hand dealt to seat 0
+
+	/**
+	 * Opens a corpus file. The file is mapped and then closed, the mapping stays valid.
+	 * @param path the corpus file
+	 * @throws IOException if the file could not be read or is not a corpus file
+	 */
+	public DealCorpus(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_SIZE, channel.size()));
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+				throw new IOException("Not a deal corpus: " + path);
+			short version = header.getShort();
+			if (version != VERSION)
+				throw new IOException("Unsupported deal corpus version: " + version);
+			numSeats = header.get();
+			numDecks = header.get();
+			numDeals = header.getLong();
+			if (numSeats < 1 || numDecks < 1 || numDecks > Card.MAX_DECKS || numDeals < 0)
+				throw new IOException("Invalid deal corpus header: " + path);
+
+			dealSize = numSeats * numDecks * 8;
+			if (channel.size() < HEADER_SIZE + numDeals * dealSize)
+				throw new IOException("Deal corpus is truncated: " + path);
+
+			// Map whole deals into each region
+			dealsPerRegion = (int) (MAX_REGION_SIZE / dealSize);
+			regions = new ByteBuffer[(int) ((numDeals + dealsPerRegion - 1) / dealsPerRegion)];
+			for (int i = 0; i < regions.length; i++){
+				long first = (long) i * dealsPerRegion;
+				long size = Math.min(dealsPerRegion, numDeals - first) * dealSize;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * dealSize, size);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of seats each deal is for.
+	 * @return the number of seats
+	 */
+	public int getNumSeats(){
+		return numSeats;
+	}
+
+	/**
+	 * Returns the number of decks each deal is made from.
+	 * @return the number of decks
+	 */
+	public int getNumDecks(){
+		return numDecks;
+	}
+
+	/**
+	 * Returns the number of deals in the corpus.
+	 * @return the number of deals
+	 */
+	public long size(){
+		return numDeals;
+	}
+
+	/**
+	 * Returns whether nextDeal has any deals left.
+	 * @return if there is another deal
+	 */
+	public boolean hasNext(){
+		return next < numDeals;
+	}
+
+	/**
+	 * Sets the index of the deal nextDeal returns.
+	 * @param index the index of the next deal
+	 */
+	public void seek(long index){
+		if (index < 0 || index > numDeals)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numDeals);
+		next = index;
+	}
+
+	/**
+	 * Rotates the seats of every deal. With a rotation of r, seat (s + r) % getNumSeats() is given the
+	 * hand that was dealt to seat s. Playing the corpus once for each rotation gives every player every hand.
+	 * @param rotation the number of seats to rotate by
+	 */
+	public void setRotation(int rotation){
+		this.rotation = ((rotation % numSeats) + numSeats) % numSeats;
+	}
+
+	/**
+	 * Returns the number of seats every deal is rotated by.
+	 * @return the rotation
+	 */
+	public int getRotation(){
+		return rotation;
+	}
+
+	/**
+	 * Returns the mask of one deck of a hand in a deal, without the rotation.
+	 * @param deal the index of the deal
+	 * @param seat the seat the hand was dealt to
+	 * @param deck the index of the deck
+	 * @return the mask of the cards of the deck in the hand
+	 */
+	public long getMask(long deal, int seat, int deck){
+		if (deal < 0 || deal >= numDeals)
+			throw new IndexOutOfBoundsException("Index: " + deal + ", Size: " + numDeals);
+		ByteBuffer region = regions[(int) (deal / dealsPerRegion)];
+		int offset = (int) (deal % dealsPerRegion) * dealSize;
+		return region.getLong(offset + (seat * numDecks + deck) * 8);
+	}
+
+	/**
+	 * Deals the hands of the next deal, with the seats rotated.
+	 * @param hands the hand of each seat, getNumSeats() of them
+	 * @throws NoSuchElementException if every deal has been dealt
+	 * @throws UncheckedIOException if the deal is corrupt, see checkDeal(long); the hands are not changed
+	 */
+	public void nextDeal(CardSet[] hands){
+		if (!hasNext())
+			throw new NoSuchElementException("No deals left in the corpus");
+		try {
+			checkDeal(next);
+		} catch (StreamCorruptedException e){
+			throw new UncheckedIOException(e);
+		}
+		for (int seat = 0; seat < numSeats; seat++){
+			CardSet hand = hands[(seat + rotation) % numSeats];
+			hand.clear();
+			for (int deck = 0; deck < numDecks; deck++)
+				hand.addAll(deck, getMask(next, seat, deck));
+		}
+		next++;
+	}
+
+	/**
+	 * Checks that a deal could have been dealt: no mask has bits outside CardSet.FULL_DECK, no card is
+	 * dealt to two seats, every card is dealt, and each seat has the number of cards a round robin deal
+	 * gives it.
+	 * @param deal the index of the deal
+	 * @throws StreamCorruptedException if the deal is not one of those
+	 */
+	public void checkDeal(long deal) throws StreamCorruptedException {
+		int numCards = numDecks * Card.DECK_SIZE;
+		for (int deck = 0; deck < numDecks; deck++){
+			long dealt = 0L;
+			for (int seat = 0; seat < numSeats; seat++){
+				long mask = getMask(deal, seat, deck);
+				if ((mask & ~CardSet.FULL_DECK) != 0)
+					throw new StreamCorruptedException("Invalid card mask in deal " + deal + ": " + Long.toHexString(mask));
+				if ((mask & dealt) != 0)
+					throw new StreamCorruptedException("Cards dealt to more than one seat in deal " + deal);
+				dealt |= mask;
+			}
+			if (dealt != CardSet.FULL_DECK)
+				throw new StreamCorruptedException("Cards missing from deal " + deal);
+		}
+		for (int seat = 0; seat < numSeats; seat++){
+			int size = 0;
+			for (int deck = 0; deck < numDecks; deck++)
+				size += Long.bitCount(getMask(deal, seat, deck));
+			if (size != numCards / numSeats + (seat < numCards % numSeats ? 1 : 0))
+				throw new StreamCorruptedException("Seat " + seat + " has " + size + " cards in deal " + deal);
+		}
+	}
+
+	/**
+	 * Writes a corpus of random deals.
+	 * @param out the stream to write to
+	 * @param numSeats the number of seats in each deal
+	 * @param numDecks the number of decks in each deal
+	 * @param numDeals the number of deals to write
+	 * @param random the random number generator to shuffle with
+	 * @throws IOException if the corpus could not be written
+	 */
+	public static void write(OutputStream out, int numSeats, int numDecks, long numDeals, RandomGenerator random)
+			throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+		data.writeInt(MAGIC);
+		data.writeShort(VERSION);
+		data.writeByte(numSeats);
+		data.writeByte(numDecks);
+		data.writeLong(numDeals);
+
+		Dealer dealer = new Dealer(numDecks);
+		CardSet[] hands = new CardSet[numSeats];
+		for (int i = 0; i < numSeats; i++)
+			hands[i] = new CardSet();
+		for (long i = 0; i < numDeals; i++){
+			dealer.deal(hands, random);
+			for (CardSet hand : hands)
+				for (int deck = 0; deck < numDecks; deck++)
+					data.writeLong(hand.getMask(deck));
+		}
+		data.flush();
+	}
+
+	/**
+	 * Generates a corpus file of random deals.
+	 * @param args the file to write, the number of deals, and optionally the seed, number of seats and number of decks
+	 * @throws IOException if the corpus could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2){
+			System.err.println("Usage: java deck.DealCorpus <output file> <deals> [seed] [seats] [decks]");
+			return;
+		}
+		long numDeals = Long.parseLong(args[1]);
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+		int numSeats = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		int numDecks = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+		try (OutputStream out = Files.newOutputStream(Paths.get(args[0]))){
+			write(out, numSeats, numDecks, numDeals, new SplittableRandom(seed));
+		}
+	}
+}
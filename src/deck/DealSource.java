@@ -0,0 +1,28 @@
+package deck;
+
+/**
+ * Something that deals hands, one deal at a time. Used by a game instead of shuffling when the deals
+ * have to be controlled, for example to replay the same deals in a tournament.
+ * @author Gabriel
+ *
+ */
+public interface DealSource {
+	/**
+	 * Returns the number of seats each deal is for.
+	 * @return the number of seats
+	 */
+	public int getNumSeats();
+
+	/**
+	 * Returns the number of decks each deal is made from.
+	 * @return the number of decks
+	 */
+	public int getNumDecks();
+
+	/**
+	 * Deals the next hands. The hands are cleared first.
+	 * @param hands the hand of each seat, getNumSeats() of them
+	 * @throws java.util.NoSuchElementException if there are no deals left
+	 */
+	public void nextDeal(CardSet[] hands);
+}
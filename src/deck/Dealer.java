@@ -0,0 +1,104 @@
+package deck;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Deals the cards of one or more decks to a number of seats. The order of the cards is shuffled once as
+ * a permutation of card ids and each seat's cards are collected straight into a CardSet, so no Card is
+ * moved around and a hand can be handed to its owner already in order (see Deck.setCards(CardSet)).
+ * Dealing with a generator in a given state gives the same hands as shuffling a full Deck with it and
+ * dealing the cards round robin.
+ * @author Gabriel
+ *
+ */
+public class Dealer {
+	private final int numDecks;
+	private final int[] order; // card ids in the order they are dealt, reused by every deal
+	private long[] masks = new long[0]; // cards of each seat while dealing one deck, grown to the largest table dealt
+
+	/**
+	 * Creates a dealer for one deck.
+	 */
+	public Dealer(){
+		this(1);
+	}
+
+	/**
+	 * Creates a dealer for a number of decks.
+	 * @param numDecks the number of decks dealt
+	 * @throws IllegalArgumentException if numDecks is not in the range [1, Card.MAX_DECKS]
+	 */
+	public Dealer(int numDecks) throws IllegalArgumentException{
+		if (numDecks < 1 || numDecks > Card.MAX_DECKS)
+			throw new IllegalArgumentException("Number of decks not in the range [1," + Card.MAX_DECKS + "]");
+		this.numDecks = numDecks;
+		order = new int[numDecks * Card.DECK_SIZE];
+	}
+
+	/**
+	 * Returns the number of decks dealt.
+	 * @return the number of decks
+	 */
+	public int getNumDecks(){
+		return numDecks;
+	}
+
+	/**
+	 * Shuffles all the cards and deals them round robin to new hands, starting with seat 0.
+	 * @param numSeats the number of seats to deal to
+	 * @param random the random number generator to shuffle with
+	 * @return the hand of each seat
+	 */
+	public CardSet[] deal(int numSeats, RandomGenerator random){
+		CardSet[] hands = new CardSet[numSeats];
+		for (int i = 0; i < numSeats; i++)
+			hands[i] = new CardSet();
+		deal(hands, random);
+		return hands;
+	}
+
+	/**
+	 * Shuffles all the cards and deals them round robin, starting with seat 0. The hands are cleared
+	 * first, so they can be reused from one deal to the next, and nothing is allocated after the first
+	 * deal to a table of this size.
+	 * @param hands the hand of each seat
+	 * @param random the random number generator to shuffle with
+	 */
+	public void deal(CardSet[] hands, RandomGenerator random){
+		// Same steps as Deck.shuffle on a full deck, so a seed gives the same hands either way
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		for (int i = order.length - 1; i > 0; i--){
+			int pos = random.nextInt(i + 1); // random number between 0 and i, inclusive
+			int temp = order[i];
+			order[i] = order[pos];
+			order[pos] = temp;
+		}
+
+		for (CardSet hand : hands)
+			hand.clear();
+
+		if (numDecks == 1){
+			// Build the masks in an array of primitives so each card is a shift and an or
+			if (masks.length < hands.length)
+				masks = new long[hands.length];
+			long[] masks = this.masks;
+			Arrays.fill(masks, 0, hands.length, 0L);
+			for (int i = 0, seat = 0; i < order.length; i++){
+				masks[seat] |= 1L << order[i];
+				if (++seat == hands.length)
+					seat = 0;
+			}
+			for (int seat = 0; seat < hands.length; seat++)
+				hands[seat].addAll(masks[seat]);
+		}
+		else{
+			for (int i = 0, seat = 0; i < order.length; i++){
+				hands[seat].add(Card.ofId(order[i]));
+				if (++seat == hands.length)
+					seat = 0;
+			}
+		}
+	}
+}
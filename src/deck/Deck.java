@@ -1,18 +1,33 @@
 package deck;
 
-import java.awt.Graphics;
-import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class Deck implements Serializable{
-	protected ArrayList<Card> list;
+	// Serialized with CardCodec, see writeObject
+	protected transient ArrayList<Card> list;
+	protected transient CardSet cards; // the cards in list, for constant time lookups
+	private transient boolean copies; // whether a card was added while already in list, so it may be in list more than once
+	protected transient CardSet faceDown = new CardSet(); // cards in this deck that are displayed face down
+	private transient int[] sortCounts; // reused by sort(CardOrder)
+	private transient Card[] sortBuffer; // reused by sort(CardOrder)
+	private transient CardView view; // created the first time view() is called
 	public static final int CARD_LEFTSIDE = 12; // # of px to show on left side of card when overlapped
 	public static final int CARD_TOP = 19; // # of pixels to show at top
 
 	public Deck(ArrayList<Card> list){
 		this.list = list;
+		cards = new CardSet();
+		for (Card c : list)
+			copies |= !cards.add(c);
 	}
 
 	/**
@@ -22,6 +37,9 @@ public class Deck implements Serializable{
 	@SuppressWarnings("unchecked")
 	public Deck(Deck deck){
 		this.list = (ArrayList<Card>)deck.list.clone();
+		this.cards = new CardSet(deck.cards);
+		this.faceDown = new CardSet(deck.faceDown);
+		this.copies = deck.copies;
 	}
 
 	/**
@@ -29,8 +47,9 @@ public class Deck implements Serializable{
 	 * @param filled whether the deck should be filled upon creation with the standard 52 cards.
 	 */
 	public Deck(boolean filled){
+		cards = new CardSet();
 		if (filled){
-			list = new ArrayList<Card>(52);
+			list = new ArrayList<Card>(Card.DECK_SIZE);
 			addFullDeck();
 		}
 		else{
@@ -47,10 +66,48 @@ public class Deck implements Serializable{
 
 	/**
 	 * Adds all 52 standard cards to the deck ordered by increasing rank then increasing suit.
+	 * Equivalent to addFullDeck(0)
 	 */
 	public void addFullDeck(){
-		for (int i = 0; i < 52; i++)
-			list.add(new Card(i));
+		addFullDeck(0);
+	}
+
+	/**
+	 * Adds all 52 cards of one deck to the deck ordered by increasing rank then increasing suit.
+	 * Games played with more than one deck add each deck with a different index.
+	 * @param deckIndex the index of the deck, from 0 to Card.MAX_DECKS - 1
+	 */
+	public void addFullDeck(int deckIndex){
+		list.ensureCapacity(list.size() + Card.DECK_SIZE);
+		for (int i = 0; i < Card.DECK_SIZE; i++)
+			list.add(Card.of(deckIndex, i));
+		copies |= cards.getMask(deckIndex) != 0;
+		cards.addAll(deckIndex, CardSet.FULL_DECK);
+	}
+
+	/**
+	 * Replaces the cards in the deck with the cards in a set, in the order given by sort().
+	 * All the cards are face up.
+	 * @param set the cards the deck should contain
+	 */
+	public void setCards(CardSet set){
+		list.clear();
+		list.ensureCapacity(set.size());
+		faceDown.clear();
+		int numDecks = set.numDecks();
+		if (numDecks == 1){
+			for (long remaining = set.toLong(); remaining != 0; remaining &= remaining - 1)
+				list.add(Card.of(Long.numberOfTrailingZeros(remaining)));
+		}
+		else{
+			// Copies of a card from different decks are next to each other
+			for (int ordinal = 0; ordinal < Card.DECK_SIZE; ordinal++)
+				for (int deck = 0; deck < numDecks; deck++)
+					if ((set.getMask(deck) & 1L << ordinal) != 0)
+						list.add(Card.of(deck, ordinal));
+		}
+		cards = new CardSet(set);
+		copies = false;
 	}
 
 	/**
@@ -59,87 +116,126 @@ public class Deck implements Serializable{
 	 */
 	public void addAll(ArrayList<Card> array){
 		list.addAll(array);
+		for (Card c : array)
+			copies |= !cards.add(c);
 	}
 	
 	public Card get(int index) throws IndexOutOfBoundsException{
 		return list.get(index);
 	}
 	
+	/**
+	 * Removes the first occurrence of a card from the deck. A card that is not in the deck is rejected
+	 * in constant time, but removing one that is still scans and shifts the list, in linear time.
+	 * @param c the card to remove
+	 * @return whether the card was in the deck
+	 */
 	public boolean remove(Card c){
-		return list.remove(c);
+		if (!cards.contains(c))
+			return false; // not in the deck, no need to scan the list
+		list.remove(c);
+		removed(c);
+		return true;
+	}
+
+	/**
+	 * Updates the set after a card was removed from the list. Unless a card was ever added twice the
+	 * card cannot still be in the list, and its bit is cleared in constant time.
+	 * @param c the card removed
+	 */
+	private void removed(Card c){
+		if (!copies || !list.contains(c))
+			cards.remove(c); // only clear the bit once no copies are left
+	}
+
+	/**
+	 * Returns whether the deck contains a card. This takes constant time.
+	 * @param c the card to look for
+	 * @return if the card is in the deck
+	 */
+	public boolean contains(Card c){
+		return cards.contains(c);
+	}
+
+	/**
+	 * Returns whether a card is displayed face up in this deck. Cards are face up unless set otherwise.
+	 * @param c the card
+	 * @return if the card is face up
+	 */
+	public boolean isFaceUp(Card c){
+		return !faceDown.contains(c);
+	}
+
+	/**
+	 * Sets whether a card is displayed face up in this deck.
+	 * @param c the card
+	 * @param faceUp whether the card should be face up
+	 */
+	public void setFaceUp(Card c, boolean faceUp){
+		if (faceUp)
+			faceDown.remove(c);
+		else
+			faceDown.add(c);
+	}
+
+	/**
+	 * Flips a card in this deck over.
+	 * @param c the card to flip
+	 */
+	public void flip(Card c){
+		setFaceUp(c, !isFaceUp(c));
+	}
+
+	/**
+	 * Returns the set of cards in the deck. The set must not be modified.
+	 * @return the cards in the deck as a set
+	 */
+	public CardSet getCardSet(){
+		return cards;
 	}
 	
 	public int size(){
 		return list.size();
 	}
+
+	/**
+	 * Returns a read-only view of the cards in the deck. The view is not a copy, it always shows the
+	 * current cards in their current order.
+	 * @return a view of the deck
+	 */
+	public CardView view(){
+		if (view == null)
+			view = new View();
+		return view;
+	}
 	
 	/**
-	 * Shuffles the deck once.
+	 * Shuffles the deck once using the current thread's random number generator.
 	 */
 	public void shuffle(){
-		shuffle(1);
+		shuffle(ThreadLocalRandom.current());
 	}
 
 	/**
-	 * Shuffles the deck by picking out cards in a random order.
-	 * It reorders the Cards in the deck in a random order.
+	 * Shuffles the deck a number of times using the current thread's random number generator.
 	 * @param iterations the number of times the deck should be shuffled
 	 */
 	public void shuffle(int iterations){
-		if (list.size() == 0)
-			return;
-		for (int i = 0; i < iterations; i++){
-			ArrayList<Card> newList = new ArrayList<Card>(list.size());
-			for (int j = list.size()-1; j >= 0; j--){
-				int pos = (int)(Math.random()*(j+1)); // random number between 0 and j, inclusive
-				newList.add(list.get(pos)); // add the random card to new deck
-				list.remove(pos); // remove the random card from old deck
-			}
-			list = newList; // change the deck
-		}
+		for (int i = 0; i < iterations; i++)
+			shuffle(ThreadLocalRandom.current());
 	}
 
 	/**
-	 * Draws the cards, overlapped, on a BufferedImage. The maximum number of cards will be drawn on each row.
-	 * The cards will be positioned into multiple rows only if necessary. 
-	 * @param width the width of the BufferedImage to be returned
-	 * @param height the height of the BufferedImage to be returned
-	 * @return a BufferedImage with all the cards drawn on it
-	 */
-	public BufferedImage show(int width, int height){
-		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-		Graphics g = image.getGraphics();
-		if (list.size() == 0 )
-			return image;
-
-		// number of cards displayed per row
-		int cardsPerRow = ((width - Card.WIDTH) // total pixels excluding the one full card
-				/ CARD_LEFTSIDE) + 1; 				 // divide by CARD_LEFTSIDE to find how many overlapped can fit
-		// +1 to include the one full card
-
-		//number of rows of cards
-		// +1 due to integer division
-		int rows = list.size() / cardsPerRow + 1; // number of rows of cards
-		
-		// Save processing time when there are more rows than can be shown
-		rows = Math.min(rows, height/Card.HEIGHT + 1);
-
-		// draw the cards
-		int i = 0; // counter for cards drawn
-		for (int y = 0; y < rows && i < list.size(); y++){
-			for (int x = 0; x < cardsPerRow-1 && i < list.size()-1; x++){
-				// Draw the overlapped cards
-				g.drawImage(list.get(i).getImage(), x * CARD_LEFTSIDE, y * Card.HEIGHT,
-						(x+1) * CARD_LEFTSIDE+1, (y+1) * Card.HEIGHT+1, 0, 0, CARD_LEFTSIDE+1, Card.HEIGHT+1, null);
-				//list.get(i).show(g, x * CARD_LEFTSIDE, y * Card.CARD_HEIGHT);
-				i++; // increment counter for cards, so that the next iteration draws the next card
-			}
-			// Draw the last card in the row
-			g.drawImage(list.get(i).getImage(),(i%cardsPerRow)*CARD_LEFTSIDE,y*Card.HEIGHT,null);
-			i++;
+	 * Shuffles the deck in place with the Fisher-Yates algorithm. Every order is equally likely and the
+	 * same generator state always gives the same order, so a seeded generator (such as
+	 * new SplittableRandom(seed)) can be used to reproduce a shuffle.
+	 * @param random the random number generator to draw from
+	 */
+	public void shuffle(RandomGenerator random){
+		for (int i = list.size() - 1; i > 0; i--){
+			int pos = random.nextInt(i + 1); // random number between 0 and i, inclusive
+			swap(list, i, pos);
 		}
-
-		return image;
 	}
 
 	/**
@@ -150,7 +246,9 @@ public class Deck implements Serializable{
 	public Card deal(int index){
 		if (index > list.size()-1 || index < 0)
 			return null;
-		return list.remove(index); // get the card at position and remove it
+		Card card = list.remove(index); // get the card at position and remove it
+		removed(card);
+		return card;
 	}
 
 	/**
@@ -167,49 +265,72 @@ public class Deck implements Serializable{
 	 */
 	public void add(Card card){
 		list.add(card);
+		copies |= !cards.add(card);
+	}
+
+	/**
+	 * Returns the index of the first occurrence of a card at or after fromIndex. Nothing is allocated and
+	 * a card that is not in the deck is rejected in constant time; a card that is in it is found by
+	 * scanning the list.
+	 * @param item the card to look for
+	 * @param considerFaceUp whether only cards that are face up in this deck are found
+	 * @param fromIndex the index to start searching from
+	 * @return the index of the card, -1 if it is not found
+	 */
+	public int indexOf(Card item, boolean considerFaceUp, int fromIndex){
+		// Not in the deck, or all copies are face down
+		if (!cards.contains(item) || (considerFaceUp && !isFaceUp(item)))
+			return -1;
+		for (int i = Math.max(fromIndex, 0); i < list.size(); i++){
+			if (list.get(i) == item)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of a card, disregarding whether it is face up.
+	 * @param item the card to look for
+	 * @return the index of the card, -1 if it is not found
+	 */
+	public int indexOf(Card item){
+		return indexOf(item, false, 0);
+	}
+
+	/**
+	 * Searches for all occurrences of a card and writes their indexes into a given array, so nothing is
+	 * allocated. The search stops once the array is full.
+	 * @param item the card to look for
+	 * @param considerFaceUp whether only cards that are face up in this deck are found
+	 * @param indexes the array to write the indexes into
+	 * @return the number of indexes written
+	 */
+	public int searchAll(Card item, boolean considerFaceUp, int[] indexes){
+		int numFound = 0;
+		int index = indexOf(item, considerFaceUp, 0);
+		while (index >= 0 && numFound < indexes.length){
+			indexes[numFound++] = index;
+			index = indexOf(item, considerFaceUp, index + 1);
+		}
+		return numFound;
 	}
 
 	/**
 	 * Searches for all occurrence of the Card specified by the argument item and returns the indexes.
-	 * Item and the Card in the array does not have to be the same object (item == list.get(i) not always true).
 	 * @param item the card to look for
-	 * @param considerFaceUp whether the face up status of the card is also compared
+	 * @param considerFaceUp whether only cards that are face up in this deck are found
 	 * @param stopAfter specifies the maximum number of objects to find (if it is <= 0, find all)
 	 * @return an array of all indexes, up to the amount specified by stopAfter, of the Cards that are the same as the Card item
 	 */
 	public int[] searchAll(Card item, boolean considerFaceUp, int stopAfter){
-		ArrayList<Card> array = new ArrayList<Card>(list);
-		int index; // index currently being processed
-		int numRemoved = 0; // cards removed
-		int numFound = 0; // cards found
-		ArrayList<Integer> indexes = new ArrayList<Integer>();
-		do{
-			index = array.indexOf(item); // get index of first Card equal to item
-			if (index < 0)
-				return arrayListToIntArray(indexes); // if there is none, then return the indexes already found
-			
-			// Ignore cards that do not have matching faceUp when considerFaceUp == true
-			if (!(considerFaceUp && array.get(index).faceUp != item.faceUp)){
-				indexes.add(index+numRemoved); // add the index of the item in the original array
-				numFound++;
-			}
-			
-			for (int i = 0; i <= index; i++){
-				array.remove(0); // remove the items before the found item, for next indexOf
-			}
-			numRemoved += index + 1; // increase numRemoved by the number of items removed
-			
-		} while (array.size() > 0 && (numFound < stopAfter || stopAfter <= 0));
-		// while there are still items left in the array and the maximum number of indexes was not reached
-
-		return arrayListToIntArray(indexes); // reached when loop terminated by stopAfter
+		int[] indexes = new int[stopAfter <= 0 ? list.size() : Math.min(stopAfter, list.size())];
+		return Arrays.copyOf(indexes, searchAll(item, considerFaceUp, indexes));
 	}
 	
 	/**
 	 * Searches for all occurrence of the Card specified by the argument item and returns the indexes.
-	 * Item and the Card in the array does not have to be the same object (item == list.get(i) not always true).
 	 * @param item the card to look for
-	 * @param considerFaceUp whether the face up status of the card is also compared
+	 * @param considerFaceUp whether only cards that are face up in this deck are found
 	 * @return an array of all indexes of the Cards that are the same as the Card item
 	 */
 	public int[] searchAll(Card item, boolean considerFaceUp){
@@ -219,7 +340,6 @@ public class Deck implements Serializable{
 	/**
 	 * Searches for all occurrence of the Card specified by the argument item and returns the indexes.
 	 * Does not consider whether the Card is face up or face down.
-	 * Item and the Card in the array does not have to be the same object (item == list.get(i) not always true).
 	 * @param item the card to look for
 	 * @return an array of all indexes of the Cards that are the same as the Card item
 	 */
@@ -232,15 +352,11 @@ public class Deck implements Serializable{
 	 * Disregards whether the card is face up or face down.
 	 * Equivalent to search(item, false)
 	 * @param item the card to look for
-	 * @param considerFaceUp whether the face up status of the card is compared
+	 * @param considerFaceUp whether only cards that are face up in this deck are found
 	 * @return the index of the first card in the deck that is the same as item. If none found, returns -1
 	 */
 	public int search(Card item, boolean considerFaceUp){
-		try{
-		return searchAll(item, considerFaceUp, 1)[0];
-		} catch (ArrayIndexOutOfBoundsException e){
-			return -1;
-		}
+		return indexOf(item, considerFaceUp, 0);
 	}
 	
 	/**
@@ -259,119 +375,67 @@ public class Deck implements Serializable{
 	 */
 	public void clear(){
 		list.clear();
+		cards.clear();
+		faceDown.clear();
+		copies = false;
 	}
 
 	/**
-	 * Converts an ArrayList<Integer> to int[]
-	 * @param list the ArrayList to convert
-	 * @return the int array
-	 */
-	private int[] arrayListToIntArray(ArrayList<Integer> list){
-		list.trimToSize();
-		Integer[] integerArray = new Integer[list.size()];
-		list.toArray(integerArray); // convert arrayList to Integer array
-		int[] returnArray = new int[integerArray.length];
-		for (int i = 0; i < integerArray.length; i++)
-			returnArray[i] = integerArray[i]; // convert Integer array to int array
-		return returnArray;
-	}
-
-	/**
-	 * Sorts the deck using a quicksort recursive algorithm by rank (A, 2...Q, K), ignoring suit.
+	 * Sorts the deck by rank (A, 2...Q, K), ignoring suit.
+	 * Equivalent to sort(CardOrder.ACE_LOW)
 	 */
 	public void quicksort(){
-		// call recursive quicksort method
-		quicksort(list, 0, list.size()-1, true); 
-	}
-
-	private void quicksort(ArrayList<Card> list, int left, int right, boolean firstCall){
-		int i = left; // Index of card that is greater than pivot
-		int j = right; // Index of card that is less than pivot
-
-		if (right - left < 1)
-			return; // if there is less than 1 element, the array is sorted
-		int pivot = quicksortNum(list.get(left));
-
-		// While there is an element 
-		while (j > i){
-			// Loops until there is a card left of the j that greater than the pivot
-			while (quicksortNum(list.get(i)) <= pivot && i <= right && j > i)
-				i++;
-			// Loops until there is a card right of i that is less than the pivot
-			while (quicksortNum(list.get(j)) > pivot && j >= left && j >= i)
-				j--;
-			// Swaps items at i and j if they are in the wrong spot
-			if (j > i)
-				swap(list, i, j);
-		}
-		swap(list, left, j); // swap the pivot in the proper position
-
-		// Recursive calls for partitions left and right of the pivot
-		quicksort(list, left, j-1, false);
-		quicksort(list, j+1, right, false);
-
-		// Updates the ArrayList with the sorted array
-		if (firstCall)
-			this.list = list;
+		sort(CardOrder.ACE_LOW);
 	}
 
 	/**
-	 * Sorts the deck using a combsort algorithm by suit (S, H, D, C), then by rank (A, 2...Q, K).
+	 * Sorts the deck by suit (S, H, C, D), then by rank (A, 2...Q, K).
+	 * Equivalent to sort(CardOrder.SUIT_THEN_RANK)
 	 */
-	public void combsort(){;
-		int gap = list.size(); // gap from end of array to consider
-		boolean swapped; // whether a swap occured (means the list is not guaranteed sorted)
-		do{
-			swapped = false;
-			gap = newGap(gap); // shrink the gap
-			for (int i = 0; i < (list.size() - gap); i++){ // for all elements before the gap
-				if (combsortNum(list.get(i)) > combsortNum(list.get(i+gap))){
-					swapped = true;
-					swap(list,i,i+gap); // swap if necessary
-				}
-			}
-		} while (gap > 1 || swapped);
+	public void combsort(){
+		sort(CardOrder.SUIT_THEN_RANK);
 	}
 
-	/**
-	 * Calculates the new gap.
-	 * @param gap the old gap
-	 * @return the new gap
-	 */
-	private static int newGap(int gap){
-		gap = gap * 10 / 13; //
-		if (gap == 9 || gap == 10)
-			return 11;
-		if (gap < 1)
-			return 1;
-		return gap;
-	}
-	
-	@SuppressWarnings("unchecked")
 	/**
 	 * Sorts the deck based on rank, then suit.
+	 * Equivalent to sort(CardOrder.BIG_TWO)
 	 */
 	public void sort(){
-		Collections.sort(list);
-	}
-	
-	private static int quicksortNum(Card c){
-		int num = c.rank.ordinal(); // get ordinal number of card's rank
-		num++; // shift index of ranks up by 1 to make space for ace
-		if (num>=13)
-			num = 0; // if it is an ace, make it lowest rank
-		return num;
+		sort(CardOrder.BIG_TWO);
 	}
 
 	/**
-	 * Returns the integer used to order cards in the combsort method.
-	 * @param c the card to consider
-	 * @return the value of the card
+	 * Sorts the deck in the given order with a counting sort. This takes linear time, is stable and,
+	 * after the first call, does not allocate.
+	 * @param order the order to sort the cards in
 	 */
-	private static int combsortNum(Card c){
-		int rankOrder = quicksortNum(c); // order by rank
-		int suitOrder = 3 - c.suit.ordinal(); // order by suit
-		return (suitOrder * 13) + rankOrder; // sorted by suit then rank
+	public void sort(CardOrder order){
+		int size = list.size();
+		if (size < 2)
+			return;
+
+		// Reuse the buffers from the last sort
+		if (sortCounts == null || sortCounts.length < order.numKeys() + 1)
+			sortCounts = new int[order.numKeys() + 1];
+		if (sortBuffer == null || sortBuffer.length < size)
+			sortBuffer = new Card[Math.max(size, Card.DECK_SIZE)];
+		int[] counts = sortCounts;
+		Card[] buffer = sortBuffer;
+		Arrays.fill(counts, 0);
+
+		// Count the cards with each key, then turn the counts into the first index of each key
+		for (int i = 0; i < size; i++)
+			counts[order.key(list.get(i)) + 1]++;
+		for (int key = 1; key < counts.length; key++)
+			counts[key] += counts[key - 1];
+
+		// Place each card after the cards with smaller keys
+		for (int i = 0; i < size; i++){
+			Card c = list.get(i);
+			buffer[counts[order.key(c)]++] = c;
+		}
+		for (int i = 0; i < size; i++)
+			list.set(i, buffer[i]);
 	}
 
 	/**
@@ -407,6 +471,26 @@ public class Deck implements Serializable{
 		return newArray;
 	}
 	
+	/**
+	 * Writes the cards as one byte each instead of serializing the list.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		CardCodec.writeOrdered(out, this);
+		CardCodec.writeHand(out, faceDown);
+	}
+
+	/**
+	 * Reads the cards written by writeObject.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		list = new ArrayList<Card>();
+		cards = new CardSet();
+		CardCodec.readOrdered(in, this);
+		faceDown = CardCodec.readHand(in);
+	}
+
 	/**
 	 * String representation of all the cards in the deck.
 	 */
@@ -417,4 +501,53 @@ public class Deck implements Serializable{
 		s += "}";
 		return s;
 	}
+
+	/**
+	 * Read-only view of the deck, see view().
+	 */
+	private class View implements CardView {
+		public int size(){
+			return list.size();
+		}
+
+		public Card get(int index){
+			return list.get(index);
+		}
+
+		public int ordinalAt(int index){
+			return list.get(index).getOrdinalNumber();
+		}
+
+		public boolean contains(Card card){
+			return cards.contains(card);
+		}
+
+		public long mask(){
+			return cards.toLong();
+		}
+
+		public Iterator<Card> iterator(){
+			return new Iterator<Card>(){
+				private int next = 0;
+
+				public boolean hasNext(){
+					return next < list.size();
+				}
+
+				public Card next(){
+					if (next >= list.size())
+						throw new NoSuchElementException();
+					return list.get(next++);
+				}
+
+				public void remove(){
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		public String toString(){
+			return Deck.this.toString();
+		}
+	}
 }
@@ -0,0 +1,337 @@
+package deck;
+
+import java.util.Arrays;
+
+/**
+ * Maps hands to a canonical form under relabelling of the suits. Two positions whose cards only differ
+ * by which suit is called what are equivalent, as long as the relabelling does not change how any two
+ * cards that are still in play compare. Caches keyed by the canonical form can then share entries
+ * between those positions.
+ * <p>
+ * Suits rank in Big 2, so a relabelling is only valid for a set of live cards (the cards still in
+ * play) if, at every rank, it keeps the live suits in the same order. The order is that of the game's
+ * rules, diamonds, clubs, hearts then spades unless given otherwise. When flushes are ranked by suit
+ * before rank, the suits also compare across ranks, so the order of all the suits with live cards must
+ * be kept too. The three of diamonds has to be played first, so it is never relabelled while it is
+ * live. Singles, doubles, triples and every poker hand then compare the same way before and after the
+ * relabelling. For the same reason no other live three is relabelled to a diamond. With every card live
+ * only the identity is valid; the symmetry appears as cards are played.
+ * <p>
+ * Masks are CardSet masks of the first deck (see CardSet.toLong()).
+ * @author Gabriel
+ *
+ */
+public class SuitCanonicalizer {
+	private static final int NUM_SUITS = 4;
+	private static final int NUM_RANKS = 13;
+
+	/**
+	 * All 24 permutations of the suits. PERMUTATIONS[p][s] is the suit that suit s is relabelled to.
+	 * Permutation 0 is the identity.
+	 */
+	private static final int[][] PERMUTATIONS = createPermutations();
+
+	/**
+	 * The cards of each suit, SUIT_MASKS[s] has bit rank * 4 + s set for every rank.
+	 */
+	private static final long[] SUIT_MASKS = new long[NUM_SUITS];
+
+	/**
+	 * ORDER_PRESERVED[o][p] has bit n set if permutation p keeps the order of the suits in the 4 bit set
+	 * n, when the suits rank in order o: PERMUTATIONS[o][s] is the position of suit s, 0 for the lowest.
+	 */
+	private static final int[][] ORDER_PRESERVED = new int[PERMUTATIONS.length][PERMUTATIONS.length];
+
+	/**
+	 * TO_DIAMONDS[p] is the suit that permutation p relabels to diamonds.
+	 */
+	private static final int[] TO_DIAMONDS = new int[PERMUTATIONS.length];
+
+	static {
+		for (int rank = 0; rank < NUM_RANKS; rank++)
+			for (int suit = 0; suit < NUM_SUITS; suit++)
+				SUIT_MASKS[suit] |= 1L << (rank * NUM_SUITS + suit);
+
+		for (int p = 0; p < PERMUTATIONS.length; p++){
+			for (int suit = 0; suit < NUM_SUITS; suit++)
+				if (PERMUTATIONS[p][suit] == Suit.DIAMONDS.ordinal())
+					TO_DIAMONDS[p] = suit;
+			for (int o = 0; o < PERMUTATIONS.length; o++){
+				int[] position = PERMUTATIONS[o];
+				for (int set = 0; set < 1 << NUM_SUITS; set++){
+					boolean preserved = true;
+					// Every two suits of the set rank the same way after being relabelled
+					for (int a = 0; a < NUM_SUITS; a++)
+						for (int b = 0; b < NUM_SUITS; b++)
+							if ((set & 1 << a) != 0 && (set & 1 << b) != 0 && position[a] < position[b]
+									&& position[PERMUTATIONS[p][a]] > position[PERMUTATIONS[p][b]])
+								preserved = false;
+					if (preserved)
+						ORDER_PRESERVED[o][p] |= 1 << set;
+				}
+			}
+		}
+	}
+
+	private SuitCanonicalizer(){}
+
+	/**
+	 * Creates all permutations of the suits, starting with the identity.
+	 * @return the permutations
+	 */
+	private static int[][] createPermutations(){
+		int[][] permutations = new int[24][];
+		int n = 0;
+		for (int a = 0; a < NUM_SUITS; a++)
+			for (int b = 0; b < NUM_SUITS; b++)
+				for (int c = 0; c < NUM_SUITS; c++)
+					for (int d = 0; d < NUM_SUITS; d++)
+						if (a != b && a != c && a != d && b != c && b != d && c != d)
+							permutations[n++] = new int[]{a, b, c, d};
+		return permutations;
+	}
+
+	/**
+	 * Returns the index of the permutation giving the position of each suit in an order.
+	 * @param suitOrder the suits from lowest to highest
+	 * @return the index of the permutation
+	 * @throws IllegalArgumentException if suitOrder does not contain each suit once
+	 */
+	private static int orderIndex(Suit[] suitOrder) throws IllegalArgumentException{
+		if (suitOrder.length == NUM_SUITS){
+			for (int o = 0; o < PERMUTATIONS.length; o++){
+				boolean matches = true;
+				for (int position = 0; position < NUM_SUITS; position++)
+					matches &= PERMUTATIONS[o][suitOrder[position].ordinal()] == position;
+				if (matches)
+					return o;
+			}
+		}
+		throw new IllegalArgumentException("The suit order must contain each suit once: " + Arrays.toString(suitOrder));
+	}
+
+	/**
+	 * Returns whether a permutation may be used when the given cards are live, with the suits in the
+	 * standard order.
+	 * Equivalent to isValid(permutation, live, Suit.values(), false)
+	 * @param permutation the index of the permutation
+	 * @param live the mask of the cards that are still in play
+	 * @return if the permutation keeps the order of all live cards
+	 */
+	public static boolean isValid(int permutation, long live){
+		return isValid(0, permutation, live, false);
+	}
+
+	/**
+	 * Returns whether a permutation may be used when the given cards are live.
+	 * @param permutation the index of the permutation
+	 * @param live the mask of the cards that are still in play
+	 * @param suitOrder the suits from lowest to highest
+	 * @param globalSuitOrder whether suits also compare across ranks, as when flushes are ranked by suit
+	 * @return if the permutation keeps the order of all live cards
+	 * @throws IllegalArgumentException if suitOrder does not contain each suit once
+	 */
+	public static boolean isValid(int permutation, long live, Suit[] suitOrder, boolean globalSuitOrder)
+			throws IllegalArgumentException{
+		return isValid(orderIndex(suitOrder), permutation, live, globalSuitOrder);
+	}
+
+	/**
+	 * Returns whether a permutation may be used when the given cards are live.
+	 * @param order the index of the permutation giving the position of each suit
+	 */
+	private static boolean isValid(int order, int permutation, long live, boolean globalSuitOrder){
+		// The three of diamonds is live before and after (the three that becomes it is live iff it is)
+		if (((live >>> TO_DIAMONDS[permutation]) & 1) != (live & 1))
+			return false;
+		int preserved = ORDER_PRESERVED[order][permutation];
+		int allSuits = 0; // the suits with a live card
+		for (int rank = 0; rank < NUM_RANKS; rank++){
+			int suits = (int) (live >>> (rank * NUM_SUITS)) & 0xF;
+			if ((preserved & 1 << suits) == 0)
+				return false;
+			allSuits |= suits;
+		}
+		return !globalSuitOrder || (preserved & 1 << allSuits) != 0;
+	}
+
+	/**
+	 * Relabels the suits of the cards in a mask.
+	 * @param permutation the index of the permutation
+	 * @param mask the cards to relabel
+	 * @return the relabelled cards
+	 */
+	public static long apply(int permutation, long mask){
+		int[] map = PERMUTATIONS[permutation];
+		long result = 0L;
+		for (int suit = 0; suit < NUM_SUITS; suit++){
+			long cards = mask & SUIT_MASKS[suit];
+			int shift = map[suit] - suit;
+			result |= shift >= 0 ? cards << shift : cards >>> -shift;
+		}
+		return result;
+	}
+
+	/**
+	 * Canonicalizes a hand on its own, with only its cards live.
+	 * Equivalent to canonicalize(hand, hand)
+	 * @param hand the hand
+	 * @return the canonical form of the hand
+	 */
+	public static Canonical canonicalize(long hand){
+		return canonicalize(hand, new long[]{hand});
+	}
+
+	/**
+	 * Canonicalizes a position with the suits in the standard order.
+	 * Equivalent to canonicalize(Suit.values(), false, live, hands)
+	 * @param live the mask of the cards that are still in play
+	 * @param hands the masks of the hands, usually one for each player
+	 * @return the canonical form of the position
+	 */
+	public static Canonical canonicalize(long live, long... hands){
+		return canonicalize(0, false, live, hands);
+	}
+
+	/**
+	 * Canonicalizes a position: the cards still in play and the hands of the players. Of all the valid
+	 * relabellings, the one that gives the smallest live mask is used, then the smallest first hand and
+	 * so on, so equivalent positions always give the same result.
+	 * @param suitOrder the suits from lowest to highest
+	 * @param globalSuitOrder whether suits also compare across ranks, as when flushes are ranked by suit
+	 * @param live the mask of the cards that are still in play
+	 * @param hands the masks of the hands, usually one for each player
+	 * @return the canonical form of the position
+	 * @throws IllegalArgumentException if suitOrder does not contain each suit once
+	 */
+	public static Canonical canonicalize(Suit[] suitOrder, boolean globalSuitOrder, long live, long... hands)
+			throws IllegalArgumentException{
+		return canonicalize(orderIndex(suitOrder), globalSuitOrder, live, hands);
+	}
+
+	/**
+	 * Canonicalizes a position.
+	 * @param order the index of the permutation giving the position of each suit
+	 */
+	private static Canonical canonicalize(int order, boolean globalSuitOrder, long live, long[] hands){
+		int best = 0; // the identity is always valid
+		long bestLive = live;
+		long[] bestHands = hands.clone();
+		long[] masks = new long[hands.length];
+
+		for (int p = 1; p < PERMUTATIONS.length; p++){
+			if (!isValid(order, p, live, globalSuitOrder))
+				continue;
+			long mappedLive = apply(p, live);
+			if (mappedLive > bestLive)
+				continue;
+			for (int i = 0; i < hands.length; i++)
+				masks[i] = apply(p, hands[i]);
+			if (mappedLive < bestLive || compare(masks, bestHands) < 0){
+				best = p;
+				bestLive = mappedLive;
+				System.arraycopy(masks, 0, bestHands, 0, masks.length);
+			}
+		}
+		return new Canonical(best, bestLive, bestHands);
+	}
+
+	/**
+	 * Compares two arrays of masks lexicographically.
+	 * @param a the first array
+	 * @param b the second array, of the same length
+	 * @return negative, 0 or positive if a is smaller than, equal to or larger than b
+	 */
+	private static int compare(long[] a, long[] b){
+		for (int i = 0; i < a.length; i++)
+			if (a[i] != b[i])
+				return a[i] < b[i] ? -1 : 1;
+		return 0;
+	}
+
+	/**
+	 * The canonical form of a position and the relabelling of the suits that produced it.
+	 */
+	public static final class Canonical {
+		private final int permutation;
+		private final long live;
+		private final long[] hands;
+
+		private Canonical(int permutation, long live, long[] hands){
+			this.permutation = permutation;
+			this.live = live;
+			this.hands = hands;
+		}
+
+		/**
+		 * Returns the index of the permutation used, 0 if the suits were not relabelled.
+		 * @return the index of the permutation
+		 */
+		public int getPermutation(){
+			return permutation;
+		}
+
+		/**
+		 * Returns the canonical mask of the live cards.
+		 * @return the canonical live cards
+		 */
+		public long getLive(){
+			return live;
+		}
+
+		/**
+		 * Returns the canonical mask of a hand.
+		 * @param index the index of the hand, in the order they were given
+		 * @return the canonical hand
+		 */
+		public long getHand(int index){
+			return hands[index];
+		}
+
+		/**
+		 * Returns the suit that a suit was relabelled to.
+		 * @param suit the original suit
+		 * @return the canonical suit
+		 */
+		public Suit map(Suit suit){
+			return Suit.getSuit(PERMUTATIONS[permutation][suit.ordinal()]);
+		}
+
+		/**
+		 * Returns the card that a card was relabelled to.
+		 * @param card the original card
+		 * @return the canonical card
+		 */
+		public Card map(Card card){
+			return Card.of(card.getDeckIndex(), card.rank.ordinal() * NUM_SUITS + map(card.suit).ordinal());
+		}
+
+		/**
+		 * Returns the original card of a canonical card, for turning a move found in the canonical
+		 * position back into a move in the real one.
+		 * @param card the canonical card
+		 * @return the original card
+		 */
+		public Card unmap(Card card){
+			int[] map = PERMUTATIONS[permutation];
+			for (int suit = 0; suit < NUM_SUITS; suit++)
+				if (map[suit] == card.suit.ordinal())
+					return Card.of(card.getDeckIndex(), card.rank.ordinal() * NUM_SUITS + suit);
+			throw new IllegalStateException(); // every suit is mapped to
+		}
+
+		public boolean equals(Object obj){
+			if (!(obj instanceof Canonical))
+				return false;
+			Canonical other = (Canonical) obj;
+			return live == other.live && Arrays.equals(hands, other.hands);
+		}
+
+		/**
+		 * Equal canonical positions hash alike, whatever permutation produced them.
+		 */
+		public int hashCode(){
+			return 31 * (int) (live ^ (live >>> 32)) + Arrays.hashCode(hands);
+		}
+	}
+}
@@ -3,6 +3,9 @@ package game;
 import java.io.Serializable;
 
 import deck.Card;
+import deck.CardOrder;
+import deck.CardSet;
+import deck.CardView;
 import deck.Deck;
 
 /**
@@ -43,6 +46,14 @@ public abstract class AbstractPlayer implements CombinationReturner,
 			hand.add(c);
 	}
 
+	/**
+	 * Replaces the player's hand with the cards in a set. The hand is sorted by value.
+	 * @param cards the cards the player should have
+	 */
+	public void setHand(CardSet cards) {
+		hand.setCards(cards);
+	}
+
 	/**
 	 * Sort the player's hand by value.
 	 */
@@ -50,6 +61,14 @@ public abstract class AbstractPlayer implements CombinationReturner,
 		hand.sort();
 	}
 
+	/**
+	 * Sort the player's hand in a given order.
+	 * @param order the order to sort the hand in
+	 */
+	public void sort(CardOrder order) {
+		hand.sort(order);
+	}
+
 	/**
 	 * Whether the player is finished discarding their hand.
 	 * @return if the player has no cards in their hand
@@ -83,16 +102,43 @@ public abstract class AbstractPlayer implements CombinationReturner,
 	}
 
 	/**
-	 * Searches for the first index of a card.
+	 * Searches for the first index of a card. A card not in the hand is rejected in constant time,
+	 * otherwise the hand is scanned.
 	 * @param c the card to search for
 	 * @return the index of c, -1 if not found
 	 */
 	public int search(Card c) {
-		return hand.search(c);
+		return hand.indexOf(c);
+	}
+
+	/**
+	 * Returns whether a card is in the player's hand. This takes constant time.
+	 * @param c the card to look for
+	 * @return if the card is in the player's hand
+	 */
+	public boolean contains(Card c) {
+		return hand.contains(c);
+	}
+
+	/**
+	 * Returns the cards in the player's hand as a set. The set must not be modified.
+	 * @return the cards in the player's hand
+	 */
+	public CardSet getCardSet() {
+		return hand.getCardSet();
+	}
+
+	/**
+	 * Returns a read-only view of the player's hand. Unlike getCards(), nothing is copied, so this is the
+	 * one to use when the cards are read often, such as when drawing the hand.
+	 * @return a view of the player's hand
+	 */
+	public CardView getView() {
+		return hand.view();
 	}
 
 	/**
-	 * Returns the cards in the player's hand.
+	 * Returns a copy of the cards in the player's hand.
 	 * @return the cards in the player's hand
 	 */
 	public Card[] getCards() {
@@ -108,7 +154,8 @@ public abstract class AbstractPlayer implements CombinationReturner,
 	}
 
 	/**
-	 * Remove all cards in a Combination.
+	 * Remove all cards in a Combination. Each card is removed with Deck.remove(Card), which takes
+	 * linear time in the size of the hand.
 	 * @param combination the combination to remove
 	 * @return combination
 	 */
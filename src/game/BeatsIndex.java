@@ -0,0 +1,294 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import deck.Card;
+
+/**
+ * An index of the combinations a player could play, kept sorted by value for each length of
+ * combination. The cheapest combination that beats a play is found by binary search, and combinations
+ * are removed as their cards leave the hand without rebuilding the index. Values are those of the
+ * index's rule set.
+ * <p>
+ * Combinations are kept as moves (see Move) packed with the index's rule set, so the value compared
+ * by the searches is in the move itself. Combinations given back are those of Move.toCombination(long),
+ * the shared combinations of CombinationRegistry for cards of the first deck.
+ * @author Gabriel
+ *
+ */
+public class BeatsIndex {
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The moves of each length, sorted by value. Moves of the same value are kept in the order they were
+	 * added.
+	 */
+	private final long[][] moves = new long[Combination.POKER_HAND + 1][];
+	private final int[] sizes = new int[Combination.POKER_HAND + 1];
+	private final RuleSet rules;
+
+	/**
+	 * Creates an empty index under the standard rules.
+	 */
+	public BeatsIndex(){
+		this(RuleSet.STANDARD);
+	}
+
+	/**
+	 * Creates an empty index.
+	 * @param rules the rules that decide the values of the combinations and what beats what
+	 */
+	public BeatsIndex(RuleSet rules){
+		this.rules = rules;
+		for (int length : new int[]{Combination.SINGLE, Combination.DOUBLE, Combination.TRIPLE, Combination.POKER_HAND})
+			moves[length] = new long[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Creates an index of every combination that can be made from a hand under the standard rules.
+	 * @param hand the mask of the hand (see deck.CardSet.toLong())
+	 * @return the index
+	 */
+	public static BeatsIndex forHand(long hand){
+		return forHand(hand, RuleSet.STANDARD);
+	}
+
+	/**
+	 * Creates an index of every combination that can be made from a hand.
+	 * @param hand the mask of the hand (see deck.CardSet.toLong())
+	 * @param rules the rules of the game
+	 * @return the index
+	 */
+	public static BeatsIndex forHand(long hand, RuleSet rules){
+		BeatsIndex index = new BeatsIndex(rules);
+		MoveGenerator generator = new MoveGenerator(rules);
+		int numMoves = generator.generate(hand);
+		for (int i = 0; i < numMoves; i++)
+			index.add(Move.of(generator.get(i), rules));
+		return index;
+	}
+
+	/**
+	 * Returns the rules of the index.
+	 * @return the rule set
+	 */
+	public RuleSet getRuleSet(){
+		return rules;
+	}
+
+	/**
+	 * Adds a combination.
+	 * @param combination the combination, not a pass
+	 * @throws IllegalArgumentException if the combination is a pass or the rules do not allow it
+	 */
+	public void add(Combination combination) throws IllegalArgumentException{
+		if (combination.getLength() == Combination.PASS)
+			throw new IllegalArgumentException("A pass cannot be indexed");
+		long move = Move.of(combination, rules);
+		if (move == Move.NONE)
+			throw new IllegalArgumentException(combination + " is not allowed under the " + rules + " rules");
+		add(move);
+	}
+
+	/**
+	 * Adds a move. Adding moves in increasing order of value appends them in constant time.
+	 * @param move the move, packed with the rules of the index
+	 * @throws IllegalArgumentException if the move is a pass or Move.NONE
+	 */
+	public void add(long move) throws IllegalArgumentException{
+		if (move == Move.PASS || move == Move.NONE)
+			throw new IllegalArgumentException("Only combinations of cards can be indexed");
+		int length = Move.length(move);
+		int size = sizes[length];
+		if (size == moves[length].length)
+			moves[length] = Arrays.copyOf(moves[length], size * 2);
+		// Insert after the moves of the same value
+		int pos = firstAbove(length, Move.value(move));
+		System.arraycopy(moves[length], pos, moves[length], pos + 1, size - pos);
+		moves[length][pos] = move;
+		sizes[length]++;
+	}
+
+	/**
+	 * Removes every combination that uses any of the cards of the first deck in a mask, for when those
+	 * cards leave the hand.
+	 * @param cards the mask of the cards (see deck.CardSet.toLong())
+	 * @return the number of combinations removed
+	 */
+	public int removeCards(long cards){
+		int removed = 0;
+		for (int length = Combination.SINGLE; length <= Combination.POKER_HAND; length++){
+			if (moves[length] == null)
+				continue;
+			// Keep the moves that do not use the cards, in order
+			int kept = 0;
+			for (int i = 0; i < sizes[length]; i++)
+				if ((Move.mask(moves[length][i]) & cards) == 0)
+					moves[length][kept++] = moves[length][i];
+			removed += sizes[length] - kept;
+			sizes[length] = kept;
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes every combination that uses any of the cards of a combination, for when it is played.
+	 * @param played the combination played
+	 * @return the number of combinations removed
+	 */
+	public int remove(Combination played){
+		if (played.getMask() != Combination.NO_MASK)
+			return removeCards(played.getMask());
+		// Cards from other decks are compared one at a time
+		int removed = 0;
+		for (Card card : played.getCards()){
+			for (int length = Combination.SINGLE; length <= Combination.POKER_HAND; length++){
+				if (moves[length] == null)
+					continue;
+				for (int i = 0; i < sizes[length]; i++){
+					if (Move.contains(moves[length][i], card)){
+						removeAt(length, i--);
+						removed++;
+					}
+				}
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes the move at a position.
+	 */
+	private void removeAt(int length, int pos){
+		int size = --sizes[length];
+		System.arraycopy(moves[length], pos + 1, moves[length], pos, size - pos);
+	}
+
+	/**
+	 * Removes all combinations.
+	 */
+	public void clear(){
+		Arrays.fill(sizes, 0);
+	}
+
+	/**
+	 * Returns the position of the first move of a length with a value larger than the given one.
+	 * @param length the length of the moves
+	 * @param value the value to beat
+	 * @return the position, the number of moves of that length if none is larger
+	 */
+	private int firstAbove(int length, int value){
+		long[] m = moves[length];
+		int low = 0, high = sizes[length];
+		while (low < high){
+			int mid = (low + high) >>> 1;
+			if (Move.value(m[mid]) <= value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the number of combinations of a length.
+	 * @param length the length, such as Combination.DOUBLE
+	 * @return the number of combinations
+	 */
+	public int size(int length){
+		return moves[length] == null ? 0 : sizes[length];
+	}
+
+	/**
+	 * Returns the cheapest combination of a length.
+	 * @param length the length, such as Combination.DOUBLE
+	 * @return the combination with the smallest value, null if there is none
+	 */
+	public Combination cheapest(int length){
+		return size(length) == 0 ? null : Move.toCombination(moves[length][0]);
+	}
+
+	/**
+	 * Returns the cheapest combination that beats a play: the same length and a larger value, or
+	 * failing that the cheapest bomb if the rules let bombs beat any play.
+	 * @param previous the play to beat, not a pass
+	 * @return the combination with the smallest value that beats the play, null if there is none
+	 * @throws IllegalArgumentException if previous is a pass
+	 */
+	public Combination cheapestBeating(Combination previous) throws IllegalArgumentException{
+		long move = cheapestBeating(lengthToBeat(previous), rules.value(previous));
+		return move == Move.NONE ? null : Move.toCombination(move);
+	}
+
+	/**
+	 * Returns the cheapest move that beats a move, see cheapestBeating(Combination).
+	 * @param previous the move to beat, packed with the rules of the index, not a pass
+	 * @return the move with the smallest value that beats the previous move, Move.NONE if there is none
+	 * @throws IllegalArgumentException if previous is a pass or Move.NONE
+	 */
+	public long cheapestBeating(long previous) throws IllegalArgumentException{
+		if (previous == Move.NONE)
+			throw new IllegalArgumentException("NONE is not a move");
+		if (previous == Move.PASS)
+			throw new IllegalArgumentException("Any combination can be played after a pass");
+		return cheapestBeating(Move.length(previous), Move.value(previous));
+	}
+
+	/**
+	 * Returns the cheapest move that beats a play of a length and value.
+	 * @return the move, Move.NONE if there is none
+	 */
+	private long cheapestBeating(int length, int value){
+		if (moves[length] == null)
+			return Move.NONE;
+		int pos = firstAbove(length, value);
+		if (pos < sizes[length])
+			return moves[length][pos];
+		if (length == Combination.POKER_HAND)
+			return Move.NONE;
+		pos = firstBomb();
+		return pos < sizes[Combination.POKER_HAND] ? moves[Combination.POKER_HAND][pos] : Move.NONE;
+	}
+
+	/**
+	 * Returns the position of the cheapest bomb among the poker hands.
+	 * @return the position, the number of poker hands if there is none
+	 */
+	private int firstBomb(){
+		// Bombs are the poker hands of the highest values, and the lowest bomb value of no bombs is larger than any value
+		int lowest = rules.getLowestBombValue();
+		return lowest == Integer.MAX_VALUE ? sizes[Combination.POKER_HAND] : firstAbove(Combination.POKER_HAND, lowest - 1);
+	}
+
+	/**
+	 * Returns every combination that beats a play, cheapest first. Bombs that beat a shorter play come
+	 * after the combinations of the same length.
+	 * @param previous the play to beat, not a pass
+	 * @return the combinations that beat the play, in increasing order of value
+	 * @throws IllegalArgumentException if previous is a pass
+	 */
+	public List<Combination> beating(Combination previous) throws IllegalArgumentException{
+		int length = lengthToBeat(previous);
+		ArrayList<Combination> beating = new ArrayList<Combination>();
+		if (moves[length] == null)
+			return beating;
+		for (int i = firstAbove(length, rules.value(previous)); i < sizes[length]; i++)
+			beating.add(Move.toCombination(moves[length][i]));
+		if (length != Combination.POKER_HAND)
+			for (int i = firstBomb(); i < sizes[Combination.POKER_HAND]; i++)
+				beating.add(Move.toCombination(moves[Combination.POKER_HAND][i]));
+		return beating;
+	}
+
+	/**
+	 * Returns the length of a play to beat.
+	 * @throws IllegalArgumentException if the play is a pass
+	 */
+	private static int lengthToBeat(Combination previous) throws IllegalArgumentException{
+		if (previous.getLength() == Combination.PASS)
+			throw new IllegalArgumentException("Any combination can be played after a pass");
+		return previous.getLength();
+	}
+}
@@ -1,549 +1,660 @@
 package game;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 
 import deck.Card;
-import deck.Rank;
-import deck.Suit;
+import deck.CardSet;
 
 /**
- * A computer player.
+ * A computer player. The searches work on the ids of the cards (see deck.Card.getId()) and keep the
+ * combinations they find as moves (see Move), in buffers that are reused, so a turn creates no
+ * objects until the chosen combination is returned. The hand is searched when it is dealt or the
+ * rules change, and the combinations found are kept across turns in lists and in a BeatsIndex, where
+ * the play that beats the previous one is looked up. When cards are played, every combination that
+ * uses any of them is removed from both, and cards of the hand left in no combination become singles.
  * @author Gabriel
  *
  */
 public class CPUPlayer extends AbstractPlayer implements Serializable{
-	private ArrayList<Combination.PokerHand> pokerHands; // array of available poker hands
-	private ArrayList<Combination.Triple> triples;
-	private ArrayList<Combination.Double> doubles;
-	private ArrayList<Combination.Single> singles;
+	private transient MoveList pokerHands; // available poker hands
+	private transient MoveList triples;
+	private transient MoveList doubles;
+	private transient MoveList singles;
+	private transient CardList cardsLeft; // cards not yet in a combination
+	private transient CardList handClone; // cards left while searching for full houses
+	private transient MoveList fullHouseTriples, fullHouseDoubles;
+	private transient CardList[] suits; // cards left of each suit while searching for flushes
+	private transient int[] combination; // ids of the cards of the combination being built
+	private transient Card[][] cards; // cards of combinations with cards of other decks, by length
+	private transient RuleSet rules; // the rules the hand was searched under
+	private transient BeatsIndex index; // the combinations found, under rules
+	private transient boolean searched; // whether the lists and the index hold the combinations of the hand
+	private transient long[] covered; // cards of each deck in some combination, while finding cards left out
 
 	@Override
 	public Combination doTurn(GameState state) {
 		if (hand.size() == 0)
 			return Combination.getPassCombination();
 
-		searchForCombinations();
+		if (!searched || rules != state.getRuleSet())
+			searchForCombinations(state.getRuleSet());
 
-		// Remove combinations without the forced card, if the is one
-		if (state.getForcedCard() != null){
-			for (int i = 0; i < pokerHands.size(); i++){
-				boolean hasForcedCard = false;
-				for (Card c : pokerHands.get(i).getCards()){
-					if (c.equals(state.getForcedCard())){
-						hasForcedCard = true;
-					}
-				}
-				if (! hasForcedCard){
-					pokerHands.remove(i);
-					i--;
-				}
-			}
-			for (int i = 0; i < triples.size(); i++){
-				boolean hasForcedCard = false;
-				for (Card c : triples.get(i).getCards()){
-					if (c.equals(state.getForcedCard())){
-						hasForcedCard = true;
-					}
-				}
-				if (! hasForcedCard){
-					triples.remove(i);
-					i--;
-				}
-			}
-			for (int i = 0; i < doubles.size(); i++){
-				boolean hasForcedCard = false;
-				for (Card c : doubles.get(i).getCards()){
-					if (c.equals(state.getForcedCard())){
-						hasForcedCard = true;
-					}
-				}
-				if (! hasForcedCard){
-					doubles.remove(i);
-					i--;
-				}
-			}
-			for (int i = 0; i < singles.size(); i++){
-				boolean hasForcedCard = false;
-				for (Card c : singles.get(i).getCards()){
-					if (c.equals(state.getForcedCard())){
-						hasForcedCard = true;
-					}
-				}
-				if (! hasForcedCard){
-					singles.remove(i);
-					i--;
-				}
-			}
-		}
-		// If can play any card, play in decreasing order of length and increasing order of value
-		if (state.getPreviousPlay() == Combination.getPassCombination()){
+		// If can play any card, play in decreasing order of length and increasing order of value,
+		// using only combinations with the forced card if there is one
+		Card forced = state.getForcedCard();
+		long previous = state.getPreviousMove();
+		if (previous == Move.PASS){
 
 			// Play the lowest value poker hand using the cheapest cards
-			if (pokerHands.size() > 0)
-				return pokerHands.get(0);
-
-			if (triples.size() > 0){
-				return triples.get(0);
-			}
-			if (doubles.size() > 0){
-				return doubles.get(0);
-			}
-
-			if (singles.size() > 0)
-				return singles.get(0);
+			long play = first(pokerHands, forced);
+			if (play == Move.NONE)
+				play = first(triples, forced);
+			if (play == Move.NONE)
+				play = first(doubles, forced);
+			if (play == Move.NONE)
+				play = first(singles, forced);
+			if (play != Move.NONE)
+				return Move.toCombination(play);
 
 			Card[] cards = {hand.get(0)};
-			try {
-				return Combination.getCombination(cards);
-			} catch (InvalidCombinationException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
+			return Combination.getCombinationOrNull(cards);
 		}
 
 		// If there is card already played, play the lowest valued combination possible
-		switch (state.getPreviousPlay().getLength()){
-		case Combination.SINGLE :
-			for (int i = 0; i < singles.size(); i++){
-				if (singles.get(i).getValue() > state.getPreviousPlay().getValue())
-					return singles.get(i);
+		long play = index.cheapestBeating(previous);
+		if (play != Move.NONE && (forced == null || Move.contains(play, forced)))
+			return Move.toCombination(play);
+
+		return Combination.getPassCombination(); // pass if can do nothing
+	}
+
+	/**
+	 * Returns the first move of a list that contains a card.
+	 * @param list the list, sorted in increasing order of value
+	 * @param card the card, null if any move will do
+	 * @return the move, Move.NONE if there is none
+	 */
+	private static long first(MoveList list, Card card){
+		for (int i = 0; i < list.size(); i++)
+			if (card == null || Move.contains(list.get(i), card))
+				return list.get(i);
+		return Move.NONE;
+	}
+
+	/**
+	 * Removes the cards of a combination and every combination found that uses any of them. Cards of
+	 * the hand that are then in no combination are added as singles.
+	 */
+	@Override
+	public Combination removeCombination(Combination combination) {
+		super.removeCombination(combination);
+		if (searched && combination.getLength() != Combination.PASS){
+			pokerHands.removeUsing(combination);
+			triples.removeUsing(combination);
+			doubles.removeUsing(combination);
+			singles.removeUsing(combination);
+			index.remove(combination);
+			addCardsLeftOut();
+		}
+		return combination;
+	}
+
+	/**
+	 * Adds the cards of the hand that are in no combination as singles, to the list and the index.
+	 */
+	private void addCardsLeftOut(){
+		Arrays.fill(covered, 0L);
+		cover(pokerHands);
+		cover(triples);
+		cover(doubles);
+		cover(singles);
+
+		CardSet set = getCardSet();
+		boolean added = false;
+		for (int deck = 0; deck < set.numDecks(); deck++){
+			for (long left = set.getMask(deck) & ~covered[deck]; left != 0; left &= left - 1){
+				combination[0] = deck * Card.DECK_SIZE + Long.numberOfTrailingZeros(left);
+				long single = move(Combination.SINGLE);
+				if (single != Move.NONE){
+					singles.add(single);
+					index.add(single);
+					added = true;
+				}
 			}
-			break;
-		case Combination.DOUBLE :
-			for (int i = 0; i < doubles.size(); i++)
-				if (doubles.get(i).getValue() > state.getPreviousPlay().getValue())
-					return doubles.get(i);
-			break;
-		case Combination.TRIPLE :
-			for (int i = 0; i < triples.size(); i++)
-				if (triples.get(i).getValue() > state.getPreviousPlay().getValue())
-					return triples.get(i);
-			break;
-		case Combination.POKER_HAND :
-			for (int i = 0; i < pokerHands.size(); i++)
-				if (pokerHands.get(i).getValue() > state.getPreviousPlay().getValue())
-					return pokerHands.get(i);
-			break;
 		}
+		if (added)
+			singles.sort();
+	}
 
-		return Combination.getPassCombination(); // pass if can do nothing
+	/**
+	 * Marks the cards of the moves of a list as covered.
+	 */
+	private void cover(MoveList list){
+		for (int i = 0; i < list.size(); i++){
+			int length = Move.getIds(list.get(i), combination, 0);
+			for (int j = 0; j < length; j++)
+				covered[combination[j] / Card.DECK_SIZE] |= 1L << combination[j] % Card.DECK_SIZE;
+		}
 	}
 
-	@SuppressWarnings("unchecked")
 	/**
-	 * Search for available combinations of poker hands, triples, doubles and singles.
+	 * Forgets the combinations found, for when the hand changes. The lists and the index are cleared
+	 * together and the hand is searched again on the next turn.
 	 */
-	private void searchForCombinations(){
-		ArrayList<Card> cardsLeft = hand.toArrayList(); // copy of hand
-		Collections.sort(cardsLeft);
-
-		pokerHands = searchForPokerHands(cardsLeft, true);
-		triples = searchForTriples(cardsLeft, true);
-		doubles = searchForDoubles(cardsLeft, true);
-		singles = searchForSingles(cardsLeft, true);
-
-		Collections.sort(pokerHands);
-		Collections.sort(triples);
-		Collections.sort(doubles);
-		Collections.sort(singles);
+	private void invalidate(){
+		searched = false;
+		if (index == null)
+			return; // nothing searched yet
+		pokerHands.clear();
+		triples.clear();
+		doubles.clear();
+		singles.clear();
+		index.clear();
+	}
+
+	@Override
+	public void add(Card card) {
+		super.add(card);
+		invalidate();
+	}
+
+	@Override
+	public void addAll(Card[] cards) {
+		super.addAll(cards);
+		invalidate();
+	}
+
+	@Override
+	public void setHand(CardSet cards) {
+		super.setHand(cards);
+		invalidate();
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		invalidate();
 	}
 
-	@SuppressWarnings("unchecked")
 	/**
-	 * Search for poker hands.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for available combinations of poker hands, triples, doubles and singles.
+	 * @param rules the rules of the game, poker hands they do not allow are left out
 	 */
-	private ArrayList<Combination.PokerHand> searchForPokerHands(ArrayList<Card> hand, boolean removeCards){
-		if (!removeCards){
-			hand = (ArrayList<Card>) hand.clone(); // copy of hand
-			Collections.sort(hand);
+	private void searchForCombinations(RuleSet rules){
+		if (cardsLeft == null)
+			createBuffers();
+		this.rules = rules;
+
+		// Copy the hand in the order of the cards, by ordinal number then deck
+		CardSet set = getCardSet();
+		long any = 0L;
+		for (int deck = 0; deck < set.numDecks(); deck++)
+			any |= set.getMask(deck);
+		cardsLeft.clear();
+		for (; any != 0; any &= any - 1){
+			int ordinal = Long.numberOfTrailingZeros(any);
+			for (int deck = 0; deck < set.numDecks(); deck++)
+				if ((set.getMask(deck) & 1L << ordinal) != 0)
+					cardsLeft.add(deck * Card.DECK_SIZE + ordinal);
 		}
 
-		ArrayList<Combination.PokerHand> pokerHands = new ArrayList<Combination.PokerHand>(); 
+		pokerHands.clear();
+		triples.clear();
+		doubles.clear();
+		singles.clear();
+		searchForPokerHands(cardsLeft);
+		searchForTriples(cardsLeft, triples);
+		searchForDoubles(cardsLeft, doubles);
+		searchForSingles(cardsLeft, singles);
+
+		pokerHands.sort();
+		triples.sort();
+		doubles.sort();
+		singles.sort();
+
+		// The lists are sorted, so each move is appended after those of the same value
+		if (index == null || index.getRuleSet() != rules)
+			index = new BeatsIndex(rules);
+		index.clear();
+		index(pokerHands);
+		index(triples);
+		index(doubles);
+		index(singles);
+		searched = true;
+	}
+
+	/**
+	 * Adds the moves of a list to the index.
+	 */
+	private void index(MoveList list){
+		for (int i = 0; i < list.size(); i++)
+			index.add(list.get(i));
+	}
+
+	private void createBuffers(){
+		pokerHands = new MoveList();
+		triples = new MoveList();
+		doubles = new MoveList();
+		singles = new MoveList();
+		cardsLeft = new CardList();
+		handClone = new CardList();
+		fullHouseTriples = new MoveList();
+		fullHouseDoubles = new MoveList();
+		suits = new CardList[4];
+		for (int i = 0; i < suits.length; i++)
+			suits[i] = new CardList();
+		combination = new int[Combination.POKER_HAND];
+		covered = new long[Card.MAX_DECKS];
+		cards = new Card[Combination.POKER_HAND + 1][];
+		for (int length = Combination.SINGLE; length <= Combination.POKER_HAND; length++)
+			cards[length] = new Card[length];
+	}
 
-		pokerHands.addAll(searchForStraightFlushes(hand, true));
-		pokerHands.addAll(searchForQuads(hand, true));
-		pokerHands.addAll(searchForFullHouses(hand, true));
-		pokerHands.addAll(searchForFlushes(hand, true));
-		pokerHands.addAll(searchForStraights(hand, true));
+	/**
+	 * Returns the move of the first cards of the combination being built.
+	 * @param length the number of cards
+	 * @return the move, Move.NONE if the cards are not a combination the rules allow
+	 */
+	private long move(int length){
+		long mask = 0L;
+		for (int i = 0; i < length; i++){
+			if (combination[i] >= Card.DECK_SIZE){
+				// A card of another deck, so the cards are classified as objects
+				for (int j = 0; j < length; j++)
+					cards[length][j] = Card.ofId(combination[j]);
+				return Move.of(cards[length], rules);
+			}
+			mask |= 1L << combination[i];
+		}
+		return Move.of(mask, rules);
+	}
 
-		return pokerHands;
+	/**
+	 * Adds the combination being built to a list if it is one.
+	 * @param list the list to add to
+	 * @param length the number of cards
+	 */
+	private void add(MoveList list, int length){
+		long move = move(length);
+		if (move != Move.NONE)
+			list.add(move);
 	}
 
 	/**
-	 * Search for straights.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for poker hands, removing the cards that are found.
+	 * @param hand the cards to search
 	 */
-	private ArrayList<Combination.PokerHand> searchForStraights(ArrayList<Card> hand, boolean removeCards){
+	private void searchForPokerHands(CardList hand){
+		searchForStraightFlushes(hand);
+		searchForQuads(hand);
+		searchForFullHouses(hand);
+		searchForFlushes(hand);
+		searchForStraights(hand);
+	}
+
+	/**
+	 * Search for straights, removing the cards that are found.
+	 * @param hand the cards to search
+	 */
+	private void searchForStraights(CardList hand){
 		if (hand.size() < 5)
-			return new ArrayList<Combination.PokerHand>();
+			return;
 
-		ArrayList<Combination.PokerHand> straights = new ArrayList<Combination.PokerHand>(); // array of straights
 		// Search for straights
 		int consecutive = 1;
-		int previousRank = hand.get(0).rank.ordinal();
+		int previousRank = hand.rank(0);
 		for (int i = 1; i < hand.size() - 1; i++){
-			if (hand.get(i).rank.ordinal() - 1 == previousRank){
-				previousRank = hand.get(i).rank.ordinal();
+			if (hand.rank(i) - 1 == previousRank){
+				previousRank = hand.rank(i);
 				consecutive++;
-			} else if (hand.get(i).rank.ordinal() > previousRank + 1){
-				previousRank = hand.get(i).rank.ordinal();
+			} else if (hand.rank(i) > previousRank + 1){
+				previousRank = hand.rank(i);
 				consecutive = 1;
 			}
 			if (consecutive >= 5){
-				Card[] cards = new Card[5];
-
 				// Find consecutive cards
 				int nextRank = previousRank - 4;
 				int k = 0; // number already added
 				for (int j = 0; j < hand.size() && k < 5; j++){
-					if (hand.get(j).rank.ordinal() == nextRank){
-						cards[k] = hand.get(j);
+					if (hand.rank(j) == nextRank){
+						combination[k] = hand.get(j);
 						nextRank++;
 						k++;
 					}
 				}
 
 				// Get straight
-				try {
-					straights.add((Combination.PokerHand)Combination.getCombination(cards));
-				} catch (InvalidCombinationException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				} catch (NullPointerException e){
-					e.printStackTrace();
-				}
+				if (k == 5)
+					add(pokerHands, 5);
 
-				if (removeCards){
-					for (Card c : cards){
-						hand.remove(c);
-					}
-				}
+				for (int j = 0; j < k; j++)
+					hand.removeId(combination[j]);
 			}
 		}
-
-		return straights;
 	}
 
 	/**
-	 * Search for flushes.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for flushes, removing the cards that are found.
+	 * @param hand the cards to search
 	 */
-	private ArrayList<Combination.PokerHand> searchForFlushes(ArrayList<Card> hand, boolean removeCards){
-		if (hand.size() < 5)
-			new ArrayList<Combination.PokerHand>();
-
-		ArrayList<Combination.PokerHand> flushes = new ArrayList<Combination.PokerHand>(); // array of flushes
-
-		ArrayList<ArrayList<Card>> suits = new ArrayList<ArrayList<Card>>(Suit.values().length); // array of arrays of cards by suit
-		for (int i = 0; i < Suit.values().length; i++)
-			suits.add(new ArrayList<Card>()); // create arrays
-
-		// Add all cards to the appropriate arrayList by suit
-		for (int i = 0; i < hand.size(); i++){
-			suits.get(hand.get(i).suit.ordinal()).add(hand.get(i));
-		}
+	private void searchForFlushes(CardList hand){
+		// Add all cards to the appropriate list by suit
+		for (CardList suit : suits)
+			suit.clear();
+		for (int i = 0; i < hand.size(); i++)
+			suits[hand.suit(i)].add(hand.get(i));
 
 		// Process each suit
-		for (int i = 0; i < suits.size(); i++){
+		for (int i = 0; i < suits.length; i++){
 			// Has flush if 5 or more cards of same suit
-			if (suits.get(i).size() >= 5){
+			if (suits[i].size() >= 5){
 				// Add flushes to combination array
-				for (int j = 0; j + 5 < suits.get(i).size(); j++){
-					Card[] cards = new Card[5];
-					for (int k = 0; k < 5; k++){
-						cards[k] = suits.get(i).get(j + k);
-					}
-					try {
-						flushes.add((Combination.PokerHand)Combination.getCombination(cards));
-					} catch (InvalidCombinationException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
+				for (int j = 0; j + 5 < suits[i].size(); j++){
+					for (int k = 0; k < 5; k++)
+						combination[k] = suits[i].get(j + k);
+					add(pokerHands, 5);
 				}
 
 				// Remove 5 lowest cards of a suit with 5 or more cards
-				if (removeCards){
-					int nRemoved = 0;
-					for (int k = 0; k < hand.size(); k++){
-						boolean removed = true; // a card was removed
-						// process two or more consecutive cards with the same suit
-						while (removed && nRemoved < 5 && k < hand.size()){
-							removed = false;
-							if (hand.get(k).suit.ordinal() == i){
-								removed = true;
-								hand.remove(k);
-								nRemoved++;
-							}
-						}
-					}
-				}
+				for (int k = 0; k < 5; k++)
+					hand.removeId(suits[i].get(k));
 			}
 		}
-
-		return flushes;
 	}
 
 	/**
-	 * Search for full houses.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for full houses, removing the cards that are found.
+	 * @param hand the cards to search
 	 */
-	private ArrayList<Combination.PokerHand> searchForFullHouses(ArrayList<Card> hand, boolean removeCards){
+	private void searchForFullHouses(CardList hand){
 		if (hand.size() < 5)
-			return new ArrayList<Combination.PokerHand>();
-
-		ArrayList<Combination.PokerHand> fullHouse = new ArrayList<Combination.PokerHand>(); // array of full houses
+			return;
 
-		// Search for full house
-		@SuppressWarnings("unchecked")
-		ArrayList<Card> handClone = (ArrayList<Card>)hand.clone(); // clone hand to avoid removing cards from hand
-		ArrayList<Combination.Triple> triples = searchForTriples(handClone, true); // search for triples and remove them from future search
-		ArrayList<Combination.Double> doubles = searchForDoubles(handClone, true); // search for doubles not part of triples
+		// Search for full house in a copy of the hand, to avoid removing cards from hand
+		handClone.copy(hand);
+		fullHouseTriples.clear();
+		fullHouseDoubles.clear();
+		searchForTriples(handClone, fullHouseTriples); // search for triples and remove them from future search
+		searchForDoubles(handClone, fullHouseDoubles); // search for doubles not part of triples
+		int pairs = Math.min(fullHouseTriples.size(), fullHouseDoubles.size());
 
 		// Combine doubles and triples into poker hands
-		for (int i = 0; i < triples.size() & i < doubles.size(); i++){
-			for (int j = 0; j < doubles.size() && j < triples.size(); j++){
-				Card[] cards = new Card[5];
-				Card[] tripleCards = triples.get(i).getCards();
-				Card[] doubleCards = doubles.get(i).getCards();
-
-				// Add triple to cards
-				for (int k = 0; k < tripleCards.length; k++)
-					cards[k] = tripleCards[k];
-
-				// Add double to cards
-				for (int k = 0; k < doubleCards.length; k++)
-					cards[k + tripleCards.length] = doubleCards[k];
-
-				try {
-					fullHouse.add((Combination.PokerHand)Combination.getCombination(cards));
-				} catch (InvalidCombinationException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+		for (int i = 0; i < pairs; i++){
+			for (int j = 0; j < pairs; j++){
+				int tripleLength = Move.getIds(fullHouseTriples.get(i), combination, 0);
+				Move.getIds(fullHouseDoubles.get(i), combination, tripleLength);
+				add(pokerHands, 5);
 			}
 		}
 
 		// Removes all doubles and triples if there is more than 1 of each
-		if (removeCards && triples.size() >= 1 && doubles.size() >= 1){
-			// Remove triples
-			for (int i = 0; i < triples.size() & i < doubles.size(); i++){
-				Card[] cards = triples.get(i).getCards();
-				for (int j = 0; j < cards.length; j++)
-					hand.remove(cards[j]);
-			}
-
-			// Remove doubles
-			for (int i = 0; i < doubles.size() & i < triples.size(); i++){
-				Card[] cards = doubles.get(i).getCards();
-				for (int j = 0; j < cards.length; j++)
-					hand.remove(cards[j]);
-			}
+		for (int i = 0; i < pairs; i++){
+			int length = Move.getIds(fullHouseTriples.get(i), combination, 0);
+			for (int j = 0; j < length; j++)
+				hand.removeId(combination[j]);
+		}
+		for (int i = 0; i < pairs; i++){
+			int length = Move.getIds(fullHouseDoubles.get(i), combination, 0);
+			for (int j = 0; j < length; j++)
+				hand.removeId(combination[j]);
 		}
-
-		return fullHouse;
 	}
 
 	/**
-	 * Search for four of a kinds.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for four of a kinds, removing the cards of the four of a kinds that are found.
+	 * @param hand the cards to search
 	 */
-	private ArrayList<Combination.PokerHand> searchForQuads(ArrayList<Card> hand, boolean removeCards){
+	private void searchForQuads(CardList hand){
 		if (hand.size() < 5)
-			return new ArrayList<Combination.PokerHand>();
-
-		ArrayList<Combination.PokerHand> quads = new ArrayList<Combination.PokerHand>(); // array of full houses
+			return;
 
 		// Search for four of a kind
 		for (int i = 0; i < hand.size() - 3; i++){
 			// If there is four of the same rank
-			if (hand.get(i).rank == hand.get(i + 1).rank && hand.get(i).rank == hand.get(i + 2).rank && hand.get(i).rank == hand.get(i + 3).rank){
-				Card[] cards = new Card[5];
-
+			if (hand.rank(i) == hand.rank(i + 1) && hand.rank(i) == hand.rank(i + 2) && hand.rank(i) == hand.rank(i + 3)){
 				// populate cards with the quad
 				for (int k = 0; k < 4; k++)
-					cards[k] = hand.get(i + k);
+					combination[k] = hand.get(i + k);
 
-				// add poker hand with single card before the quad
+				// add poker hand with each card not part of the quad
 				for (int j = 0; j < hand.size(); j++){
-					if (hand.get(j).rank != hand.get(i).rank){ // if the card is not part of the quad
-						cards[4] = hand.get(j);
-						try {
-							quads.add((Combination.PokerHand) Combination.getCombination(cards));
-						} catch (InvalidCombinationException e) {
-							// TODO Auto-generated catch block
-							e.printStackTrace();
-						}
+					if (hand.rank(j) != hand.rank(i)){
+						combination[4] = hand.get(j);
+						add(pokerHands, 5);
 					}
 				}
 
 				// Removes only the quad
-				if (removeCards){
-					for (int j = 0; j < 4; j++)
-						hand.remove(i);
-				}
+				for (int j = 0; j < 4; j++)
+					hand.remove(i);
 			}
 		}
-
-		return quads;
 	}
 
 	/**
-	 * Search for straight flushes.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for straight flushes, removing the cards that are found.
+	 * @param hand the cards to search
 	 */
-	private ArrayList<Combination.PokerHand> searchForStraightFlushes(ArrayList<Card> hand, boolean removeCards){
+	private void searchForStraightFlushes(CardList hand){
 		if (hand.size() < 5)
-			return new ArrayList<Combination.PokerHand>();
-
-		ArrayList<Combination.PokerHand> straightFlushes = new ArrayList<Combination.PokerHand>(); // array of straightFlushes
+			return;
 
 		// Search for straight flush
 		int consecutive = 1;
-		int previousRank = hand.get(0).rank.ordinal();
-		Suit previousSuit = hand.get(0).suit;
+		int previousRank = hand.rank(0);
+		int previousSuit = hand.suit(0);
 		for (int i = 1; i < hand.size() - 1; i++){
-			if (hand.get(i).rank.ordinal() - 1 == previousRank && hand.get(i).suit == previousSuit){
-				previousRank = hand.get(i).rank.ordinal();
-				previousSuit = hand.get(i).suit;
+			if (hand.rank(i) - 1 == previousRank && hand.suit(i) == previousSuit){
+				previousRank = hand.rank(i);
+				previousSuit = hand.suit(i);
 				consecutive++;
-			} else if (hand.get(i).rank.ordinal() > previousRank + 1){
+			} else if (hand.rank(i) > previousRank + 1){
 				consecutive = 1;
-				previousRank = hand.get(i).rank.ordinal();
+				previousRank = hand.rank(i);
 			}
 			if (consecutive >= 5){
-				Card[] cards = new Card[5];
-
 				// Find consecutive cards
 				int nextRank = previousRank - 4;
-				final Suit suit = hand.get(i).suit;
 				int k = 0; // number already added
-				for (int j = 0; j < hand.size(); j++){
-					if (hand.get(j).rank.ordinal() == nextRank && suit == hand.get(i).suit){
-						cards[k] = hand.get(j);
+				for (int j = 0; j < hand.size() && k < 5; j++){
+					if (hand.rank(j) == nextRank){
+						combination[k] = hand.get(j);
 						nextRank++;
 						k++;
 					}
 				}
 
-				// Get straight
-				try {
-					straightFlushes.add((Combination.PokerHand)Combination.getCombination(cards));
-				} catch (InvalidCombinationException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+				if (k == 5)
+					add(pokerHands, 5);
 
-				if (removeCards){
-					for (Card c : cards){
-						hand.remove(c);
-					}
-				}
+				for (int j = 0; j < k; j++)
+					hand.removeId(combination[j]);
 			}
 		}
-
-		return straightFlushes;
 	}
 
 	/**
-	 * Search for triples.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for triples, removing the cards that are found.
+	 * @param hand the cards to search
+	 * @param triples the list to add the triples to
 	 */
-	private ArrayList<Combination.Triple> searchForTriples(ArrayList<Card> hand, boolean removeCards){
-		ArrayList<Combination.Triple> triples = new ArrayList<Combination.Triple>();
-
-		// Go through each card looking at the 2 cards before it and seeing if they make a triple
+	private void searchForTriples(CardList hand, MoveList triples){
+		// Go through each card looking at the 2 cards after it and seeing if they make a triple
 		for (int i = 0; i < hand.size() - 2; i++){
-			Card[] cards = new Card[Combination.TRIPLE];
-			cards[0] = hand.get(i);
-			cards[1] = hand.get(i + 1);
-			cards[2] = hand.get(i + 2);
-			try{
-				triples.add((Combination.Triple)Combination.getCombination(cards)); // if it is a triple, add it
-				if (removeCards){
-					for (int j = 0; j < 3; j++)
-						hand.remove(i); // remove it from the arraylist
-				}
-			} catch (InvalidCombinationException e){} // not a triple, don't add it
+			combination[0] = hand.get(i);
+			combination[1] = hand.get(i + 1);
+			combination[2] = hand.get(i + 2);
+			long triple = move(Combination.TRIPLE);
+			if (triple != Move.NONE){ // if it is a triple, add it
+				triples.add(triple);
+				for (int j = 0; j < 3; j++)
+					hand.remove(i);
+			}
 		}
-		return triples;
 	}
-	
+
 	/**
-	 * Search for doubles.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for doubles, removing the cards that are found.
+	 * @param hand the cards to search
+	 * @param doubles the list to add the doubles to
 	 */
-	private ArrayList<Combination.Double> searchForDoubles(ArrayList<Card> hand, boolean removeCards){
-		ArrayList<Combination.Double> doubles = new ArrayList<Combination.Double>();
-
-		// Go through each card looking at the card before it to check if it's a double
+	private void searchForDoubles(CardList hand, MoveList doubles){
+		// Go through each card looking at the card after it to check if it's a double
 		for (int i = 0; i < hand.size() - 1; i++){
-			Card[] cards = new Card[2];
-			cards[0] = hand.get(i);
-			cards[1] = hand.get(i + 1);
-
-			try{
-				doubles.add((Combination.Double)Combination.getCombination(cards)); // if it is a double, add it
-				if (removeCards){
-					for (int j = 0; j < 2; j++)
-						hand.remove(i); // remove from arraylist
-				}
-			} catch (InvalidCombinationException e){} // not a double, don't add it
+			combination[0] = hand.get(i);
+			combination[1] = hand.get(i + 1);
+			long pair = move(Combination.DOUBLE);
+			if (pair != Move.NONE){ // if it is a double, add it
+				doubles.add(pair);
+				for (int j = 0; j < 2; j++)
+					hand.remove(i);
+			}
 		}
-		return doubles;
 	}
-	
+
 	/**
-	 * Search for singles.
-	 * @param hand the ArrayList to search
-	 * @param removeCards whether the cards that are found should be removed
-	 * @return the combinations that were found
+	 * Search for singles, removing all the cards.
+	 * @param hand the cards to search
+	 * @param singles the list to add the singles to
 	 */
-	private ArrayList<Combination.Single> searchForSingles(ArrayList<Card> hand, boolean removeCards){
-		ArrayList<Combination.Single> singles = new ArrayList<Combination.Single>();
-
+	private void searchForSingles(CardList hand, MoveList singles){
 		// All cards are singles
 		for (int i = 0; i < hand.size(); i++){
-			Card[] cards = {hand.get(i)};
-			try {
-				singles.add((Combination.Single)Combination.getCombination(cards));
-			} catch (InvalidCombinationException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
-		if (removeCards){
-			hand.clear();
+			combination[0] = hand.get(i);
+			add(singles, Combination.SINGLE);
 		}
-		return singles;
+		hand.clear();
 	}
 
 	public String toString() {
 		return "[CPU Player]";
 	}
-	
+
 	@Override
 	public void receiveInput(boolean[] selected){}
 
 	@Override
 	public void receiveInput(Combination combination){}
+
+	/**
+	 * A list of card ids in the order of the cards, kept in an array that only grows.
+	 */
+	private static class CardList {
+		private int[] ids = new int[16];
+		private int size = 0;
+
+		int size(){
+			return size;
+		}
+
+		int get(int index){
+			return ids[index];
+		}
+
+		int rank(int index){
+			return ids[index] % Card.DECK_SIZE / 4;
+		}
+
+		int suit(int index){
+			return ids[index] % 4;
+		}
+
+		void add(int id){
+			if (size == ids.length)
+				ids = Arrays.copyOf(ids, size * 2);
+			ids[size++] = id;
+		}
+
+		void remove(int index){
+			System.arraycopy(ids, index + 1, ids, index, --size - index);
+		}
+
+		/**
+		 * Removes the first card with an id, if there is one.
+		 */
+		void removeId(int id){
+			for (int i = 0; i < size; i++){
+				if (ids[i] == id){
+					remove(i);
+					return;
+				}
+			}
+		}
+
+		void copy(CardList list){
+			if (ids.length < list.size)
+				ids = new int[list.ids.length];
+			System.arraycopy(list.ids, 0, ids, 0, list.size);
+			size = list.size;
+		}
+
+		void clear(){
+			size = 0;
+		}
+	}
+
+	/**
+	 * A list of moves, kept in an array that only grows.
+	 */
+	private static class MoveList {
+		private long[] moves = new long[16];
+		private int size = 0;
+
+		int size(){
+			return size;
+		}
+
+		long get(int index){
+			return moves[index];
+		}
+
+		void add(long move){
+			if (size == moves.length)
+				moves = Arrays.copyOf(moves, size * 2);
+			moves[size++] = move;
+		}
+
+		/**
+		 * Removes the moves that use any of the cards of a combination, keeping the order of the others.
+		 */
+		void removeUsing(Combination played){
+			long mask = played.getMask();
+			int kept = 0;
+			for (int i = 0; i < size; i++)
+				if (!uses(moves[i], played, mask))
+					moves[kept++] = moves[i];
+			size = kept;
+		}
+
+		/**
+		 * Returns whether a move uses any of the cards of a combination.
+		 * @param mask the mask of the combination, Combination.NO_MASK if it has cards of other decks
+		 */
+		private static boolean uses(long move, Combination played, long mask){
+			if (mask != Combination.NO_MASK)
+				return (Move.mask(move) & mask) != 0;
+			for (Card card : played.getCards())
+				if (Move.contains(move, card))
+					return true;
+			return false;
+		}
+
+		/**
+		 * Sorts the moves in increasing order of value. Moves of the same value keep their order.
+		 */
+		void sort(){
+			for (int i = 1; i < size; i++){
+				long move = moves[i];
+				int j = i;
+				for (; j > 0 && Move.value(moves[j - 1]) > Move.value(move); j--)
+					moves[j] = moves[j - 1];
+				moves[j] = move;
+			}
+		}
+
+		void clear(){
+			size = 0;
+		}
+	}
 }
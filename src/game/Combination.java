@@ -1,5 +1,6 @@
 package game;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.Arrays;
 
@@ -16,6 +17,14 @@ public abstract class Combination implements Comparable<Combination>,
 	 * The cards in the combination.
 	 */
 	protected final Card[] cards;
+	/**
+	 * The value of the combination, see getValue().
+	 */
+	private final int value;
+	/**
+	 * The mask of the cards, see getMask().
+	 */
+	private final long mask;
 	/**
 	 * A pass combination.
 	 */
@@ -27,13 +36,37 @@ public abstract class Combination implements Comparable<Combination>,
 	public static final int PASS = 0, SINGLE = 1, DOUBLE = 2, TRIPLE = 3,
 			POKER_HAND = 5;
 
+	/**
+	 * The mask of a combination with cards that a mask of the first deck cannot hold.
+	 */
+	public static final long NO_MASK = -1L;
+
 	/**
 	 * Initializes the combination.
 	 * @param cards the cards in the combination
+	 * @param value the value of the combination
 	 */
-	private Combination(Card[] cards) {
+	private Combination(Card[] cards, int value) {
 		this.cards = cards;
-		Arrays.sort(cards); // sort the cards
+		this.value = value;
+		this.mask = firstDeckMask(cards);
+		Arrays.sort(cards); // sort the cards for display
+	}
+
+	/**
+	 * Returns the mask of cards that all come from the first deck.
+	 * @param cards the cards
+	 * @return the mask of the cards, NO_MASK if a card is from another deck or is given twice
+	 */
+	private static long firstDeckMask(Card[] cards) {
+		long mask = 0L;
+		for (Card c : cards) {
+			long bit = 1L << c.getOrdinalNumber();
+			if (c.getDeckIndex() != 0 || (mask & bit) != 0)
+				return NO_MASK;
+			mask |= bit;
+		}
+		return mask;
 	}
 
 	/**
@@ -45,29 +78,114 @@ public abstract class Combination implements Comparable<Combination>,
 	}
 
 	/**
-	 * Gets the combination made by the given cards.
+	 * Gets the combination made by the given cards. Combinations of cards from the first deck are the
+	 * shared ones from CombinationRegistry, and the array of cards is not kept.
 	 * @param cards the cards in the combination
 	 * @return the combination made with the given cards
 	 * @throws InvalidCombinationException not a valid combination
 	 */
 	public static Combination getCombination(Card[] cards)
 			throws InvalidCombinationException {
-		// These can throw InvalidCombinationException for things other than length
-		if (cards.length == PASS)
+		Combination combination = getCombinationOrNull(cards);
+		if (combination != null)
+			return combination;
+
+		// Explain why the cards are not a combination
+		throw invalid(cards.length);
+	}
+
+	/**
+	 * Creates the exception explaining why cards are not a combination.
+	 * @param length the number of cards
+	 * @return the exception
+	 */
+	static InvalidCombinationException invalid(int length) {
+		switch (length) {
+		case DOUBLE:
+			return new InvalidCombinationException(
+					"Cards in a double must have the same rank.");
+		case TRIPLE:
+			return new InvalidCombinationException(
+					"Cards in a triple must have the same rank.");
+		case POKER_HAND:
+			return new InvalidCombinationException(
+					"The cards do not form a poker hand.");
+		default: // Cards of invalid length
+			return new InvalidCombinationException(
+					"0, 1, 2, 3 or 5 cards must be selected. " + length
+							+ " cards were selected.");
+		}
+	}
+
+	/**
+	 * Gets the combination made by the given cards, without throwing an exception if they do not
+	 * make one.
+	 * @param cards the cards in the combination
+	 * @return the combination made with the given cards, null if they are not a valid combination
+	 */
+	public static Combination getCombinationOrNull(Card[] cards) {
+		long mask = firstDeckMask(cards);
+		if (mask != NO_MASK)
+			return CombinationRegistry.get(mask);
+		int result = CombinationClassifier.classify(cards);
+		if (result == CombinationClassifier.INVALID)
+			return null;
+		return create(cards, result);
+	}
+
+	/**
+	 * Creates the combination of a classification.
+	 * @param cards the cards in the combination
+	 * @param result the result of CombinationClassifier.classify for the cards, not INVALID
+	 * @return the combination
+	 */
+	static Combination create(Card[] cards, int result) {
+		int value = CombinationClassifier.value(result);
+		int kind = CombinationClassifier.kind(result);
+		switch (kind) {
+		case CombinationClassifier.PASS:
 			return getPassCombination();
-		if (cards.length == SINGLE)
-			return new Single(cards);
-		if (cards.length == DOUBLE)
-			return new Double(cards);
-		if (cards.length == TRIPLE)
-			return new Triple(cards);
-		if (cards.length == POKER_HAND)
-			return new PokerHand(cards);
-
-		// Cards of invalid length
-		throw new InvalidCombinationException(
-				"0, 1, 2, 3 or 5 cards must be selected. " + cards.length
-						+ " cards were selected.");
+		case CombinationClassifier.SINGLE:
+			return new Single(cards, value);
+		case CombinationClassifier.DOUBLE:
+			return new Double(cards, value);
+		case CombinationClassifier.TRIPLE:
+			return new Triple(cards, value);
+		default:
+			return new PokerHand(cards,
+					kind - CombinationClassifier.POKER_HAND_KIND, value);
+		}
+	}
+
+	/**
+	 * Classifies cards that must form a certain kind of combination.
+	 * @param cards the cards
+	 * @param length the length of the combination
+	 * @param message the message of the exception if the cards are the right length but not a combination
+	 * @return the result of CombinationClassifier.classify for the cards
+	 * @throws InvalidCombinationException if the cards do not form a combination of the given length
+	 */
+	private static int classify(Card[] cards, int length, String message)
+			throws InvalidCombinationException {
+		if (cards.length != length)
+			throw new InvalidCombinationException("cards.length must be "
+					+ length + ". cards.length is " + cards.length);
+		int result = CombinationClassifier.classify(cards);
+		if (result == CombinationClassifier.INVALID)
+			throw new InvalidCombinationException(message);
+		return result;
+	}
+
+	/**
+	 * Returns whether cards are classified as a certain kind of combination.
+	 * @param cards the cards
+	 * @param kind the kind of combination, see CombinationClassifier
+	 * @return if the cards form that kind of combination
+	 */
+	private static boolean isKind(Card[] cards, int kind) {
+		int result = CombinationClassifier.classify(cards);
+		return result != CombinationClassifier.INVALID
+				&& CombinationClassifier.kind(result) == kind;
 	}
 
 	/**
@@ -78,8 +196,7 @@ public abstract class Combination implements Comparable<Combination>,
 	public static boolean isValid(Card[] cards) {
 		if (cards == null || cards.length == 0)
 			return true;
-		return Single.isValid(cards) || Double.isValid(cards)
-				|| Triple.isValid(cards) || PokerHand.isValid(cards);
+		return CombinationClassifier.classify(cards) != CombinationClassifier.INVALID;
 	}
 
 	/**
@@ -115,11 +232,12 @@ public abstract class Combination implements Comparable<Combination>,
 	 * Compares two combinations.
 	 */
 	public int compareTo(Combination c) {
-		return getValue() - c.getValue();
+		return value - c.value;
 	}
 
 	/**
-	 * Returns the cards in the combination.
+	 * Returns the cards in the combination. The array is shared by everyone using the combination and
+	 * must not be modified.
 	 * @return the cards in the combination
 	 */
 	public Card[] getCards() {
@@ -153,10 +271,53 @@ public abstract class Combination implements Comparable<Combination>,
 	}
 
 	/**
-	 * Returns the value of the combination.
+	 * Returns the mask of the cards in the combination (see deck.CardSet.toLong()).
+	 * @return the mask of the cards, NO_MASK if some cards are not from the first deck
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Two combinations are equal if they are made of the same cards.
+	 */
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Combination))
+			return false;
+		Combination other = (Combination) obj;
+		return mask == other.mask
+				&& (mask != NO_MASK || Arrays.equals(cards, other.cards));
+	}
+
+	public int hashCode() {
+		if (mask == NO_MASK)
+			return Arrays.hashCode(cards);
+		return (int) (mask ^ (mask >>> 32));
+	}
+
+	/**
+	 * Replaces a deserialized combination by the shared one, so combinations received from the
+	 * network can still be compared with ==.
+	 * @return the shared combination of the same cards, this combination if there is none
+	 * @throws ObjectStreamException never
+	 */
+	protected Object readResolve() throws ObjectStreamException {
+		if (mask == NO_MASK)
+			return this;
+		Combination shared = CombinationRegistry.get(mask);
+		return shared != null ? shared : this;
+	}
+
+	/**
+	 * Returns the value of the combination under the standard rules. A combination beats another of
+	 * the same length if its value is larger. Games with other rules compare with RuleSet.value().
 	 * @return the value of the combination
 	 */
-	public abstract int getValue();
+	public int getValue() {
+		return value;
+	}
 
 	/**
 	 * Represents a pass.
@@ -165,11 +326,7 @@ public abstract class Combination implements Comparable<Combination>,
 	 */
 	public static class Pass extends Combination {
 		protected Pass() {
-			super(new Card[0]);
-		}
-
-		public int getValue() {
-			return -1;
+			super(new Card[0], -1);
 		}
 	}
 
@@ -182,11 +339,11 @@ public abstract class Combination implements Comparable<Combination>,
 		public static final int NUM_VALUES = 52; // number of possible singles
 
 		protected Single(Card[] cards) throws InvalidCombinationException {
-			super(cards);
-			if (cards.length != 1)
-				throw new InvalidCombinationException(
-						"cards.length must be 1. cards.length is "
-								+ cards.length);
+			this(cards, CombinationClassifier.value(classify(cards, SINGLE, null)));
+		}
+
+		private Single(Card[] cards, int value) {
+			super(cards, value);
 		}
 
 		/**
@@ -195,13 +352,7 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if it is a valid single
 		 */
 		public static boolean isValid(Card[] cards) {
-			if (cards.length != 1)
-				return false;
-			return true;
-		}
-
-		public int getValue() {
-			return cards[0].getOrdinalNumber();
+			return cards.length == 1;
 		}
 	}
 
@@ -215,18 +366,12 @@ public abstract class Combination implements Comparable<Combination>,
 													// doubles
 
 		protected Double(Card[] cards) throws InvalidCombinationException {
-			super(cards);
-
-			// Check for length
-			if (cards.length != 2)
-				throw new InvalidCombinationException(
-						"cards.length must be 2. cards.length is "
-								+ cards.length);
-
-			// Check for same rank
-			if (cards[0].rank != cards[1].rank)
-				throw new InvalidCombinationException(
-						"Cards in a double must have the same rank.");
+			this(cards, CombinationClassifier.value(classify(cards, DOUBLE,
+					"Cards in a double must have the same rank.")));
+		}
+
+		private Double(Card[] cards, int value) {
+			super(cards, value);
 		}
 
 		/**
@@ -235,26 +380,7 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if the cards form a valid double
 		 */
 		public static boolean isValid(Card[] cards) {
-			if (cards.length != 2)
-				return false;
-			if (cards[0].rank != cards[1].rank)
-				return false;
-			return true;
-		}
-
-		public int getValue() {
-			// Ordinal number of the largest suit. 1 is subtracted because in a
-			// double, there will never be a diamond as the largest
-			int maxSuit = Math.max(cards[0].suit.ordinal(),
-					cards[1].suit.ordinal()) - 1;
-
-			int rank = cards[0].rank.ordinal();
-			return (rank * 3 + maxSuit) + Single.NUM_VALUES; // Values of
-																// singles added
-																// so doubles
-																// will be
-																// larger than
-																// singles
+			return isKind(cards, CombinationClassifier.DOUBLE);
 		}
 	}
 
@@ -267,19 +393,12 @@ public abstract class Combination implements Comparable<Combination>,
 		public static final int NUM_VALUES = 13;
 
 		protected Triple(Card[] cards) throws InvalidCombinationException {
-			super(cards);
-
-			// Check for length
-			if (cards.length != 3)
-				throw new InvalidCombinationException(
-						"cards.length must be 3. cards.length is "
-								+ cards.length);
-
-			// Check for same rank
-			if (cards[0].rank != cards[1].rank
-					|| cards[0].rank != cards[2].rank)
-				throw new InvalidCombinationException(
-						"Cards in a triple must have the same rank.");
+			this(cards, CombinationClassifier.value(classify(cards, TRIPLE,
+					"Cards in a triple must have the same rank.")));
+		}
+
+		private Triple(Card[] cards, int value) {
+			super(cards, value);
 		}
 
 		/**
@@ -288,18 +407,7 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if the cards form a valid triple
 		 */
 		public static boolean isValid(Card[] cards) {
-			if (cards.length != 3)
-				return false;
-			if (cards[0].rank != cards[1].rank
-					|| cards[0].rank != cards[2].rank)
-				return false;
-			return true;
-		}
-
-		public int getValue() {
-			return cards[0].rank.ordinal() + Single.NUM_VALUES
-					+ Double.NUM_VALUES; // Values of singles and doubles added
-											// to make triples larger
+			return isKind(cards, CombinationClassifier.TRIPLE);
 		}
 	}
 
@@ -338,28 +446,19 @@ public abstract class Combination implements Comparable<Combination>,
 				NUM_STRAIGHT_FLUSH = 36;
 
 		protected PokerHand(Card[] cards) throws InvalidCombinationException {
-			super(cards);
-
-			// Check for length
-			if (cards.length != 5)
-				throw new InvalidCombinationException(
-						"cards.length must be 5. cards.length is "
-								+ cards.length);
-
-			// Check for all types of poker hands
-			if (isStraight(cards))
-				type = STRAIGHT;
-			else if (isFlush(cards))
-				type = FLUSH;
-			else if (isFullHouse(cards))
-				type = FULL_HOUSE;
-			else if (isFourOfAKind(cards))
-				type = FOUR_OF_A_KIND;
-			else if (isStraightFlush(cards))
-				type = STRAIGHT_FLUSH;
-			else
-				throw new InvalidCombinationException(
-						"The cards do not form a poker hand.");
+			this(cards, classify(cards, POKER_HAND,
+					"The cards do not form a poker hand."));
+		}
+
+		private PokerHand(Card[] cards, int result) {
+			this(cards, CombinationClassifier.kind(result)
+					- CombinationClassifier.POKER_HAND_KIND,
+					CombinationClassifier.value(result));
+		}
+
+		private PokerHand(Card[] cards, int type, int value) {
+			super(cards, value);
+			this.type = type;
 		}
 
 		/**
@@ -368,7 +467,7 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if the cards form a valid straight
 		 */
 		public static boolean isStraight(Card[] cards) {
-			return isStraight(cards, true);
+			return isKind(cards, CombinationClassifier.STRAIGHT);
 		}
 
 		/**
@@ -379,17 +478,8 @@ public abstract class Combination implements Comparable<Combination>,
 		 */
 		public static boolean isStraight(Card[] cards,
 				boolean checkStraightFlush) {
-			// check for straight
-			for (int i = 1; i < cards.length; i++) {
-				// If this card's rank is one higher than the last card's rank
-				if (cards[i].rank.ordinal() != cards[i - 1].rank.ordinal() + 1)
-					return false;
-			}
-
-			if (checkStraightFlush && isFlush(cards, false))
-				return false;
-
-			return true;
+			return isStraight(cards)
+					|| (!checkStraightFlush && isStraightFlush(cards));
 		}
 
 		/**
@@ -398,7 +488,7 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if the cards form a valid flush
 		 */
 		public static boolean isFlush(Card[] cards) {
-			return isFlush(cards, true);
+			return isKind(cards, CombinationClassifier.FLUSH);
 		}
 
 		/**
@@ -408,16 +498,8 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if the cards form a valid flush
 		 */
 		public static boolean isFlush(Card[] cards, boolean checkStraightFlush) {
-			for (int i = 1; i < cards.length; i++) {
-				// If this card's suit is the same as the last card's suit
-				if (cards[i].suit != cards[i - 1].suit)
-					return false;
-			}
-
-			if (checkStraightFlush && isStraight(cards, false))
-				return false;
-
-			return true;
+			return isFlush(cards)
+					|| (!checkStraightFlush && isStraightFlush(cards));
 		}
 
 		/**
@@ -426,8 +508,7 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if the cards form a valid straight flush
 		 */
 		public static boolean isStraightFlush(Card[] cards) {
-			// is both straight and flush
-			return isStraight(cards, false) && isFlush(cards, false);
+			return isKind(cards, CombinationClassifier.STRAIGHT_FLUSH);
 		}
 
 		/**
@@ -436,19 +517,7 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if the cards form a valid four of a kind
 		 */
 		public static boolean isFourOfAKind(Card[] cards) {
-			// Check first four cards
-			if (cards[0].rank == cards[1].rank
-					&& cards[0].rank == cards[2].rank
-					&& cards[0].rank == cards[3].rank)
-				return true;
-
-			// Check last four cards
-			if (cards[1].rank == cards[2].rank
-					&& cards[1].rank == cards[3].rank
-					&& cards[1].rank == cards[4].rank)
-				return true;
-
-			return false; // not four of a kind
+			return isKind(cards, CombinationClassifier.FOUR_OF_A_KIND);
 		}
 
 		/**
@@ -457,30 +526,12 @@ public abstract class Combination implements Comparable<Combination>,
 		 * @return if the cards form a valid full house
 		 */
 		public static boolean isFullHouse(Card[] cards) {
-			// Check for triple first
-			if (cards[0].rank == cards[1].rank
-					&& cards[0].rank == cards[2].rank) {
-				// Check for double in last 2 cards
-				if (cards[3].rank == cards[4].rank)
-					return true;
-				return false;
-			}
-
-			// Check for triple last
-			if (cards[2].rank == cards[3].rank
-					&& cards[2].rank == cards[4].rank) {
-				// Check for double in last 2 cards
-				if (cards[0].rank == cards[1].rank)
-					return true;
-				return false;
-			}
-
-			return false; // no triple
+			return isKind(cards, CombinationClassifier.FULL_HOUSE);
 		}
 
 		public static boolean isValid(Card[] cards) {
-			return isStraight(cards) || isFlush(cards) || isFourOfAKind(cards)
-					|| isFullHouse(cards);
+			return cards.length == POKER_HAND
+					&& CombinationClassifier.classify(cards) != CombinationClassifier.INVALID;
 		}
 
 		/**
@@ -503,57 +554,5 @@ public abstract class Combination implements Comparable<Combination>,
 				return "error";
 			}
 		}
-
-		public int getValue() {
-			int previousValues = Single.NUM_VALUES + Double.NUM_VALUES
-					+ Triple.NUM_VALUES; // number of smaller values (104)
-
-			switch (type) {
-			case STRAIGHT:
-				// return largest card subtracted by number of cards that cannot
-				// be highest in a straight
-				// add previous values to have straights larger than other
-				// combinations
-				return (cards[4].getOrdinalNumber() - (52 - NUM_STRAIGHT))
-						+ previousValues;
-
-			case FLUSH:
-				// return largest card subtracted by number of cards that cannot
-				// be highest in a flush
-				return (cards[4].getOrdinalNumber() - (52 - NUM_FLUSH)
-						+ previousValues + NUM_STRAIGHT);
-
-			case FULL_HOUSE:
-				// return rank of triple plus previous values
-				int rankTriple;
-				if (cards[0].rank == cards[1].rank
-						&& cards[0].rank == cards[2].rank) // triple first
-					rankTriple = cards[0].rank.ordinal();
-				else
-					rankTriple = cards[4].rank.ordinal(); // triple last
-				return (rankTriple + previousValues + NUM_STRAIGHT + NUM_FLUSH);
-
-			case FOUR_OF_A_KIND:
-				// return rank of four of a kind plus previous values
-				int rankQuad;
-				if (cards[0].rank == cards[1].rank
-						&& cards[0].rank == cards[2].rank
-						&& cards[0].rank == cards[3].rank)
-					rankQuad = cards[0].rank.ordinal();
-				else
-					rankQuad = cards[4].rank.ordinal();
-				return (rankQuad + previousValues + NUM_STRAIGHT + NUM_FLUSH + NUM_FULL_HOUSE);
-
-			case STRAIGHT_FLUSH:
-				// return largest card subtracted by number of cards that cannot
-				// be highest in a full house
-				// add previous values to have straight flush larger than
-				// everything else
-				return (cards[4].getOrdinalNumber() - (52 - NUM_STRAIGHT_FLUSH) + previousValues
-						+ NUM_STRAIGHT + NUM_FLUSH + NUM_FULL_HOUSE + NUM_FOUR_OF_A_KIND);
-			}
-
-			return -1; // for compilation and error checking
-		}
 	}
 }
@@ -0,0 +1,118 @@
+package game;
+
+import deck.Card;
+
+/**
+ * Classifies cards into the type and value of the combination they form, without sorting, creating
+ * objects or throwing exceptions. The cards are given as a mask (see deck.CardSet.toLong()) and the
+ * result is a single int holding the kind of combination and its value, the same value as
+ * Combination.getValue(), or INVALID. Classification uses the tables of RuleSet.STANDARD; other rule
+ * sets classify with the same kinds and packing, see RuleSet.classify(long).
+ * @author Gabriel
+ *
+ */
+public class CombinationClassifier {
+	/**
+	 * Kinds of combinations. The poker hand kinds are POKER_HAND_KIND plus the PokerHand type.
+	 */
+	public static final int PASS = 0, SINGLE = 1, DOUBLE = 2, TRIPLE = 3, POKER_HAND_KIND = 4,
+			STRAIGHT = POKER_HAND_KIND + Combination.PokerHand.STRAIGHT,
+			FLUSH = POKER_HAND_KIND + Combination.PokerHand.FLUSH,
+			FULL_HOUSE = POKER_HAND_KIND + Combination.PokerHand.FULL_HOUSE,
+			FOUR_OF_A_KIND = POKER_HAND_KIND + Combination.PokerHand.FOUR_OF_A_KIND,
+			STRAIGHT_FLUSH = POKER_HAND_KIND + Combination.PokerHand.STRAIGHT_FLUSH;
+
+	/**
+	 * Returned when the cards do not form a combination.
+	 */
+	public static final int INVALID = -1;
+
+	private static final int KIND_SHIFT = 16;
+	private static final int VALUE_MASK = (1 << KIND_SHIFT) - 1;
+
+	private static final long SUIT_STRIDE = 0x0001111111111111L; // one bit for every rank of the first suit
+
+	/**
+	 * PACKED_RANKS[bits] packs bits 0, 4, 8 and 12 of bits into bits 0 to 3, to turn one bit per
+	 * rank spaced like the cards into a set of ranks, four ranks at a time.
+	 */
+	private static final byte[] PACKED_RANKS = new byte[0x1111 + 1];
+
+	static {
+		for (int i = 0; i < 16; i++){
+			int spaced = (i & 1) | (i & 2) << 3 | (i & 4) << 6 | (i & 8) << 9;
+			PACKED_RANKS[spaced] = (byte) i;
+		}
+	}
+
+	private CombinationClassifier(){}
+
+	/**
+	 * Packs a kind and a value into a result.
+	 */
+	static int result(int kind, int value){
+		return kind << KIND_SHIFT | value;
+	}
+
+	/**
+	 * Returns the kind of combination of a result.
+	 * @param result a result of classify, not INVALID
+	 * @return the kind, such as SINGLE or FLUSH
+	 */
+	public static int kind(int result){
+		return result >>> KIND_SHIFT;
+	}
+
+	/**
+	 * Returns the value of the combination of a result, as returned by Combination.getValue().
+	 * @param result a result of classify, not INVALID
+	 * @return the value of the combination
+	 */
+	public static int value(int result){
+		if (kind(result) == PASS)
+			return -1;
+		return result & VALUE_MASK;
+	}
+
+	/**
+	 * Returns the number of cards in a kind of combination.
+	 * @param kind the kind
+	 * @return the length of the combination, such as Combination.POKER_HAND
+	 */
+	public static int length(int kind){
+		return kind >= POKER_HAND_KIND ? Combination.POKER_HAND : kind;
+	}
+
+	/**
+	 * Returns the set of ranks in a mask.
+	 * @param mask the cards
+	 * @return a 13 bit set, bit r is set if a card of rank r is in the mask
+	 */
+	static int ranks(long mask){
+		// Fold the four suits of each rank onto the lowest bit of its nibble, then gather the nibbles
+		long any = (mask | mask >>> 1 | mask >>> 2 | mask >>> 3) & SUIT_STRIDE;
+		return PACKED_RANKS[(int) any & 0x1111]
+				| PACKED_RANKS[(int) (any >>> 16) & 0x1111] << 4
+				| PACKED_RANKS[(int) (any >>> 32) & 0x1111] << 8
+				| PACKED_RANKS[(int) (any >>> 48) & 0x1111] << 12;
+	}
+
+	/**
+	 * Classifies the cards in a mask of the first deck.
+	 * @param mask the cards, bit n is set if the card with ordinal number n is included
+	 * @return the kind and value of the combination, INVALID if the cards do not form one
+	 */
+	public static int classify(long mask){
+		return RuleSet.STANDARD.classify(mask);
+	}
+
+	/**
+	 * Classifies an array of cards. Cards from more than one deck may be given, including copies of
+	 * the same card; such arrays are classified without the mask tables.
+	 * @param cards the cards
+	 * @return the kind and value of the combination, INVALID if the cards do not form one
+	 */
+	public static int classify(Card[] cards){
+		return RuleSet.STANDARD.classify(cards);
+	}
+}
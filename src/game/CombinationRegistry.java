@@ -0,0 +1,136 @@
+package game;
+
+import deck.Card;
+
+/**
+ * Every combination that can be made with one deck, created once when the class is loaded. Each
+ * combination is kept in an open addressing table keyed by its mask (see deck.CardSet.toLong()), so
+ * looking one up is a few array reads and never creates an object. The combinations returned are
+ * shared, so they can be compared with == and used as keys in hash based caches.
+ * @author Gabriel
+ *
+ */
+public class CombinationRegistry {
+	private static final int TABLE_BITS = 16;
+	private static final int TABLE_SIZE = 1 << TABLE_BITS; // over 3 slots per combination
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private static final int NUM_RANKS = 13;
+	private static final int NUM_SUITS = 4;
+
+	/**
+	 * The mask of the combination in each slot, 0 if the slot is empty.
+	 */
+	private static final long[] keys = new long[TABLE_SIZE];
+	/**
+	 * The combination in each slot.
+	 */
+	private static final Combination[] combinations = new Combination[TABLE_SIZE];
+	private static int size = 0;
+
+	static {
+		// Singles
+		for (int n = 0; n < Card.DECK_SIZE; n++)
+			register(1L << n);
+
+		// Doubles and triples: 2 or 3 of the suits of a rank
+		for (int rank = 0; rank < NUM_RANKS; rank++)
+			for (int suits = 0; suits < 1 << NUM_SUITS; suits++)
+				if (Integer.bitCount(suits) == Combination.DOUBLE || Integer.bitCount(suits) == Combination.TRIPLE)
+					register((long) suits << (rank * NUM_SUITS));
+
+		// Straights and straight flushes: any suit for each of 5 consecutive ranks
+		for (int low = 0; low + 4 < NUM_RANKS; low++)
+			for (int suits = 0; suits < 1 << 10; suits++){ // 2 bits of suit per rank
+				long mask = 0L;
+				for (int i = 0; i < 5; i++)
+					mask |= 1L << ((low + i) * NUM_SUITS + (suits >>> (2 * i) & 3));
+				register(mask);
+			}
+
+		// Flushes: any 5 ranks of a suit. Straight flushes are already registered
+		for (int ranks = 0; ranks < 1 << NUM_RANKS; ranks++){
+			if (Integer.bitCount(ranks) != Combination.POKER_HAND)
+				continue;
+			long mask = 0L;
+			for (int rank = 0; rank < NUM_RANKS; rank++)
+				if ((ranks & 1 << rank) != 0)
+					mask |= 1L << (rank * NUM_SUITS);
+			for (int suit = 0; suit < NUM_SUITS; suit++)
+				register(mask << suit);
+		}
+
+		// Full houses and four of a kinds: 3 or 4 cards of one rank and the rest from another
+		for (int rank = 0; rank < NUM_RANKS; rank++)
+			for (int other = 0; other < NUM_RANKS; other++){
+				if (other == rank)
+					continue;
+				for (int suits = 0; suits < 1 << NUM_SUITS; suits++){
+					if (Integer.bitCount(suits) < Combination.TRIPLE)
+						continue;
+					for (int otherSuits = 0; otherSuits < 1 << NUM_SUITS; otherSuits++)
+						if (Integer.bitCount(suits) + Integer.bitCount(otherSuits) == Combination.POKER_HAND)
+							register((long) suits << (rank * NUM_SUITS) | (long) otherSuits << (other * NUM_SUITS));
+				}
+			}
+	}
+
+	private CombinationRegistry(){}
+
+	/**
+	 * Returns the slot a mask is looked up from.
+	 */
+	private static int slot(long mask){
+		return (int) ((mask * HASH_MULTIPLIER) >>> (64 - TABLE_BITS));
+	}
+
+	/**
+	 * Creates and adds the combination of a mask, unless it was already added.
+	 * @param mask the cards, a valid combination
+	 */
+	private static void register(long mask){
+		int i = slot(mask);
+		while (keys[i] != 0){
+			if (keys[i] == mask)
+				return;
+			i = (i + 1) & (TABLE_SIZE - 1);
+		}
+		int result = CombinationClassifier.classify(mask);
+		if (result == CombinationClassifier.INVALID)
+			throw new IllegalStateException("Not a combination: " + Long.toHexString(mask));
+
+		Card[] cards = new Card[Long.bitCount(mask)];
+		int k = 0;
+		for (long bits = mask; bits != 0; bits &= bits - 1)
+			cards[k++] = Card.of(Long.numberOfTrailingZeros(bits));
+		keys[i] = mask;
+		combinations[i] = Combination.create(cards, result);
+		size++;
+	}
+
+	/**
+	 * Returns the combination made by the cards in a mask.
+	 * @param mask the cards, bit n is set if the card of the first deck with ordinal number n is included
+	 * @return the shared combination, the pass combination if the mask is empty, null if the cards do
+	 * not form a combination
+	 */
+	public static Combination get(long mask){
+		if (mask == 0)
+			return Combination.getPassCombination();
+		for (int i = slot(mask); ; i = (i + 1) & (TABLE_SIZE - 1)){
+			long key = keys[i];
+			if (key == mask)
+				return combinations[i];
+			if (key == 0)
+				return null;
+		}
+	}
+
+	/**
+	 * Returns the number of combinations that can be made with one deck, not counting the pass.
+	 * @return the number of combinations
+	 */
+	public static int size(){
+		return size;
+	}
+}
@@ -1,5 +1,7 @@
 package game;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Used when a class should be able to return a combination (simulate a player's turn)
  * @author Gabriel
@@ -12,4 +14,16 @@ public interface CombinationReturner {
 	 * @return the combination of cards played by the player
 	 */
 	public Combination doTurn (GameState state);
+
+	/**
+	 * Asks the player for one turn without waiting for it. The future is completed with the
+	 * combination played once the player has decided, on whichever thread they decide on. Players
+	 * that decide at once, like the CPU, use this default, which does the turn and returns it
+	 * completed.
+	 * @param state the current state of the game
+	 * @return the future combination of cards played by the player
+	 */
+	public default CompletableFuture<Combination> requestTurn (GameState state){
+		return CompletableFuture.completedFuture(doTurn(state));
+	}
 }
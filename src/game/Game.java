@@ -1,31 +1,133 @@
 package game;
 
 import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import network.NetworkPlayer;
 
 import deck.Card;
-import deck.Deck;
+import deck.CardSet;
+import deck.DealSource;
+import deck.Dealer;
 import deck.Rank;
 import deck.Suit;
 
 /**
  * Contains the logic for the gameplay. This class is responsible for asking players for their input,
  *  and notifying all players that the state of the game has changed.
+ * <p>
+ * The game is played in steps on a scheduler. A step plays turns until the game pauses so the players
+ * can see the cards played, or until a player has not played yet (see
+ * CombinationReturner.requestTurn(GameState)). The next step is scheduled after the pause or when the
+ * player's turn completes, so no thread is held while a table waits.
  * @author Gabriel
  *
  */
 public class Game implements Runnable{
 	private ArrayList<GameStateChangeListener> gameStateChangeListeners;
 	private GameState state;
-	private final Card THREE_OF_DIAMONDS = new Card(Rank.THREE, Suit.DIAMONDS);
+	private long dealSeed; // seed used to shuffle the cards of the current game
+	private boolean seeded; // whether the current game was dealt from dealSeed, not from the deal source
+	private final int numDecks; // number of decks the cards are dealt from
+	private final Dealer dealer;
+	private final CardSet[] hands; // reused for every deal
+	private DealSource dealSource = null; // where deals come from instead of shuffling, if set
+	private final MoveLog moveLog = new MoveLog(); // the moves of the current game
+	private boolean turbo = false; // whether the game is played without pauses or notifications
+	private ScheduledExecutorService scheduler = SCHEDULER; // runs the steps of the game
+	private long pace = DEFAULT_PACE; // length of the pauses in milliseconds
 
+	// Progress of the game loop between steps
+	private int consecutivePasses = 0; // number of consecutive passes
+	private int lastPlayerPlaying = 0; // index of last player to play a card
+	private boolean turnPaused = false; // the pause before the current player's turn is over
+	private boolean trickOver = false; // the trick ends after the pause
+	private boolean playerFinished = false; // the turn passes on from a player who finished after the pause
+	private CompletableFuture<Combination> turn = null; // the turn of the current player, while it is awaited
+	private long turnRequested; // System.nanoTime() when the current player was asked for their turn
+
+	/**
+	 * How a step of the game ended.
+	 */
+	private enum Step {
+		PAUSED, // for the players to see the cards played
+		WAITING, // for the current player's turn
+		OVER // the game is over
+	}
+
+	private static final Card THREE_OF_DIAMONDS = Card.of(Rank.THREE, Suit.DIAMONDS);
+
+	/**
+	 * The scheduler games are played on unless another is set, shared by all tables.
+	 */
+	private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(
+			Runtime.getRuntime().availableProcessors(), new ThreadFactory(){
+		public Thread newThread(Runnable r){
+			Thread thread = new Thread(r, "Game loop");
+			thread.setDaemon(true); // do not keep the program alive for an unfinished game
+			return thread;
+		}
+	});
+
+	/**
+	 * Number of players in a standard game.
+	 */
+	public static final int DEFAULT_NUM_PLAYERS = 4;
+	/**
+	 * Number of decks in a standard game.
+	 */
+	public static final int DEFAULT_NUM_DECKS = 1;
 	/**
-	 * Initializes a new game with the given players.
+	 * Length of the pauses in a standard game, in milliseconds.
+	 */
+	public static final long DEFAULT_PACE = 1000;
+
+	/**
+	 * Initializes a new game with the given players, played with one deck.
 	 * @param players the players in the new game
 	 */
 	public Game(AbstractPlayer[] players){
+		this(players, DEFAULT_NUM_DECKS);
+	}
+
+	/**
+	 * Initializes a new game with the given players, played with a number of decks. Larger tables
+	 * can use more than one deck so that every player is dealt enough cards.
+	 * @param players the players in the new game
+	 * @param numDecks the number of decks the cards are dealt from
+	 * @throws IllegalArgumentException if there are fewer than 2 players or numDecks is not in the range [1, Card.MAX_DECKS]
+	 */
+	public Game(AbstractPlayer[] players, int numDecks) throws IllegalArgumentException{
+		this(players, numDecks, RuleSet.STANDARD);
+	}
+
+	/**
+	 * Initializes a new game with the given players, played with a number of decks and a variant of
+	 * the rules. Each game has its own rules, so tables with different rules can be played at once.
+	 * @param players the players in the new game
+	 * @param numDecks the number of decks the cards are dealt from
+	 * @param ruleSet the rules the game is played with
+	 * @throws IllegalArgumentException if there are fewer than 2 players or numDecks is not in the range [1, Card.MAX_DECKS]
+	 */
+	public Game(AbstractPlayer[] players, int numDecks, RuleSet ruleSet) throws IllegalArgumentException{
+		if (players.length < 2)
+			throw new IllegalArgumentException("A game needs at least 2 players");
+		if (numDecks < 1 || numDecks > Card.MAX_DECKS)
+			throw new IllegalArgumentException("Number of decks not in the range [1," + Card.MAX_DECKS + "]");
+		this.numDecks = numDecks;
+		dealer = new Dealer(numDecks);
 		state = new GameState(players);
+		state.setRuleSet(ruleSet);
+		hands = new CardSet[players.length];
+		for (int i = 0; i < hands.length; i++)
+			hands[i] = new CardSet();
 		gameStateChangeListeners = new ArrayList<GameStateChangeListener>();
 		newGame();
 	}
@@ -50,22 +152,84 @@ public class Game implements Runnable{
 	 * @return the new game
 	 */
 	public static Game createSinglePlayerGame(){
+		return createSinglePlayerGame(DEFAULT_NUM_PLAYERS, DEFAULT_NUM_DECKS);
+	}
+
+	/**
+	 * Creates a new single player game against CPU players.
+	 * @param numPlayers the number of players, including the local player
+	 * @param numDecks the number of decks the cards are dealt from
+	 * @return the new game
+	 */
+	public static Game createSinglePlayerGame(int numPlayers, int numDecks){
 		// Create players for a single player game
-		AbstractPlayer[] players = new AbstractPlayer[4];
+		AbstractPlayer[] players = new AbstractPlayer[numPlayers];
 		players[0] = new LocalPlayer();
 		players[0].setName("Player");
 		for (int i = 1; i < players.length; i++)
 			players[i] = new CPUPlayer();
 
-		return new Game(players);
+		return new Game(players, numDecks);
 	}
 
 	/**
-	 * Resets the game state to simulate a new game.
+	 * Resets the game state to simulate a new game with a random deal, or with the next deal of the
+	 * deal source if one is set.
+	 * @throws java.util.NoSuchElementException if the deal source has no deals left
 	 */
 	public void newGame(){
+		if (dealSource != null){
+			dealSource.nextDeal(hands);
+			seeded = false;
+			startGame();
+		}
+		else
+			newGame(ThreadLocalRandom.current().nextLong());
+	}
+
+	/**
+	 * Resets the game state to simulate a new game. The cards are shuffled with the given seed, so
+	 * calling this again with the same seed deals the same hands.
+	 * @param seed the seed used to shuffle the cards
+	 */
+	public void newGame(long seed){
+		dealSeed = seed;
+		seeded = true;
+		dealer.deal(hands, new SplittableRandom(seed));
+		startGame();
+	}
+
+	/**
+	 * Sets where newGame() takes its deals from, for example a DealCorpus so that the same deals
+	 * are played every run.
+	 * @param dealSource the source of the deals, null to shuffle the cards for every game
+	 * @throws IllegalArgumentException if the deals are not for the number of players or decks in this game
+	 */
+	public void setDealSource(DealSource dealSource) throws IllegalArgumentException{
+		if (dealSource != null && dealSource.getNumSeats() != state.getNumPlayers())
+			throw new IllegalArgumentException("Deals are for " + dealSource.getNumSeats()
+					+ " seats, the game has " + state.getNumPlayers() + " players");
+		if (dealSource != null && dealSource.getNumDecks() != numDecks)
+			throw new IllegalArgumentException("Deals are made from " + dealSource.getNumDecks()
+					+ " decks, the game has " + numDecks);
+		this.dealSource = dealSource;
+	}
+
+	/**
+	 * Returns where newGame() takes its deals from.
+	 * @return the source of the deals, null if the cards are shuffled for every game
+	 */
+	public DealSource getDealSource(){
+		return dealSource;
+	}
+
+	/**
+	 * Resets the game state and gives the players the hands that were just dealt.
+	 */
+	private void startGame(){
 		// Allow first player to play anything
-		state.setPreviousPlay(Combination.getPassCombination());
+		state.setPreviousMove(Move.PASS);
+		moveLog.clear();
 
 		// Reset the passed state of all players
 		for (int i = 0; i < state.getNumPlayers(); i++)
@@ -76,14 +240,17 @@ public class Game implements Runnable{
 			p.clear();
 		}
 
-		deal(state); // Deal all players new cards
+		// Deal all players new cards. The sets give the players sorted hands
+		for (int i = 0; i < hands.length; i++)
+			state.getPlayer(i).setHand(hands[i]);
 
 		// Make player with three of diamonds play first
-		int index = search(new Card(Rank.THREE, Suit.DIAMONDS));
+		int index = search(THREE_OF_DIAMONDS);
 		if (index != -1)
 			state.setCurrentPlayerIndex(index);
 
-		notifyGameStateChangeListeners(); // Notify listeners of the new game
+		if (!turbo)
+			notifyGameStateChangeListeners(); // Notify listeners of the new game
 	}
 
 	/**
@@ -94,30 +261,108 @@ public class Game implements Runnable{
 	private int search(Card card){
 		// Check all players for card
 		for (int i = 0; i < state.getPlayers().length; i++){
-			if (state.getPlayer(i).search(card) != -1)
+			if (state.getPlayer(i).contains(card))
 				return i; // Return index of player if it is in their hand
 		}
 		return -1; // Otherwise return -1
 	}
 	
 	/**
-	 * Deals a full deck of cards
-	 * @param state the GameState containing all the players
-	 */
-	private void deal(GameState state){
-		// Create a new deck with shuffled cards
-		Deck deck = new Deck(false);
-		deck.addFullDeck();
-		deck.shuffle();
-		
-		// Deal the cards to players
-		for (int i = 0; i < 52; i++){
-			state.getPlayer(i % state.getPlayers().length).add(deck.deal());
-		}
-		
-		// Sort the players' hands
-		for (AbstractPlayer p : state.getPlayers())
-			p.sort();
+	 * Returns whether the current game was dealt by shuffling with a seed, rather than taken from the
+	 * deal source.
+	 * @return if getDealSeed() gives the seed of the current deal
+	 */
+	public boolean hasDealSeed(){
+		return seeded;
+	}
+
+	/**
+	 * Returns the seed that the cards of the current game were shuffled with.
+	 * Passing it to newGame(long) reproduces the deal.
+	 * @return the seed of the current deal
+	 * @throws IllegalStateException if the current game was dealt by the deal source, see hasDealSeed()
+	 */
+	public long getDealSeed() throws IllegalStateException{
+		if (!seeded)
+			throw new IllegalStateException("The current deal came from the deal source, not from a seed");
+		return dealSeed;
+	}
+
+	/**
+	 * Returns the number of decks the cards are dealt from.
+	 * @return the number of decks
+	 */
+	public int getNumDecks(){
+		return numDecks;
+	}
+
+	/**
+	 * Returns the rules the game is played with.
+	 * @return the rule set
+	 */
+	public RuleSet getRuleSet(){
+		return state.getRuleSet();
+	}
+
+	/**
+	 * Sets whether the game is played in turbo mode, for simulating many games. In turbo mode the game
+	 * loop never pauses for players to see the cards played and listeners are only notified when the
+	 * game is over, so a game between CPU players takes as long as their turns do. Players that wait
+	 * for input, such as LocalPlayer, still take as long as their input does, though the game holds no
+	 * thread while it waits (see CombinationReturner.requestTurn(GameState)).
+	 * @param turbo whether to play in turbo mode
+	 */
+	public void setTurbo(boolean turbo){
+		this.turbo = turbo;
+	}
+
+	/**
+	 * Returns whether the game is played in turbo mode.
+	 * @return if the game is played in turbo mode
+	 * @see #setTurbo(boolean)
+	 */
+	public boolean isTurbo(){
+		return turbo;
+	}
+
+	/**
+	 * Sets the length of the pauses that let players see the cards played: before each CPU turn, after
+	 * a trick and after a player finishes. A shorter pace fast-forwards the game and 0 plays it
+	 * without pauses, while still notifying the listeners.
+	 * @param pace the length of the pauses in milliseconds, 0 for none
+	 * @throws IllegalArgumentException if pace is negative
+	 */
+	public void setPace(long pace) throws IllegalArgumentException{
+		if (pace < 0)
+			throw new IllegalArgumentException("The pace cannot be negative");
+		this.pace = pace;
+	}
+
+	/**
+	 * Returns the length of the pauses that let players see the cards played.
+	 * @return the length of the pauses in milliseconds
+	 */
+	public long getPace(){
+		return pace;
+	}
+
+	/**
+	 * Sets the scheduler the steps of the game are played on. By default all games share a scheduler
+	 * with a thread per processor. Players that wait for input, such as LocalPlayer, hold no thread of
+	 * the scheduler while they wait: the next step is scheduled when their turn completes.
+	 * @param scheduler the scheduler
+	 */
+	public void setScheduler(ScheduledExecutorService scheduler){
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Returns the moves of the current game, including the passes. The log is cleared when a new
+	 * game starts.
+	 * @return the move log
+	 */
+	public MoveLog getMoveLog(){
+		return moveLog;
 	}
 
 	/**
@@ -148,86 +393,190 @@ public class Game implements Runnable{
 	}
 
 	/**
-	 * Start playing the game. To access this method, use run().
+	 * Notifies the listeners of a change during play, unless the game is in turbo mode.
+	 */
+	private void showGameState(){
+		if (!turbo)
+			notifyGameStateChangeListeners();
+	}
+
+	/**
+	 * Returns whether the game pauses so players can see the cards played, which turbo mode and a
+	 * pace of 0 skip.
+	 */
+	private boolean pauses(){
+		return !turbo && pace > 0;
+	}
+
+	/**
+	 * Starts playing the game on its scheduler and returns without waiting for it to finish.
+	 * @return a future completed with the game state when the game is over, or with the exception
+	 * that stopped the game
+	 */
+	public CompletableFuture<GameState> start(){
+		consecutivePasses = 0;
+		lastPlayerPlaying = 0;
+		turnPaused = false;
+		trickOver = false;
+		playerFinished = false;
+		turn = null;
+		CompletableFuture<GameState> finished = new CompletableFuture<GameState>();
+		scheduler.execute(() -> step(finished));
+		return finished;
+	}
+
+	/**
+	 * Plays a step of the game and schedules the next one after the pause that ends it, or when the
+	 * current player's turn completes.
+	 * @param finished the future to complete when the game is over
+	 */
+	private void step(CompletableFuture<GameState> finished){
+		try {
+			switch (playUntilPause()){
+			case OVER:
+				finished.complete(state);
+				break;
+			case PAUSED:
+				scheduler.schedule(() -> step(finished), pace, TimeUnit.MILLISECONDS);
+				break;
+			case WAITING:
+				turn.whenCompleteAsync((play, e) -> step(finished), scheduler);
+				break;
+			}
+		} catch (Throwable e) {
+			finished.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Plays the game until it pauses so players can see the cards played, until a player's turn is
+	 * not complete or until it is over.
+	 * @return how the step ended
 	 */
-	private void runGameLoop(){
-		int consecutivePasses = 0; // number of consecutive passes
-		int lastPlayerPlaying = 0; // index of last player to play a card
+	private Step playUntilPause(){
+		// Finish what was waiting for the pause or the turn
+		if (trickOver){
+			trickOver = false;
+			endTrick();
+		} else if (playerFinished){
+			playerFinished = false;
+			passTurnFromFinishedPlayer();
+		} else if (turn != null){
+			Combination play = turn.join(); // completed, throws what the player failed with
+			turn = null;
+			if (finishTurn(play, System.nanoTime() - turnRequested))
+				return Step.PAUSED;
+		}
 
 		while (true){
 			// Check if all players are done their cards
 			if (state.isGameOver()){
 				notifyGameStateChangeListeners();
-				break;
+				return Step.OVER;
 			}
 			
-			if (! (state.getCurrentPlayer().isDone() || state.getPassed(state.getCurrentPlayerIndex())))
-				notifyGameStateChangeListeners();
-
-			Combination play; // The cards that the player is playing
 			// If a player is done, they will always pass
 			// You must pass if you have already passed that round
-			if (state.getCurrentPlayer().isDone() || state.getPassed(state.getCurrentPlayerIndex()))
-				play = Combination.getPassCombination();
-			else{
-				// Ask for player to give a card if they are not done
-				// Get combination from player
-
-				// If it is the first play, force 3 of diamonds
-				if (state.getCurrentPlayer().search(THREE_OF_DIAMONDS) != -1)
-					state.setForcedCard(THREE_OF_DIAMONDS);
-				else
-					state.setForcedCard(null);
-				
-				// Sleep thread for 1 seconds so player can view cards played
-				if (state.getCurrentPlayer() instanceof CPUPlayer){
-					try {
-						Thread.sleep(1000);
-					} catch (InterruptedException e) {}
-				}
-				// Ask for combination and remove combination
-				play = state.getCurrentPlayer().doTurn(state);
-				state.getCurrentPlayer().removeCombination(play);
+			if (state.getCurrentPlayer().isDone() || state.getPassed(state.getCurrentPlayerIndex())){
+				if (finishTurn(Combination.getPassCombination(), 0))
+					return Step.PAUSED;
+				continue;
+			}
+
+			if (!turnPaused)
+				showGameState();
+
+			// Ask for player to give a card if they are not done
+			// If it is the first play, force 3 of diamonds
+			if (state.getCurrentPlayer().contains(THREE_OF_DIAMONDS))
+				state.setForcedCard(THREE_OF_DIAMONDS);
+			else
+				state.setForcedCard(null);
+
+			// Pause so player can view cards played
+			if (state.getCurrentPlayer() instanceof CPUPlayer && !turnPaused && pauses()){
+				turnPaused = true;
+				return Step.PAUSED;
+			}
+			turnPaused = false;
+
+			// Ask for combination, and wait for it without holding the thread if it is not ready
+			turnRequested = System.nanoTime();
+			CompletableFuture<Combination> request = state.getCurrentPlayer().requestTurn(state);
+			if (!request.isDone()){
+				turn = request;
+				return Step.WAITING;
 			}
+			if (finishTurn(request.join(), System.nanoTime() - turnRequested))
+				return Step.PAUSED;
+		}
+	}
+
+	/**
+	 * Plays the combination of the current player's turn and gives the turn to the next player.
+	 * @param play the combination played, a pass if the player passed or is done
+	 * @param latency the time the player took, in nanoseconds
+	 * @return whether the game pauses before going on
+	 */
+	private boolean finishTurn(Combination play, long latency){
+		state.getCurrentPlayer().removeCombination(play);
+		long move = Move.of(play, state.getRuleSet());
+		moveLog.add(state.getCurrentPlayerIndex(), move, latency);
+
+		if (move == Move.PASS){ // player passed or is done
+			consecutivePasses++; // increment number of consecutive passes
+			state.setPassed(true, state.getCurrentPlayerIndex());
 
-			if (play.getLength() == Combination.PASS){ // player passed or is done
-				consecutivePasses++; // increment number of consecutive passes
-				state.setPassed(true, state.getCurrentPlayerIndex());
-
-				// If all except 1 passed
-				if (consecutivePasses == state.getNumPlayers() - 1){
-					notifyGameStateChangeListeners();
-					try {
-						Thread.sleep(1000);
-					} catch (InterruptedException e) {}
-					// Allow last player that played to play anything
-					state.setPreviousPlay(Combination.getPassCombination());
-					consecutivePasses = 0;
-					state.setCurrentPlayerIndex(lastPlayerPlaying);
-					state.resetPlayersPassed();
-				} else {
-					state.incrementCurrentPlayer();
+			// If all except 1 passed
+			if (consecutivePasses == state.getNumPlayers() - 1){
+				showGameState();
+				if (pauses()){
+					trickOver = true;
+					return true;
 				}
-			} else { // a combination was played
-				consecutivePasses = 0;
-				state.setPreviousPlay(play);
-				// Player just finished (Allow next player to play anything)
-				if (state.getCurrentPlayer().isDone()){
-					notifyGameStateChangeListeners();
-					try {
-						Thread.sleep(1000);
-					} catch (InterruptedException e) {}
-					state.incrementCurrentPlayer();
-					state.setPreviousPlay(Combination.getPassCombination());
-					state.resetPlayersPassed();
-				} else {
-					lastPlayerPlaying = state.getCurrentPlayerIndex();
-					state.incrementCurrentPlayer(); // give turn to next player
+				endTrick();
+			} else {
+				state.incrementCurrentPlayer();
+			}
+		} else { // a combination was played
+			consecutivePasses = 0;
+			state.setPreviousMove(move);
+			// Player just finished (Allow next player to play anything)
+			if (state.getCurrentPlayer().isDone()){
+				showGameState();
+				if (pauses()){
+					playerFinished = true;
+					return true;
 				}
+				passTurnFromFinishedPlayer();
+			} else {
+				lastPlayerPlaying = state.getCurrentPlayerIndex();
+				state.incrementCurrentPlayer(); // give turn to next player
 			}
 		}
+		return false;
 	}
-	
+
+	/**
+	 * Ends a trick that all players but one passed on.
+	 */
+	private void endTrick(){
+		// Allow last player that played to play anything
+		state.setPreviousMove(Move.PASS);
+		consecutivePasses = 0;
+		state.setCurrentPlayerIndex(lastPlayerPlaying);
+		state.resetPlayersPassed();
+	}
+
+	/**
+	 * Gives the turn to the next player after a player played their last cards.
+	 */
+	private void passTurnFromFinishedPlayer(){
+		state.incrementCurrentPlayer();
+		state.setPreviousMove(Move.PASS);
+		state.resetPlayersPassed();
+	}
+
 	/**
 	 * Get the game state.
 	 * @return the game state
@@ -237,11 +586,20 @@ public class Game implements Runnable{
 	}
 	
 	/**
-	 * This invokes runGameLoop() which starts the game. This method should be accessed in a new Thread,
-	 *  not the event dispatch thread. This method will lock up the thread until the game is over.
+	 * Plays the game and waits until it is over. The game is played on its scheduler, see start(), so
+	 * this method should not be called on the event dispatch thread.
 	 */
 	@Override
 	public void run() {
-		runGameLoop();
+		try {
+			start().join();
+		} catch (CompletionException e) {
+			// Rethrow what stopped the game, as if it had been played on this thread
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
 	}
 }
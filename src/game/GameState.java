@@ -4,6 +4,8 @@ import java.io.Serializable;
 import java.util.Arrays;
 
 import deck.Card;
+import deck.CardSet;
+import deck.SuitCanonicalizer;
 
 /**
  * A representation of the state of a game. This class contains all relevant information for
@@ -13,12 +15,13 @@ import deck.Card;
  */
 public class GameState implements Serializable {
 	private AbstractPlayer[] players = null;
-	private Combination previousPlay = Combination.getPassCombination();
+	private long previousMove = Move.PASS; // packed under ruleSet
 	private int currentPlayer = 0;
 	private boolean[] playersPassed = null;
 	private int lastPlayerPlayed = 0;
 	private Card forcedCard = null;
 	private int[] winOrder = null;
+	private RuleSet ruleSet = RuleSet.STANDARD;
 
 	/**
 	 * Create a new game state with the given players.
@@ -78,15 +81,53 @@ public class GameState implements Serializable {
 	 * @return the last combination played
 	 */
 	public Combination getPreviousPlay() {
-		return previousPlay;
+		return Move.toCombination(previousMove);
 	}
 
 	/**
 	 * Sets the last combination played.
 	 * @param previousPlay the last combination played
+	 * @throws IllegalArgumentException if the rules of the game do not allow the combination
 	 */
-	protected void setPreviousPlay(Combination previousPlay) {
-		this.previousPlay = previousPlay;
+	protected void setPreviousPlay(Combination previousPlay) throws IllegalArgumentException {
+		setPreviousMove(Move.of(previousPlay, ruleSet));
+	}
+
+	/**
+	 * Returns the last combination played as a move, with its value under the rules of the game.
+	 * @return the last move played, Move.PASS if a new trick is starting
+	 */
+	public long getPreviousMove() {
+		return previousMove;
+	}
+
+	/**
+	 * Sets the last combination played as a move.
+	 * @param previousMove the last move played, packed with the rules of the game
+	 * @throws IllegalArgumentException if previousMove is Move.NONE
+	 */
+	protected void setPreviousMove(long previousMove) throws IllegalArgumentException {
+		if (previousMove == Move.NONE)
+			throw new IllegalArgumentException("The previous play is not allowed under the " + ruleSet + " rules");
+		this.previousMove = previousMove;
+	}
+
+	/**
+	 * Returns the rules the game is played with.
+	 * @return the rule set
+	 */
+	public RuleSet getRuleSet() {
+		return ruleSet;
+	}
+
+	/**
+	 * Sets the rules the game is played with.
+	 * @param ruleSet the rule set
+	 */
+	protected void setRuleSet(RuleSet ruleSet) {
+		Combination previousPlay = getPreviousPlay();
+		this.ruleSet = ruleSet;
+		setPreviousPlay(previousPlay); // value it under the new rules
 	}
 
 	/**
@@ -109,7 +150,7 @@ public class GameState implements Serializable {
 	 * Increments the index of the current player.
 	 */
 	protected void incrementCurrentPlayer() {
-		currentPlayer = (currentPlayer + 1) % 4;
+		currentPlayer = (currentPlayer + 1) % players.length;
 	}
 
 	/**
@@ -240,6 +281,27 @@ public class GameState implements Serializable {
 		return winOrder;
 	}
 	
+	/**
+	 * Returns the canonical form of the cards in this state under relabelling of the suits (see
+	 * SuitCanonicalizer). The live cards are the players' hands and the previous play. Hands 0 to
+	 * getNumPlayers() - 1 of the result are the players' hands and the last one is the previous play.
+	 * Only cards of the first deck are considered. Relabellings keep the suit order of the rule set, and
+	 * the order of all the live suits when flushes are ranked by suit.
+	 * @return the canonical form of the cards in this state
+	 */
+	public SuitCanonicalizer.Canonical canonicalize() {
+		long[] masks = new long[players.length + 1];
+		long live = 0L;
+		for (int i = 0; i < players.length; i++) {
+			masks[i] = players[i].getCardSet().toLong();
+			live |= masks[i];
+		}
+		masks[players.length] = Move.mask(previousMove);
+		live |= masks[players.length];
+		return SuitCanonicalizer.canonicalize(ruleSet.getSuitOrder(), ruleSet.getFlushOrder() == RuleSet.FlushOrder.SUIT,
+				live, masks);
+	}
+
 	public String toString() {
 		String playersString = "";
 		for (AbstractPlayer p : players) {
@@ -252,7 +314,7 @@ public class GameState implements Serializable {
 		return String
 				.format("{Players: %s, Previous play: %s, "
 						+ "Current player: %s, Players passed: %s, Last player played: %s}%n",
-						playersString, previousPlay, currentPlayer,
+						playersString, Move.toString(previousMove), currentPlayer,
 						playersPassedString, lastPlayerPlayed);
 	}
 }
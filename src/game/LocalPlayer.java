@@ -1,5 +1,7 @@
 package game;
 
+import java.util.concurrent.CompletableFuture;
+
 import deck.Card;
 
 /**
@@ -8,75 +10,85 @@ import deck.Card;
  *
  */
 public class LocalPlayer extends AbstractPlayer implements CardSelectionReceiver{
-	private Combination selectedCombination;
-	private GameState state = null;
-	private Thread gameLoopThread;
+	private volatile GameState state = null;
+	private CompletableFuture<Combination> turn = null; // the turn waiting for input
 
 	@Override
 	/**
-	 * Wait for user input and return the selected combination. This will lock up the thread.
+	 * Wait for user input and return the selected combination. This will lock up the thread, the game
+	 * uses requestTurn(GameState) instead.
 	 */
 	public Combination doTurn(GameState state) {
+		return requestTurn(state).join();
+	}
+
+	@Override
+	/**
+	 * Ask for the user's input. The future is completed when they select a valid combination.
+	 */
+	public synchronized CompletableFuture<Combination> requestTurn(GameState state) {
 		this.state = state;
-		gameLoopThread = Thread.currentThread();
+		turn = new CompletableFuture<Combination>();
+		return turn;
+	}
 
-		try {
-			Thread.sleep(Long.MAX_VALUE); // wait until interrupted
-		} catch (InterruptedException e) {} // continue
+	/**
+	 * Ends the turn waiting for input with a combination. Does nothing if no turn is waiting.
+	 * @param c the combination played
+	 */
+	protected void finishTurn(Combination c) {
+		CompletableFuture<Combination> finished = endTurn();
+		if (finished != null)
+			finished.complete(c);
+	}
 
-		Combination c = selectedCombination; // temp storage
-		selectedCombination = null; // reset selected combination
-		this.state = null;
-		return c;
+	/**
+	 * Ends the turn waiting for input with an error, for when the input can never come. Does nothing if
+	 * no turn is waiting.
+	 * @param e the reason the turn failed
+	 */
+	protected void failTurn(Throwable e) {
+		CompletableFuture<Combination> failed = endTurn();
+		if (failed != null)
+			failed.completeExceptionally(e);
+	}
+
+	/**
+	 * Stops waiting for input.
+	 * @return the turn that was waiting, null if there was none
+	 */
+	private synchronized CompletableFuture<Combination> endTurn() {
+		CompletableFuture<Combination> ended = turn;
+		turn = null;
+		state = null;
+		return ended;
 	}
 
 	/**
 	 * Receives input and checks if it is valid in the game state.
 	 */
 	public void receiveInput(Combination combination) throws InvalidCombinationException{
+		GameState state = this.state;
 		if (state == null)
 			return;
 		
-		// Check for same length
-		if (combination.getLength() != state.getPreviousPlay().getLength() && state.getPreviousPlay().getLength() != Combination.PASS)
-			throw new InvalidCombinationException("You must play the same number of cards as the cards on the table."); // not the same type
-		
-		// Check if it has the forced card
-		if (state.getForcedCard() != null){
-			boolean hasCard = false;
-			for (Card c : combination.getCards()){
-				if (state.getForcedCard().equals(c)){
-					hasCard = true;
-					break;
-				}
-			}
-			if (! hasCard)
-				throw new InvalidCombinationException("You must have a " + state.getForcedCard().toString() + 
-						" in your combination.");
-		}
-		
-		// Checks if the card is higher than the last one.
-		if (combination.getValue() < state.getPreviousPlay().getValue())
-			throw new InvalidCombinationException("The cards selected are of less value than the previously played cards.");
-		selectedCombination = combination;
-		
-		gameLoopThread.interrupt(); // interrupt the game loop thread
+		RuleEngine.checkPlay(state.getRuleSet(), state.getPreviousPlay(), state.getForcedCard(), combination);
+		finishTurn(combination);
 	}
 	
 	/**
 	 * Receives input and checks if it is valid in the game state.
 	 */
 	public void receiveInput(boolean[] selected) throws InvalidCombinationException{
+		GameState state = this.state;
 		if (state == null)
 			return;
 
 		// For a pass
 		if (selected == null){
 			// If passing on the first play in a trick
-			if (state.getPreviousPlay() == Combination.getPassCombination())
-				throw new InvalidCombinationException("You cannot pass on a new trick.");
-			selectedCombination = Combination.getPassCombination();
-			gameLoopThread.interrupt();
+			RuleEngine.checkPass(state.getPreviousPlay());
+			finishTurn(Combination.getPassCombination());
 		} else {
 			int nSelected = 0; // number of cards that are selected
 
@@ -85,12 +97,6 @@ public class LocalPlayer extends AbstractPlayer implements CardSelectionReceiver
 				if (selected[i])
 					nSelected++;
 
-			// Check for valid length
-			if (nSelected == 0)
-				throw new InvalidCombinationException("No cards were selected.");	// no cards selected, nothing happens
-			if (nSelected != state.getPreviousPlay().getLength() && state.getPreviousPlay().getLength() != Combination.PASS)
-				throw new InvalidCombinationException("You must play the same number of cards as the cards on the table."); // not the same type
-
 			Card[] cards = new Card[nSelected]; // array of selected cards
 
 			int j = 0; // index of cards
@@ -101,27 +107,8 @@ public class LocalPlayer extends AbstractPlayer implements CardSelectionReceiver
 				}
 			}
 
-			// Check for forced card
-			if (state.getForcedCard() != null){
-				boolean hasCard = false;
-				for (int i = 0; i < cards.length; i++){
-					if (state.getForcedCard().equals(cards[i])){
-						hasCard = true;
-						break;
-					}
-				}
-				if (! hasCard)
-					throw new InvalidCombinationException("You must have a " + state.getForcedCard().toString() + 
-							" in your combination.");
-			}
-
-			// Check if the selected combination is higher than the previously played one
-			Combination selectedCombination = Combination.getCombination(cards); // get combination and set it so do turn can continue
-			if (selectedCombination.getValue() < state.getPreviousPlay().getValue())
-				throw new InvalidCombinationException("The cards selected are of less value than the previously played cards.");
-
-			this.selectedCombination = selectedCombination;
-			gameLoopThread.interrupt(); // interrupt game loop thread
+			// Check the cards against the rules and get the combination so the turn can finish
+			finishTurn(RuleEngine.checkSelection(state.getRuleSet(), state.getPreviousPlay(), state.getForcedCard(), cards));
 		}
 	}
 }
@@ -0,0 +1,285 @@
+package game;
+
+import deck.Card;
+
+/**
+ * Combinations packed into a long, for the code that handles many of them: the search of the CPU
+ * player, the previous play of the game state and the move log. A move holds the kind and value of
+ * the combination and its cards, so nothing needs to be classified, sorted or allocated to compare
+ * or store it. Combinations are converted to and from moves where they enter and leave the game, see
+ * of(Combination, RuleSet) and toCombination(long).
+ * <p>
+ * The value is in bits 56 to 63 and the kind (see CombinationClassifier) in bits 52 to 55. Bits 0
+ * to 51 are the mask of the cards (see deck.CardSet.toLong()) when they are all from the first deck.
+ * Otherwise bits 40 to 51 are all set, which no mask of 5 cards or fewer is, and bits 0 to 39 hold
+ * the ids of the cards plus one, 8 bits each, in increasing order. Values are those of the rule set
+ * the move was packed with, and since the value is in the highest bits, moves compared with
+ * Long.compareUnsigned are in order of value.
+ * @author Gabriel
+ *
+ */
+public class Move {
+	/**
+	 * The pass, the move of no cards.
+	 */
+	public static final long PASS = 0L;
+	/**
+	 * Returned when the cards do not form a combination. It is not a move.
+	 */
+	public static final long NONE = -1L;
+
+	private static final int VALUE_SHIFT = 56;
+	private static final int KIND_SHIFT = 52;
+	private static final long CARDS = (1L << KIND_SHIFT) - 1;
+	private static final long IDS_FLAG = 0xFFFL << 40; // set in the cards of a move holding card ids
+	private static final int ID_BITS = 8;
+
+	private Move(){}
+
+	/**
+	 * Packs a result of classifying cards and the cards.
+	 * @param result the result, not CombinationClassifier.INVALID
+	 * @param cards the mask or ids of the cards
+	 */
+	private static long pack(int result, long cards){
+		long value = CombinationClassifier.kind(result) == CombinationClassifier.PASS ? 0 : CombinationClassifier.value(result);
+		return value << VALUE_SHIFT | (long) CombinationClassifier.kind(result) << KIND_SHIFT | cards;
+	}
+
+	/**
+	 * Returns the move of the cards of the first deck in a mask, under the standard rules.
+	 * @param mask the cards, bit n is set if the card with ordinal number n is included
+	 * @return the move, NONE if the cards do not form a combination
+	 */
+	public static long of(long mask){
+		return of(mask, RuleSet.STANDARD);
+	}
+
+	/**
+	 * Returns the move of the cards of the first deck in a mask.
+	 * @param mask the cards, bit n is set if the card with ordinal number n is included
+	 * @param rules the rules that decide the value of the move
+	 * @return the move, NONE if the cards do not form a combination allowed by the rules
+	 */
+	public static long of(long mask, RuleSet rules){
+		int result = rules.classify(mask);
+		return result == CombinationClassifier.INVALID ? NONE : pack(result, mask);
+	}
+
+	/**
+	 * Returns the move of some cards, which may come from any deck.
+	 * @param cards the cards
+	 * @param rules the rules that decide the value of the move
+	 * @return the move, NONE if the cards do not form a combination allowed by the rules
+	 */
+	public static long of(Card[] cards, RuleSet rules){
+		int result = rules.classify(cards);
+		if (result == CombinationClassifier.INVALID)
+			return NONE;
+		long mask = 0L;
+		boolean firstDeck = true;
+		for (Card c : cards){
+			firstDeck &= c.getDeckIndex() == 0;
+			mask |= 1L << c.getOrdinalNumber();
+		}
+		if (firstDeck && Long.bitCount(mask) == cards.length)
+			return pack(result, mask);
+
+		// Insert the ids in increasing order, the lowest in the lowest bits
+		long ids = 0L;
+		for (Card c : cards){
+			long id = c.getId() + 1;
+			int pos = 0;
+			while (pos < cards.length && (ids >>> (pos * ID_BITS) & 0xFF) != 0 && (ids >>> (pos * ID_BITS) & 0xFF) < id)
+				pos++;
+			long below = ids & ((1L << (pos * ID_BITS)) - 1);
+			ids = (ids & ~below) << ID_BITS | id << (pos * ID_BITS) | below;
+		}
+		return pack(result, IDS_FLAG | ids);
+	}
+
+	/**
+	 * Returns the move of a combination under the standard rules.
+	 * @param combination the combination
+	 * @return the move
+	 */
+	public static long of(Combination combination){
+		return of(combination, RuleSet.STANDARD);
+	}
+
+	/**
+	 * Returns the move of a combination.
+	 * @param combination the combination
+	 * @param rules the rules that decide the value of the move
+	 * @return the move, NONE if the rules do not allow the combination
+	 */
+	public static long of(Combination combination, RuleSet rules){
+		if (combination.getLength() == Combination.PASS)
+			return PASS;
+		if (combination.getMask() != Combination.NO_MASK)
+			return of(combination.getMask(), rules);
+		return of(combination.getCards(), rules);
+	}
+
+	/**
+	 * Returns the combination of a move. Moves of the first deck give the shared combinations of
+	 * CombinationRegistry without creating an object.
+	 * @param move the move
+	 * @return the combination
+	 * @throws IllegalArgumentException if move is NONE
+	 */
+	public static Combination toCombination(long move) throws IllegalArgumentException{
+		if (move == NONE)
+			throw new IllegalArgumentException("NONE is not a move");
+		if (!hasIds(move))
+			return CombinationRegistry.get(move & CARDS);
+		return Combination.getCombinationOrNull(getCards(move));
+	}
+
+	/**
+	 * Returns whether the cards of a move are held as ids.
+	 */
+	private static boolean hasIds(long move){
+		return (move & IDS_FLAG) == IDS_FLAG;
+	}
+
+	/**
+	 * Returns the cards of a move.
+	 * @param move the move, not NONE
+	 * @return a new array of the cards, in increasing order of id
+	 */
+	public static Card[] getCards(long move){
+		Card[] cards = new Card[length(move)];
+		if (hasIds(move)){
+			for (int i = 0; i < cards.length; i++)
+				cards[i] = Card.ofId((int) (move >>> (i * ID_BITS) & 0xFF) - 1);
+		} else {
+			int i = 0;
+			for (long bits = move & CARDS; bits != 0; bits &= bits - 1)
+				cards[i++] = Card.of(Long.numberOfTrailingZeros(bits));
+		}
+		return cards;
+	}
+
+	/**
+	 * Writes the ids of the cards of a move (see deck.Card.getId()) into an array, without creating
+	 * any objects.
+	 * @param move the move, not NONE
+	 * @param ids the array to write the ids to
+	 * @param offset the index of ids to write the first id to
+	 * @return the number of ids written, the length of the move
+	 */
+	public static int getIds(long move, int[] ids, int offset){
+		int length = length(move);
+		if (hasIds(move)){
+			for (int i = 0; i < length; i++)
+				ids[offset + i] = (int) (move >>> (i * ID_BITS) & 0xFF) - 1;
+		} else {
+			int i = offset;
+			for (long bits = move & CARDS; bits != 0; bits &= bits - 1)
+				ids[i++] = Long.numberOfTrailingZeros(bits); // the id of a card of the first deck is its ordinal number
+		}
+		return length;
+	}
+
+	/**
+	 * Returns the cards of the first deck in a move.
+	 * @param move the move, not NONE
+	 * @return the mask of the cards, bit n is set if the card of the first deck with ordinal number n
+	 * is in the move
+	 */
+	public static long mask(long move){
+		if (!hasIds(move))
+			return move & CARDS;
+		long mask = 0L;
+		for (int i = 0; i < Combination.POKER_HAND; i++){
+			int id = (int) (move >>> (i * ID_BITS) & 0xFF) - 1;
+			if (id >= 0 && id < Card.DECK_SIZE)
+				mask |= 1L << id;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns whether a move contains a card.
+	 * @param move the move, not NONE
+	 * @param card the card
+	 * @return if the card is one of the cards of the move
+	 */
+	public static boolean contains(long move, Card card){
+		if (!hasIds(move))
+			return card.getDeckIndex() == 0 && (move & 1L << card.getOrdinalNumber()) != 0;
+		for (int i = 0; i < Combination.POKER_HAND; i++)
+			if ((move >>> (i * ID_BITS) & 0xFF) == card.getId() + 1)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the kind of combination of a move.
+	 * @param move the move, not NONE
+	 * @return the kind, such as CombinationClassifier.SINGLE or CombinationClassifier.FLUSH
+	 */
+	public static int kind(long move){
+		return (int) (move >>> KIND_SHIFT) & 0xF;
+	}
+
+	/**
+	 * Returns the number of cards in a move.
+	 * @param move the move, not NONE
+	 * @return the length, such as Combination.POKER_HAND
+	 */
+	public static int length(long move){
+		return CombinationClassifier.length(kind(move));
+	}
+
+	/**
+	 * Returns the value of a move under the rules it was packed with.
+	 * @param move the move, not NONE
+	 * @return the value, -1 for the pass
+	 */
+	public static int value(long move){
+		return move == PASS ? -1 : (int) (move >>> VALUE_SHIFT);
+	}
+
+	/**
+	 * Returns whether a move is the pass.
+	 * @param move the move
+	 * @return if the move is the pass
+	 */
+	public static boolean isPass(long move){
+		return move == PASS;
+	}
+
+	/**
+	 * Returns whether a move beats the previous move, see RuleSet.beats(int, int). Anything beats a
+	 * pass. Both moves must be packed with the rules.
+	 * @param move the move played
+	 * @param previous the previous move
+	 * @param rules the rules of the game
+	 * @return if move beats previous
+	 */
+	public static boolean beats(long move, long previous, RuleSet rules){
+		if (move == PASS || move == NONE)
+			return false;
+		if (previous == PASS)
+			return true;
+		return rules.beats(result(move), result(previous));
+	}
+
+	/**
+	 * Returns the result of classifying the cards of a move (see CombinationClassifier).
+	 */
+	private static int result(long move){
+		return CombinationClassifier.result(kind(move), value(move));
+	}
+
+	/**
+	 * Returns a description of a move, that of its combination.
+	 * @param move the move
+	 * @return the description
+	 */
+	public static String toString(long move){
+		return move == NONE ? "No move" : toCombination(move).toString();
+	}
+}
@@ -0,0 +1,275 @@
+package game;
+
+import java.util.Arrays;
+
+import deck.Card;
+import deck.CardSet;
+
+/**
+ * Enumerates every combination that can be played from a hand, each exactly once. Hands and moves are
+ * masks of the first deck (see deck.CardSet.toLong()). Each kind of combination is built directly from
+ * the cards of each rank and suit instead of testing every subset of the hand, so a hand of 13 cards is
+ * done in well under a microsecond. The moves can be restricted to one length, to those beating a
+ * previous play and to those containing a card, such as the three of diamonds on the first turn.
+ * Combinations the generator's rule set does not allow are left out, and values are those of the rules.
+ * <p>
+ * A generator reuses its buffer of moves, so once it has grown, generating moves creates no objects.
+ * The moves are only valid until the next call to generate.
+ * @author Gabriel
+ *
+ */
+public class MoveGenerator {
+	private static final int NUM_RANKS = 13;
+	private static final int NUM_SUITS = 4;
+	private static final long SUIT_STRIDE = 0x0001111111111111L; // one bit for every rank of the first suit
+
+	/**
+	 * SUBSETS[size][suits] are the subsets of the 4 bit set suits with size suits.
+	 */
+	private static final int[][][] SUBSETS = new int[NUM_SUITS + 1][1 << NUM_SUITS][];
+
+	static {
+		for (int suits = 0; suits < 1 << NUM_SUITS; suits++){
+			int[] counts = new int[NUM_SUITS + 1];
+			for (int subset = suits; subset != 0; subset = (subset - 1) & suits)
+				counts[Integer.bitCount(subset)]++;
+			for (int size = 0; size <= NUM_SUITS; size++)
+				SUBSETS[size][suits] = new int[counts[size]];
+			for (int subset = suits; subset != 0; subset = (subset - 1) & suits){
+				int size = Integer.bitCount(subset);
+				SUBSETS[size][suits][--counts[size]] = subset;
+			}
+		}
+	}
+
+	private final RuleSet rules;
+	private long[] moves = new long[64];
+	private int size = 0;
+	private final int[] ranksOfSuit = new int[NUM_RANKS]; // ranks held in a suit, reused for flushes
+
+	// Restrictions of the current generation
+	private int value; // moves must have a larger value, -1 for any
+	private long required; // cards every move must contain
+
+	/**
+	 * Creates a generator under the standard rules.
+	 */
+	public MoveGenerator(){
+		this(RuleSet.STANDARD);
+	}
+
+	/**
+	 * Creates a generator.
+	 * @param rules the rules that decide which combinations are allowed and their values
+	 */
+	public MoveGenerator(RuleSet rules){
+		this.rules = rules;
+	}
+
+	/**
+	 * Returns the rules of the generator.
+	 * @return the rule set
+	 */
+	public RuleSet getRuleSet(){
+		return rules;
+	}
+
+	/**
+	 * Generates every combination in a hand, except the pass.
+	 * @param hand the mask of the hand
+	 * @return the number of moves
+	 */
+	public int generate(long hand){
+		return generate(hand, Combination.PASS, -1, 0L);
+	}
+
+	/**
+	 * Generates the combinations in a hand that can be played after a previous play, including the
+	 * bombs if the rules let them beat a shorter play.
+	 * @param hand the mask of the hand
+	 * @param previous the previous play, a pass if any combination can be played
+	 * @param forcedCard the card every move must contain, null if there is none
+	 * @return the number of moves
+	 */
+	public int generate(long hand, Combination previous, Card forcedCard){
+		long required = forcedCard == null ? 0L : CardSet.bit(forcedCard);
+		int length = previous.getLength();
+		generate(hand, length, length == Combination.PASS ? -1 : rules.value(previous), required);
+		int lowestBomb = rules.getLowestBombValue();
+		if (length != Combination.PASS && length != Combination.POKER_HAND && lowestBomb != Integer.MAX_VALUE){
+			// Keep the moves of the same length and add the poker hands that are bombs
+			value = lowestBomb - 1;
+			addPokerHands(hand);
+		}
+		return size;
+	}
+
+	/**
+	 * Generates the combinations in a hand, with some restrictions.
+	 * @param hand the mask of the hand
+	 * @param length the length of the moves, Combination.PASS for any length
+	 * @param value the value the moves must beat, -1 for any value
+	 * @param required the mask of the cards every move must contain, 0 for none
+	 * @return the number of moves
+	 */
+	public int generate(long hand, int length, int value, long required){
+		size = 0;
+		this.value = value;
+		this.required = required;
+		if ((hand & required) != required)
+			return 0;
+		boolean any = length == Combination.PASS;
+
+		if (any || length == Combination.SINGLE)
+			for (long cards = hand; cards != 0; cards &= cards - 1)
+				add(Long.lowestOneBit(cards));
+		if (any || length == Combination.DOUBLE)
+			addSameRank(hand, Combination.DOUBLE);
+		if (any || length == Combination.TRIPLE)
+			addSameRank(hand, Combination.TRIPLE);
+		if (any || length == Combination.POKER_HAND)
+			addPokerHands(hand);
+		return size;
+	}
+
+	/**
+	 * Adds the poker hands.
+	 */
+	private void addPokerHands(long hand){
+		if (Long.bitCount(hand) < Combination.POKER_HAND)
+			return;
+		addStraights(hand);
+		addFlushes(hand);
+		addFullHousesAndQuads(hand);
+	}
+
+	/**
+	 * Adds a move if the rules allow it and it meets the restrictions.
+	 */
+	private void add(long move){
+		if ((move & required) != required)
+			return;
+		int result = rules.classify(move);
+		if (result == CombinationClassifier.INVALID)
+			return;
+		if (value >= 0 && CombinationClassifier.value(result) <= value)
+			return;
+		if (size == moves.length)
+			moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	/**
+	 * Returns the suits held of a rank.
+	 */
+	private static int suits(long hand, int rank){
+		return (int) (hand >>> (rank * NUM_SUITS)) & 0xF;
+	}
+
+	/**
+	 * Adds the doubles or triples: any 2 or 3 cards of a rank.
+	 */
+	private void addSameRank(long hand, int count){
+		for (int rank = 0; rank < NUM_RANKS; rank++)
+			for (int subset : SUBSETS[count][suits(hand, rank)])
+				add((long) subset << (rank * NUM_SUITS));
+	}
+
+	/**
+	 * Adds the straights and straight flushes: one card of each of 5 consecutive ranks.
+	 */
+	private void addStraights(long hand){
+		// Bit r of any is set if the hand has a card of rank r
+		long any = (hand | hand >>> 1 | hand >>> 2 | hand >>> 3) & SUIT_STRIDE;
+		long run = any & any >>> 4 & any >>> 8 & any >>> 12 & any >>> 16; // bit of the lowest rank of each run of 5
+		for (; run != 0; run &= run - 1){
+			int shift = Long.numberOfTrailingZeros(run);
+			long r0 = hand >>> shift & 0xF, r1 = hand >>> (shift + 4) & 0xF, r2 = hand >>> (shift + 8) & 0xF,
+					r3 = hand >>> (shift + 12) & 0xF, r4 = hand >>> (shift + 16) & 0xF;
+			for (long a = r0; a != 0; a &= a - 1)
+				for (long b = r1; b != 0; b &= b - 1)
+					for (long c = r2; c != 0; c &= c - 1)
+						for (long d = r3; d != 0; d &= d - 1)
+							for (long e = r4; e != 0; e &= e - 1)
+								add((Long.lowestOneBit(a) | Long.lowestOneBit(b) << 4 | Long.lowestOneBit(c) << 8
+										| Long.lowestOneBit(d) << 12 | Long.lowestOneBit(e) << 16) << shift);
+		}
+	}
+
+	/**
+	 * Adds the flushes: any 5 cards of a suit, except the straight flushes that addStraights adds.
+	 */
+	private void addFlushes(long hand){
+		for (int suit = 0; suit < NUM_SUITS; suit++){
+			long cards = hand & SUIT_STRIDE << suit;
+			int n = 0;
+			for (; cards != 0; cards &= cards - 1)
+				ranksOfSuit[n++] = Long.numberOfTrailingZeros(cards);
+			if (n < Combination.POKER_HAND)
+				continue;
+			// Gosper's hack: every set of 5 of the n cards, as a bit set of their indices
+			for (int set = (1 << Combination.POKER_HAND) - 1; set < 1 << n;){
+				long move = 0L;
+				int ranks = 0;
+				for (int bits = set; bits != 0; bits &= bits - 1){
+					int ordinal = ranksOfSuit[Integer.numberOfTrailingZeros(bits)];
+					move |= 1L << ordinal;
+					ranks |= 1 << (ordinal / NUM_SUITS);
+				}
+				if (ranks != 0x1F << Integer.numberOfTrailingZeros(ranks)) // not consecutive
+					add(move);
+				int lowest = set & -set;
+				int ripple = set + lowest;
+				set = ripple | (((set ^ ripple) >>> 2) / lowest);
+			}
+		}
+	}
+
+	/**
+	 * Adds the full houses (3 cards of a rank and 2 of another) and the four of a kinds (4 cards of a
+	 * rank and any other card).
+	 */
+	private void addFullHousesAndQuads(long hand){
+		for (int rank = 0; rank < NUM_RANKS; rank++){
+			int suits = suits(hand, rank);
+			if (suits == 0xF){
+				long quad = 0xFL << (rank * NUM_SUITS);
+				for (long others = hand & ~quad; others != 0; others &= others - 1)
+					add(quad | Long.lowestOneBit(others));
+			}
+			for (int triple : SUBSETS[Combination.TRIPLE][suits])
+				for (int other = 0; other < NUM_RANKS; other++){
+					if (other == rank)
+						continue;
+					for (int pair : SUBSETS[Combination.DOUBLE][suits(hand, other)])
+						add((long) triple << (rank * NUM_SUITS) | (long) pair << (other * NUM_SUITS));
+				}
+		}
+	}
+
+	/**
+	 * Returns the number of moves generated by the last call to generate.
+	 * @return the number of moves
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns a move generated by the last call to generate.
+	 * @param index the index of the move
+	 * @return the mask of the move
+	 */
+	public long get(int index){
+		return moves[index];
+	}
+
+	/**
+	 * Returns the combination of a move generated by the last call to generate.
+	 * @param index the index of the move
+	 * @return the shared combination of the move
+	 */
+	public Combination getCombination(int index){
+		return CombinationRegistry.get(moves[index]);
+	}
+}
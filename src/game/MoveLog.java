@@ -0,0 +1,124 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * The moves of a game in the order they were made, with the player who made each one and how long
+ * they took. Moves are kept packed (see Move) in arrays that only grow, so logging a turn creates no
+ * objects.
+ * @author Gabriel
+ *
+ */
+public class MoveLog {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private long[] moves = new long[INITIAL_CAPACITY];
+	private int[] players = new int[INITIAL_CAPACITY];
+	private long[] latencies = new long[INITIAL_CAPACITY];
+	private int size = 0;
+
+	/**
+	 * Adds a move to the end of the log.
+	 * @param player the index of the player who made the move
+	 * @param move the move, Move.PASS if the player passed
+	 * @throws IllegalArgumentException if move is Move.NONE
+	 */
+	public void add(int player, long move) throws IllegalArgumentException{
+		add(player, move, 0);
+	}
+
+	/**
+	 * Adds a move to the end of the log, with the time the player took to make it.
+	 * @param player the index of the player who made the move
+	 * @param move the move, Move.PASS if the player passed
+	 * @param latency the time from asking the player for the move to receiving it, in nanoseconds
+	 * @throws IllegalArgumentException if move is Move.NONE or latency is negative
+	 */
+	public void add(int player, long move, long latency) throws IllegalArgumentException{
+		if (move == Move.NONE)
+			throw new IllegalArgumentException("NONE is not a move");
+		if (latency < 0)
+			throw new IllegalArgumentException("Latency cannot be negative: " + latency);
+		if (size == moves.length){
+			moves = Arrays.copyOf(moves, size * 2);
+			players = Arrays.copyOf(players, size * 2);
+			latencies = Arrays.copyOf(latencies, size * 2);
+		}
+		moves[size] = move;
+		players[size] = player;
+		latencies[size] = latency;
+		size++;
+	}
+
+	/**
+	 * Returns the number of moves in the log.
+	 * @return the number of moves
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns a move of the log.
+	 * @param index the index of the move, 0 for the first move of the game
+	 * @return the move
+	 * @throws IndexOutOfBoundsException if index is not in the range [0, size())
+	 */
+	public long getMove(int index) throws IndexOutOfBoundsException{
+		checkIndex(index);
+		return moves[index];
+	}
+
+	/**
+	 * Returns the player who made a move of the log.
+	 * @param index the index of the move
+	 * @return the index of the player
+	 * @throws IndexOutOfBoundsException if index is not in the range [0, size())
+	 */
+	public int getPlayer(int index) throws IndexOutOfBoundsException{
+		checkIndex(index);
+		return players[index];
+	}
+
+	/**
+	 * Returns the time the player took to make a move of the log, from being asked for their turn to
+	 * the turn completing. Moves the player did not choose, such as the passes of a player who is done,
+	 * took 0.
+	 * @param index the index of the move
+	 * @return the latency in nanoseconds
+	 * @throws IndexOutOfBoundsException if index is not in the range [0, size())
+	 */
+	public long getLatency(int index) throws IndexOutOfBoundsException{
+		checkIndex(index);
+		return latencies[index];
+	}
+
+	/**
+	 * Returns the combination of a move of the log.
+	 * @param index the index of the move
+	 * @return the combination
+	 * @throws IndexOutOfBoundsException if index is not in the range [0, size())
+	 */
+	public Combination getCombination(int index) throws IndexOutOfBoundsException{
+		return Move.toCombination(getMove(index));
+	}
+
+	private void checkIndex(int index) throws IndexOutOfBoundsException{
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	/**
+	 * Removes all moves, for a new game.
+	 */
+	public void clear(){
+		size = 0;
+	}
+
+	public String toString(){
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < size; i++)
+			builder.append(players[i]).append(": ").append(Move.toString(moves[i])).append(String.format("%n"));
+		return builder.toString();
+	}
+}
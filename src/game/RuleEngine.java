@@ -0,0 +1,182 @@
+package game;
+
+import deck.Card;
+import deck.CardSet;
+
+/**
+ * The rules for what a player may play. Players check their selections here before sending them, and
+ * the host checks every play it receives against its own game state, so a client that sends a bad
+ * play cannot change the game. The checks are mask operations on the cards and take constant time.
+ * @author Gabriel
+ *
+ */
+public class RuleEngine {
+	private RuleEngine(){}
+
+	/**
+	 * Checks that a player may pass.
+	 * @param previous the previous play, a pass if a new trick is starting
+	 * @throws InvalidCombinationException if the player may not pass
+	 */
+	public static void checkPass(Combination previous) throws InvalidCombinationException {
+		if (previous.getLength() == Combination.PASS)
+			throw new InvalidCombinationException("You cannot pass on a new trick.");
+	}
+
+	/**
+	 * Checks the cards a player selected from their hand and returns the combination they make. The
+	 * problems are reported in the order a player would fix them: the number of cards, the forced
+	 * card, the combination and then its value.
+	 * @param rules the rules of the game
+	 * @param previous the previous play, a pass if a new trick is starting
+	 * @param forcedCard the card the play must contain, null if there is none
+	 * @param cards the selected cards
+	 * @return the combination made by the cards
+	 * @throws InvalidCombinationException if the cards may not be played
+	 */
+	public static Combination checkSelection(RuleSet rules, Combination previous, Card forcedCard, Card[] cards)
+			throws InvalidCombinationException {
+		if (cards.length == 0)
+			throw new InvalidCombinationException("No cards were selected.");
+		int result = rules.classify(cards);
+		checkLength(rules, previous, cards.length, result);
+		if (forcedCard != null && !containsCard(Combination.NO_MASK, cards, forcedCard))
+			throw forcedCardMissing(forcedCard);
+		if (result == CombinationClassifier.INVALID)
+			throw Combination.invalid(cards.length);
+		checkValue(rules, previous, result);
+		return Combination.getCombinationOrNull(cards); // any combination under a rule set is one under the standard rules
+	}
+
+	/**
+	 * Checks that a combination may be played after the previous play. A pass is checked with
+	 * checkPass.
+	 * @param rules the rules of the game
+	 * @param previous the previous play, a pass if a new trick is starting
+	 * @param forcedCard the card the play must contain, null if there is none
+	 * @param play the combination to play
+	 * @throws InvalidCombinationException if the combination may not be played
+	 */
+	public static void checkPlay(RuleSet rules, Combination previous, Card forcedCard, Combination play)
+			throws InvalidCombinationException {
+		if (play.getLength() == Combination.PASS){
+			checkPass(previous);
+			return;
+		}
+		int result = rules.classify(play);
+		checkLength(rules, previous, play.getLength(), result);
+		if (forcedCard != null && !containsCard(play.getMask(), play.getCards(), forcedCard))
+			throw forcedCardMissing(forcedCard);
+		if (result == CombinationClassifier.INVALID)
+			throw Combination.invalid(play.getLength());
+		checkValue(rules, previous, result);
+	}
+
+	/**
+	 * Checks a play against a game state, trusting nothing about the combination: it must be the
+	 * player's turn, the cards must form the combination they claim to and the player must hold them,
+	 * and the play must follow the rules of checkPlay.
+	 * @param state the game state
+	 * @param player the index of the player making the play
+	 * @param play the combination played
+	 * @throws InvalidCombinationException if the play is not allowed
+	 */
+	public static void check(GameState state, int player, Combination play) throws InvalidCombinationException {
+		if (player != state.getCurrentPlayerIndex())
+			throw new InvalidCombinationException("It is not your turn.");
+		if (play == null || !isGenuine(play))
+			throw new InvalidCombinationException("The cards do not form a valid combination.");
+		if (!holds(state.getPlayer(player).getCardSet(), play))
+			throw new InvalidCombinationException("You do not have the cards you played.");
+		checkPlay(state.getRuleSet(), state.getPreviousPlay(), state.getForcedCard(), play);
+	}
+
+	/**
+	 * Returns whether a play may be made, see check(GameState, int, Combination).
+	 * @param state the game state
+	 * @param player the index of the player making the play
+	 * @param play the combination played
+	 * @return if the play is allowed
+	 */
+	public static boolean isLegal(GameState state, int player, Combination play){
+		try {
+			check(state, player, play);
+			return true;
+		} catch (InvalidCombinationException e){
+			return false;
+		}
+	}
+
+	/**
+	 * Checks that a play has as many cards as the previous one, unless a new trick is starting or the
+	 * play is a bomb.
+	 */
+	private static void checkLength(RuleSet rules, Combination previous, int length, int result)
+			throws InvalidCombinationException {
+		if (length != previous.getLength() && previous.getLength() != Combination.PASS && !rules.isBomb(result))
+			throw new InvalidCombinationException("You must play the same number of cards as the cards on the table.");
+	}
+
+	/**
+	 * Checks that a play beats the previous play, see RuleSet.beats(int, int). The length was checked by
+	 * checkLength, so a play that does not beat it is of no more value than a play of the same length.
+	 * @param result the result of classifying the play under the rules
+	 */
+	private static void checkValue(RuleSet rules, Combination previous, int result) throws InvalidCombinationException {
+		if (!rules.beats(result, rules.classify(previous)))
+			throw new InvalidCombinationException("The cards selected are not of more value than the previously played cards.");
+	}
+
+	private static InvalidCombinationException forcedCardMissing(Card forcedCard){
+		return new InvalidCombinationException("You must have a " + forcedCard.toString() + " in your combination.");
+	}
+
+	/**
+	 * Returns whether cards contain a card, using their mask if they have one.
+	 * @param mask the mask of the cards, Combination.NO_MASK to look at the cards one by one
+	 * @param cards the cards
+	 * @param card the card to look for
+	 */
+	private static boolean containsCard(long mask, Card[] cards, Card card){
+		if (mask != Combination.NO_MASK && card.getDeckIndex() == 0)
+			return (mask & CardSet.bit(card)) != 0;
+		for (Card c : cards)
+			if (c == card)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns whether a combination is what it claims to be: its value and mask are those of its cards.
+	 * Combinations received from the network are only objects someone else built.
+	 */
+	private static boolean isGenuine(Combination play){
+		Card[] cards = play.getCards();
+		if (cards == null)
+			return false;
+		for (Card c : cards)
+			if (c == null)
+				return false;
+		if (cards.length == Combination.PASS)
+			return play == Combination.getPassCombination();
+		int result = CombinationClassifier.classify(cards);
+		if (result == CombinationClassifier.INVALID || CombinationClassifier.value(result) != play.getValue())
+			return false;
+		if (play.getMask() == Combination.NO_MASK)
+			return true;
+		return play.getMask() == CardSet.mask(cards) && Long.bitCount(play.getMask()) == cards.length;
+	}
+
+	/**
+	 * Returns whether a hand holds the cards of a combination.
+	 */
+	private static boolean holds(CardSet hand, Combination play){
+		if (play.getMask() != Combination.NO_MASK)
+			return hand.containsAll(play.getMask());
+		CardSet cards = new CardSet();
+		for (Card c : play.getCards())
+			if (!cards.add(c))
+				return false; // the same card twice
+		return hand.containsAll(cards);
+	}
+}
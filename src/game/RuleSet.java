@@ -0,0 +1,465 @@
+package game;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import deck.Card;
+import deck.Suit;
+
+/**
+ * A variant of the rules of Big 2: the order of the suits, whether 2s can be part of a straight,
+ * whether flushes are ranked by their top card or by their suit, and whether a bomb (a four of a kind
+ * or a straight flush) can be played on any play. Each rule set is compiled into value tables when it
+ * is created, so classifying and comparing combinations takes the same table lookups under every
+ * variant. Each Game has its own rule set, see Game.getRuleSet().
+ * <p>
+ * Results are packed like those of CombinationClassifier, with values in this rule set's order.
+ * Combination.getValue() is always the value under STANDARD. A rule set never makes cards a
+ * combination that they are not under STANDARD, it can only rule some out.
+ * @author Gabriel
+ *
+ */
+public class RuleSet implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * How flushes are ranked.
+	 */
+	public enum FlushOrder {
+		/**
+		 * By the top card, like straights.
+		 */
+		TOP_CARD,
+		/**
+		 * By suit, then by the top card.
+		 */
+		SUIT
+	}
+
+	/**
+	 * The rules the game has always used: diamonds, clubs, hearts, spades; 2s in straights; flushes
+	 * ranked by their top card and no bombs. Values are the same as Combination.getValue().
+	 */
+	public static final RuleSet STANDARD = new RuleSet("Standard",
+			new Suit[]{Suit.DIAMONDS, Suit.CLUBS, Suit.HEARTS, Suit.SPADES}, true, FlushOrder.TOP_CARD, false);
+
+	private static final int NUM_RANKS = 13;
+	private static final int NUM_SUITS = 4;
+	private static final int TWO = NUM_RANKS - 1; // rank of the 2s
+	private static final long SUIT_STRIDE = 0x0001111111111111L; // one bit for every rank of the first suit
+	private static final int NONE = Integer.MAX_VALUE; // a value no combination has
+
+	private final String name;
+	private final Suit[] suitOrder; // lowest suit first
+	private final boolean twosInStraights;
+	private final FlushOrder flushOrder;
+	private final boolean bombsBeatAnything;
+
+	// Compiled tables, rebuilt from the rules above when deserialized
+	private transient int[] suitPosition; // position of each suit in suitOrder
+	private transient int[] singleValue; // value of each card, indexed by ordinal number
+	private transient int[] doubleValue; // indexed by rank << 4 | suits
+	private transient byte[] straightTop; // top rank of the straight of a 13 bit set of ranks, -1 if none
+	private transient int[] straightValue, flushValue, straightFlushValue; // indexed by the ordinal number of the top card
+	private transient int doubleBase, tripleBase, fullHouseBase, fourOfAKindBase;
+	private transient boolean[] bomb; // whether each kind of combination is a bomb
+	private transient int lowestBombValue;
+
+	/**
+	 * Creates and compiles a rule set.
+	 * @param name the name of the rule set, for display
+	 * @param suitOrder the suits from lowest to highest
+	 * @param twosInStraights whether a straight may contain a 2 (J, Q, K, A, 2 is then the highest)
+	 * @param flushOrder how flushes are ranked
+	 * @param bombsBeatAnything whether a four of a kind or straight flush may be played on a single,
+	 * double or triple
+	 * @throws IllegalArgumentException if suitOrder does not contain each suit once
+	 */
+	public RuleSet(String name, Suit[] suitOrder, boolean twosInStraights, FlushOrder flushOrder,
+			boolean bombsBeatAnything) throws IllegalArgumentException{
+		if (suitOrder.length != NUM_SUITS || !Arrays.asList(suitOrder).containsAll(Arrays.asList(Suit.values())))
+			throw new IllegalArgumentException("The suit order must contain each suit once");
+		this.name = name;
+		this.suitOrder = suitOrder.clone();
+		this.twosInStraights = twosInStraights;
+		this.flushOrder = flushOrder;
+		this.bombsBeatAnything = bombsBeatAnything;
+		compile();
+	}
+
+	/**
+	 * Builds the value tables. Each kind of combination gets a block of values, in the order of the
+	 * kinds, and within a block the combinations are numbered in the order the rules rank them.
+	 */
+	private void compile(){
+		suitPosition = new int[NUM_SUITS];
+		for (int i = 0; i < NUM_SUITS; i++)
+			suitPosition[suitOrder[i].ordinal()] = i;
+
+		// Strength of each card, by rank then suit
+		int[] strength = new int[Card.DECK_SIZE];
+		for (int n = 0; n < Card.DECK_SIZE; n++)
+			strength[n] = n / NUM_SUITS * NUM_SUITS + suitPosition[n % NUM_SUITS];
+
+		boolean[] any = new boolean[Card.DECK_SIZE];
+		Arrays.fill(any, true);
+		singleValue = number(strength, any, 0);
+		doubleBase = Card.DECK_SIZE;
+
+		// Doubles: by rank, then by the higher suit. Each rank has a value for every suit, since two
+		// copies of the card of the lowest suit are a double when there is more than one deck
+		doubleValue = new int[NUM_RANKS << NUM_SUITS];
+		Arrays.fill(doubleValue, -1);
+		for (int rank = 0; rank < NUM_RANKS; rank++)
+			for (int suits = 0; suits < 1 << NUM_SUITS; suits++)
+				if (Integer.bitCount(suits) == 2)
+					doubleValue[rank << NUM_SUITS | suits] = doubleBase + rank * NUM_SUITS + highestPosition(suits);
+		tripleBase = doubleBase + NUM_RANKS * NUM_SUITS;
+
+		// Straights: 5 consecutive ranks, ranked by the top card
+		straightTop = new byte[1 << NUM_RANKS];
+		Arrays.fill(straightTop, (byte) -1);
+		int maxTop = twosInStraights ? TWO : TWO - 1;
+		boolean[] straightTops = new boolean[Card.DECK_SIZE];
+		for (int top = 4; top <= maxTop; top++){
+			straightTop[0x1F << (top - 4)] = (byte) top;
+			for (int suit = 0; suit < NUM_SUITS; suit++)
+				straightTops[top * NUM_SUITS + suit] = true;
+		}
+		int straightBase = tripleBase + NUM_RANKS;
+		straightValue = number(strength, straightTops, straightBase);
+
+		// Flushes: any other 5 cards of a suit. The lowest top rank is the 8, as 3 to 7 is a straight
+		boolean[] flushTops = new boolean[Card.DECK_SIZE];
+		int[] flushKey = new int[Card.DECK_SIZE];
+		for (int n = 0; n < Card.DECK_SIZE; n++){
+			flushTops[n] = n / NUM_SUITS >= 5;
+			flushKey[n] = flushOrder == FlushOrder.SUIT ? suitPosition[n % NUM_SUITS] * NUM_RANKS + n / NUM_SUITS : strength[n];
+		}
+		int flushBase = straightBase + count(straightTops);
+		flushValue = number(flushKey, flushTops, flushBase);
+
+		fullHouseBase = flushBase + count(flushTops);
+		fourOfAKindBase = fullHouseBase + NUM_RANKS;
+		straightFlushValue = number(strength, straightTops, fourOfAKindBase + NUM_RANKS);
+
+		bomb = new boolean[CombinationClassifier.STRAIGHT_FLUSH + 1];
+		bomb[CombinationClassifier.FOUR_OF_A_KIND] = bombsBeatAnything;
+		bomb[CombinationClassifier.STRAIGHT_FLUSH] = bombsBeatAnything;
+		lowestBombValue = bombsBeatAnything ? fourOfAKindBase : NONE;
+	}
+
+	/**
+	 * Numbers the cards that are possible in order of a key.
+	 * @param key the key of each card
+	 * @param possible which cards get a value
+	 * @param base the value of the card with the smallest key
+	 * @return the value of each card, -1 for those that are not possible
+	 */
+	private static int[] number(int[] key, boolean[] possible, int base){
+		int[] values = new int[key.length];
+		for (int n = 0; n < key.length; n++){
+			values[n] = -1;
+			if (!possible[n])
+				continue;
+			values[n] = base;
+			for (int m = 0; m < key.length; m++)
+				if (possible[m] && key[m] < key[n])
+					values[n]++;
+		}
+		return values;
+	}
+
+	private static int count(boolean[] possible){
+		int count = 0;
+		for (boolean b : possible)
+			if (b)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Returns the position of the highest suit in a set of suits.
+	 * @param suits a 4 bit set of suit ordinals
+	 */
+	private int highestPosition(int suits){
+		int highest = -1;
+		for (int suit = 0; suit < NUM_SUITS; suit++)
+			if ((suits & 1 << suit) != 0)
+				highest = Math.max(highest, suitPosition[suit]);
+		return highest;
+	}
+
+	/**
+	 * Classifies the cards in a mask of the first deck under these rules.
+	 * @param mask the cards, bit n is set if the card with ordinal number n is included
+	 * @return the kind and value of the combination, CombinationClassifier.INVALID if the cards do not
+	 * form one
+	 */
+	public int classify(long mask){
+		switch (Long.bitCount(mask)){
+		case Combination.PASS:
+			return CombinationClassifier.result(CombinationClassifier.PASS, 0);
+		case Combination.SINGLE:
+			return CombinationClassifier.result(CombinationClassifier.SINGLE, singleValue[Long.numberOfTrailingZeros(mask)]);
+		case Combination.DOUBLE:
+		case Combination.TRIPLE:{
+			int rank = Long.numberOfTrailingZeros(mask) / NUM_SUITS;
+			if ((63 - Long.numberOfLeadingZeros(mask)) / NUM_SUITS != rank)
+				return CombinationClassifier.INVALID; // not all the same rank
+			if (Long.bitCount(mask) == Combination.TRIPLE)
+				return CombinationClassifier.result(CombinationClassifier.TRIPLE, tripleBase + rank);
+			int suits = (int) (mask >>> (rank * NUM_SUITS)) & 0xF;
+			return CombinationClassifier.result(CombinationClassifier.DOUBLE, doubleValue[rank << NUM_SUITS | suits]);
+		}
+		case Combination.POKER_HAND:
+			return classifyPokerHand(mask);
+		default:
+			return CombinationClassifier.INVALID;
+		}
+	}
+
+	/**
+	 * Classifies 5 cards of the first deck.
+	 */
+	private int classifyPokerHand(long mask){
+		int top = 63 - Long.numberOfLeadingZeros(mask); // ordinal of the card of the highest rank
+		int ranks = CombinationClassifier.ranks(mask);
+		boolean flush = (mask & ~(SUIT_STRIDE << (top % NUM_SUITS))) == 0;
+		switch (Integer.bitCount(ranks)){
+		case 5:
+			boolean straight = straightTop[ranks] >= 0;
+			if (straight && flush)
+				return CombinationClassifier.result(CombinationClassifier.STRAIGHT_FLUSH, straightFlushValue[top]);
+			if (straight)
+				return CombinationClassifier.result(CombinationClassifier.STRAIGHT, straightValue[top]);
+			if (flush)
+				return CombinationClassifier.result(CombinationClassifier.FLUSH, flushValue[top]);
+			return CombinationClassifier.INVALID;
+		case 2:
+			// Either 4 + 1 or 3 + 2 cards, decided by how many cards the lower rank has
+			int low = Integer.numberOfTrailingZeros(ranks);
+			int high = 31 - Integer.numberOfLeadingZeros(ranks);
+			int lowCount = Long.bitCount(mask & 0xFL << (low * NUM_SUITS));
+			if (lowCount == 4 || lowCount == 1)
+				return CombinationClassifier.result(CombinationClassifier.FOUR_OF_A_KIND, (lowCount == 4 ? low : high) + fourOfAKindBase);
+			return CombinationClassifier.result(CombinationClassifier.FULL_HOUSE, (lowCount == 3 ? low : high) + fullHouseBase);
+		default:
+			return CombinationClassifier.INVALID;
+		}
+	}
+
+	/**
+	 * Classifies an array of cards under these rules. Cards from more than one deck may be given,
+	 * including copies of the same card.
+	 * @param cards the cards
+	 * @return the kind and value of the combination, CombinationClassifier.INVALID if the cards do not
+	 * form one
+	 */
+	public int classify(Card[] cards){
+		long mask = 0L;
+		for (Card c : cards)
+			mask |= 1L << c.getOrdinalNumber();
+		if (Long.bitCount(mask) == cards.length)
+			return classify(mask); // no two cards share an ordinal number
+		return classifyWithCopies(cards);
+	}
+
+	/**
+	 * Classifies cards that include copies of the same card, so a mask cannot hold them.
+	 */
+	private int classifyWithCopies(Card[] cards){
+		int[] rankCounts = new int[NUM_RANKS];
+		int top = -1; // largest ordinal number
+		int topPosition = -1; // position of the highest suit
+		boolean sameSuit = true;
+		for (Card c : cards){
+			rankCounts[c.rank.ordinal()]++;
+			top = Math.max(top, c.getOrdinalNumber());
+			topPosition = Math.max(topPosition, suitPosition[c.suit.ordinal()]);
+			sameSuit &= c.suit == cards[0].suit;
+		}
+		int numRanks = 0, maxCount = 0;
+		for (int count : rankCounts){
+			if (count > 0)
+				numRanks++;
+			maxCount = Math.max(maxCount, count);
+		}
+
+		switch (cards.length){
+		case Combination.DOUBLE:
+			if (numRanks != 1)
+				return CombinationClassifier.INVALID;
+			return CombinationClassifier.result(CombinationClassifier.DOUBLE, doubleBase + (top / NUM_SUITS) * NUM_SUITS + topPosition);
+		case Combination.TRIPLE:
+			if (numRanks != 1)
+				return CombinationClassifier.INVALID;
+			return CombinationClassifier.result(CombinationClassifier.TRIPLE, tripleBase + top / NUM_SUITS);
+		case Combination.POKER_HAND:
+			// A copy means the ranks are not all different, so it can't be a straight
+			if (sameSuit)
+				return CombinationClassifier.result(CombinationClassifier.FLUSH, flushValue[top]);
+			// Five cards of one rank count as a full house, which is checked before four of a kind
+			if (numRanks == 1)
+				return CombinationClassifier.result(CombinationClassifier.FULL_HOUSE, top / NUM_SUITS + fullHouseBase);
+			if (maxCount == 4)
+				return CombinationClassifier.result(CombinationClassifier.FOUR_OF_A_KIND, rankWithCount(rankCounts, 4) + fourOfAKindBase);
+			if (numRanks == 2 && maxCount == 3)
+				return CombinationClassifier.result(CombinationClassifier.FULL_HOUSE, rankWithCount(rankCounts, 3) + fullHouseBase);
+			return CombinationClassifier.INVALID;
+		default:
+			return CombinationClassifier.INVALID;
+		}
+	}
+
+	/**
+	 * Returns the first rank with a given number of cards.
+	 */
+	private static int rankWithCount(int[] rankCounts, int count){
+		for (int rank = 0; rank < rankCounts.length; rank++)
+			if (rankCounts[rank] == count)
+				return rank;
+		return -1;
+	}
+
+	/**
+	 * Classifies a combination under these rules.
+	 * @param combination the combination
+	 * @return the kind and value of the combination, CombinationClassifier.INVALID if these rules do
+	 * not allow it
+	 */
+	public int classify(Combination combination){
+		if (combination.getMask() != Combination.NO_MASK)
+			return classify(combination.getMask());
+		return classify(combination.getCards());
+	}
+
+	/**
+	 * Returns the value of a combination under these rules.
+	 * @param combination the combination
+	 * @return the value, -1 for a pass or a combination these rules do not allow
+	 */
+	public int value(Combination combination){
+		int result = classify(combination);
+		return result == CombinationClassifier.INVALID ? -1 : CombinationClassifier.value(result);
+	}
+
+	/**
+	 * Returns whether a combination is allowed under these rules.
+	 * @param combination the combination
+	 * @return if it is allowed
+	 */
+	public boolean isValid(Combination combination){
+		return classify(combination) != CombinationClassifier.INVALID;
+	}
+
+	/**
+	 * Returns whether a result is a bomb, a combination that can be played on any single, double or
+	 * triple.
+	 * @param result a result of classify
+	 * @return if it is a bomb under these rules
+	 */
+	public boolean isBomb(int result){
+		return result != CombinationClassifier.INVALID && bomb[CombinationClassifier.kind(result)];
+	}
+
+	/**
+	 * Returns the smallest value of a bomb. Every poker hand with at least this value is a bomb.
+	 * @return the value of the lowest bomb, Integer.MAX_VALUE if there are no bombs under these rules
+	 */
+	public int getLowestBombValue(){
+		return lowestBombValue;
+	}
+
+	/**
+	 * Returns whether a play beats the previous play: a larger combination of the same length, or a
+	 * bomb on a shorter play if the rules allow it. Anything beats a pass.
+	 * @param play the combination played, not a pass
+	 * @param previous the previous play
+	 * @return if play beats previous
+	 */
+	public boolean beats(Combination play, Combination previous){
+		return beats(classify(play), classify(previous));
+	}
+
+	/**
+	 * Returns whether a play beats the previous play, given the results of classifying both under these
+	 * rules. The value must be strictly larger, so in games with more than one deck a copy of the
+	 * previous play from another deck does not beat it. This is the rule both the players' checks (see
+	 * RuleEngine) and the CPU's search (see Move.beats) use.
+	 * @param play the result of classifying the play
+	 * @param previous the result of classifying the previous play
+	 * @return if play beats previous
+	 */
+	public boolean beats(int play, int previous){
+		if (play == CombinationClassifier.INVALID || CombinationClassifier.kind(play) == CombinationClassifier.PASS)
+			return false;
+		if (previous == CombinationClassifier.INVALID || CombinationClassifier.kind(previous) == CombinationClassifier.PASS)
+			return true;
+		int length = CombinationClassifier.length(CombinationClassifier.kind(play));
+		int previousLength = CombinationClassifier.length(CombinationClassifier.kind(previous));
+		if (length == previousLength)
+			return CombinationClassifier.value(play) > CombinationClassifier.value(previous);
+		return length > previousLength && bomb[CombinationClassifier.kind(play)];
+	}
+
+	/**
+	 * Returns the name of the rule set.
+	 * @return the name
+	 */
+	public String getName(){
+		return name;
+	}
+
+	/**
+	 * Returns the order of the suits.
+	 * @return the suits from lowest to highest
+	 */
+	public Suit[] getSuitOrder(){
+		return suitOrder.clone();
+	}
+
+	public boolean isTwosInStraights(){
+		return twosInStraights;
+	}
+
+	public FlushOrder getFlushOrder(){
+		return flushOrder;
+	}
+
+	public boolean isBombsBeatAnything(){
+		return bombsBeatAnything;
+	}
+
+	/**
+	 * Two rule sets are equal if they have the same rules, whatever their names.
+	 */
+	public boolean equals(Object obj){
+		if (!(obj instanceof RuleSet))
+			return false;
+		RuleSet other = (RuleSet) obj;
+		return Arrays.equals(suitOrder, other.suitOrder) && twosInStraights == other.twosInStraights
+				&& flushOrder == other.flushOrder && bombsBeatAnything == other.bombsBeatAnything;
+	}
+
+	public int hashCode(){
+		return Arrays.hashCode(suitOrder) * 31 + flushOrder.hashCode()
+				+ (twosInStraights ? 2 : 0) + (bombsBeatAnything ? 1 : 0);
+	}
+
+	/**
+	 * Compiles the tables of a deserialized rule set, which only the rules are sent for.
+	 * @return the standard rules if these are the same, otherwise the compiled rule set
+	 * @throws ObjectStreamException never
+	 */
+	private Object readResolve() throws ObjectStreamException {
+		if (equals(STANDARD) && name.equals(STANDARD.name))
+			return STANDARD;
+		return new RuleSet(name, suitOrder, twosInStraights, flushOrder, bombsBeatAnything);
+	}
+
+	public String toString(){
+		return name;
+	}
+}
@@ -0,0 +1,239 @@
+package gui;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+import deck.Card;
+import deck.Suit;
+
+/**
+ * All the card images, decoded from a single sprite atlas. The atlas is a grid of Card.WIDTH by
+ * Card.HEIGHT cells with one column per rank (in Rank order) and one row per suit (in Suit order),
+ * followed by a row whose first cell is the back of a card.
+ * <p>
+ * The images are decoded once, on a background thread, the first time they are needed or when
+ * preload() is called. If the atlas is missing, the individual card images are decoded in parallel
+ * instead.
+ * @author Gabriel
+ *
+ */
+public class CardAtlas {
+	/**
+	 * Location of the atlas on the class path.
+	 */
+	public static final String ATLAS_PATH = "/cards/atlas.png";
+	/**
+	 * Number of columns and rows of cells in the atlas.
+	 */
+	public static final int COLUMNS = 13, ROWS = 5;
+
+	private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(new ThreadFactory(){
+		public Thread newThread(Runnable r){
+			Thread thread = new Thread(r, "Card image loader");
+			thread.setDaemon(true); // do not keep the program alive just to load images
+			return thread;
+		}
+	});
+	private static Future<CardAtlas> loading = null;
+
+	private final BufferedImage[] faces; // face up images indexed by ordinal number
+	private final BufferedImage verticalBack;
+	private final BufferedImage horizontalBack;
+	private final long loadMillis;
+
+	private CardAtlas(BufferedImage[] faces, BufferedImage verticalBack, long loadMillis){
+		this.faces = faces;
+		this.verticalBack = verticalBack;
+		this.horizontalBack = rotate(verticalBack);
+		this.loadMillis = loadMillis;
+	}
+
+	/**
+	 * Starts decoding the card images on a background thread if it has not been started already.
+	 * Calling this early at start up lets the images load while the rest of the program is set up.
+	 * @return the pending atlas
+	 */
+	public static synchronized Future<CardAtlas> preload(){
+		if (loading == null){
+			loading = LOADER.submit(new Callable<CardAtlas>(){
+				public CardAtlas call(){
+					return load();
+				}
+			});
+		}
+		return loading;
+	}
+
+	/**
+	 * Returns the card images, waiting for them to be decoded if necessary.
+	 * @return the card images
+	 */
+	public static CardAtlas get(){
+		Future<CardAtlas> atlas = preload();
+		boolean interrupted = false;
+		try {
+			while (true){
+				try {
+					return atlas.get();
+				} catch (InterruptedException e) {
+					interrupted = true; // finish waiting, then restore the interrupt
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Unable to load the card images", e.getCause());
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the face up image of a card.
+	 * @param ordinal the ordinal number of the card
+	 * @return the image of the card
+	 */
+	public BufferedImage getFace(int ordinal){
+		return faces[ordinal];
+	}
+
+	/**
+	 * Returns the back of a card in a portrait format.
+	 * @return the image of the back of a card
+	 */
+	public BufferedImage getVerticalBack(){
+		return verticalBack;
+	}
+
+	/**
+	 * Returns the back of a card in a landscape format.
+	 * @return the image of the back of a card
+	 */
+	public BufferedImage getHorizontalBack(){
+		return horizontalBack;
+	}
+
+	/**
+	 * Returns the number of milliseconds it took to decode the images.
+	 * @return the load time in milliseconds
+	 */
+	public long getLoadMillis(){
+		return loadMillis;
+	}
+
+	/**
+	 * Decodes the atlas, or the individual card images if there is no atlas.
+	 * @return the decoded images
+	 */
+	private static CardAtlas load(){
+		long start = System.nanoTime();
+		BufferedImage[] faces = new BufferedImage[COLUMNS * Suit.values().length];
+		BufferedImage back;
+		String source;
+
+		BufferedImage atlas = read(ATLAS_PATH);
+		if (atlas != null){
+			// Cut the cells out of the atlas (the cells share the atlas' pixels)
+			for (int i = 0; i < faces.length; i++)
+				faces[i] = atlas.getSubimage((i / 4) * Card.WIDTH, (i % 4) * Card.HEIGHT, Card.WIDTH, Card.HEIGHT);
+			back = atlas.getSubimage(0, (ROWS - 1) * Card.HEIGHT, Card.WIDTH, Card.HEIGHT);
+			source = ATLAS_PATH;
+		} else {
+			loadIndividually(faces);
+			back = read("/cards/back.png");
+			source = "individual images";
+		}
+
+		if (back == null){
+			// black rectangle for back of card
+			back = new BufferedImage(Card.WIDTH, Card.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+			Graphics g = back.getGraphics();
+			g.setColor(java.awt.Color.BLACK);
+			g.fillRect(0, 0, Card.WIDTH, Card.HEIGHT);
+			g.dispose();
+		}
+
+		long millis = (System.nanoTime() - start) / 1000000;
+		System.out.format("Loaded card images from %s in %d ms%n", source, millis);
+		return new CardAtlas(faces, back, millis);
+	}
+
+	/**
+	 * Decodes the 52 individual card images in parallel.
+	 * @param faces the array to store the images in, indexed by ordinal number
+	 */
+	private static void loadIndividually(final BufferedImage[] faces){
+		IntStream.range(0, faces.length).parallel().forEach(i -> {
+			Card card = Card.of(i);
+			BufferedImage image = read("/cards/" + card.rank.identifier() + card.suit.identifier() + ".png");
+			// blank images
+			faces[i] = image != null ? image : new BufferedImage(Card.WIDTH, Card.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		});
+	}
+
+	/**
+	 * Reads an image from the class path.
+	 * @param path the location of the image
+	 * @return the image, null if it could not be read
+	 */
+	private static BufferedImage read(String path){
+		URL url = CardAtlas.class.getResource(path);
+		if (url == null)
+			return null;
+		try {
+			return ImageIO.read(url);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Rotates an image a quarter turn clockwise.
+	 * @param image the image to rotate
+	 * @return the rotated image
+	 */
+	private static BufferedImage rotate(BufferedImage image){
+		BufferedImage rotated = new BufferedImage(image.getHeight(), image.getWidth(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = rotated.createGraphics();
+		g.rotate(Math.PI / 2);
+		g.drawImage(image, 0, -image.getHeight(), null);
+		g.dispose();
+		return rotated;
+	}
+
+	/**
+	 * Builds the atlas out of the individual card images.
+	 * @param args the file to write the atlas to
+	 * @throws IOException if the atlas could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1){
+			System.err.println("Usage: java gui.CardAtlas <output png>");
+			return;
+		}
+		BufferedImage[] faces = new BufferedImage[COLUMNS * Suit.values().length];
+		loadIndividually(faces);
+		BufferedImage back = read("/cards/back.png");
+
+		BufferedImage atlas = new BufferedImage(COLUMNS * Card.WIDTH, ROWS * Card.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = atlas.createGraphics();
+		for (int i = 0; i < faces.length; i++)
+			g.drawImage(faces[i], (i / 4) * Card.WIDTH, (i % 4) * Card.HEIGHT, null);
+		if (back != null)
+			g.drawImage(back, 0, (ROWS - 1) * Card.HEIGHT, null);
+		g.dispose();
+		ImageIO.write(atlas, "png", new File(args[0]));
+	}
+}
@@ -0,0 +1,201 @@
+package gui;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import deck.Card;
+import deck.Deck;
+
+/**
+ * Draws cards and decks. All image handling for the card model lives here so that the deck and game
+ * packages can be used without loading AWT.
+ * @author Gabriel
+ *
+ */
+public class CardRenderer {
+	/**
+	 * Maximum number of rendered decks kept by show(Deck, int, int).
+	 */
+	public static final int RENDER_CACHE_SIZE = 16;
+
+	// Rendered decks, least recently used first
+	private static final Map<RenderKey, BufferedImage> renderCache =
+			new LinkedHashMap<RenderKey, BufferedImage>(RENDER_CACHE_SIZE, 0.75f, true){
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<RenderKey, BufferedImage> eldest){
+			return size() > RENDER_CACHE_SIZE;
+		}
+	};
+
+	private CardRenderer(){}
+
+	/**
+	 * Starts loading the card images in the background. The images are otherwise loaded the first
+	 * time one is needed.
+	 * @see CardAtlas#preload()
+	 */
+	public static void loadImages() {
+		CardAtlas.preload();
+	}
+
+	/**
+	 * Returns the face up image of a card.
+	 * @param card the card
+	 * @return the image of the card
+	 */
+	public static BufferedImage getImage(Card card) {
+		return getImage(card, true);
+	}
+
+	/**
+	 * Returns the image of a card when either face up or face down.
+	 * @param card the card
+	 * @param faceUp return face up image or face down image
+	 * @return the image of the card
+	 */
+	public static BufferedImage getImage(Card card, boolean faceUp) {
+		CardAtlas atlas = CardAtlas.get();
+		return faceUp ? atlas.getFace(card.getOrdinalNumber()) : atlas.getVerticalBack();
+	}
+
+	/**
+	 * Returns the back of a card rotated in a portrait format.
+	 * @return the image of the back of the card
+	 */
+	public static BufferedImage getVerticalBack() {
+		return CardAtlas.get().getVerticalBack();
+	}
+
+	/**
+	 * Returns the back of the card rotated in a landscape format.
+	 * @return the image of the back of the card
+	 */
+	public static BufferedImage getHorizontalBack() {
+		return CardAtlas.get().getHorizontalBack();
+	}
+
+	/**
+	 * Draws the face up image of a card on g with the top left corner at (x,y).
+	 * @param g the graphics context to paint the card on
+	 * @param card the card to draw
+	 * @param x the x value of the top left corner of the location where the card will be painted
+	 * @param y the y value of the top left corner of the location where the card will be painted
+	 */
+	public static void show(Graphics g, Card card, int x, int y) {
+		g.drawImage(getImage(card), x, y, null);
+	}
+
+	/**
+	 * Draws the cards of a deck, overlapped, on a BufferedImage. The maximum number of cards will be drawn on each row.
+	 * The cards will be positioned into multiple rows only if necessary.
+	 * The most recently drawn decks are cached, so calling this again with the same cards, in the same order and
+	 * facing, and the same size only costs a lookup. The returned image is shared and must not be drawn on.
+	 * @param deck the deck to draw
+	 * @param width the width of the BufferedImage to be returned
+	 * @param height the height of the BufferedImage to be returned
+	 * @return a BufferedImage with all the cards drawn on it
+	 */
+	public static BufferedImage show(Deck deck, int width, int height){
+		RenderKey key = new RenderKey(deck, width, height);
+		synchronized (renderCache){
+			BufferedImage image = renderCache.get(key);
+			if (image != null)
+				return image;
+		}
+		BufferedImage image = render(deck, width, height);
+		synchronized (renderCache){
+			renderCache.put(key, image);
+		}
+		return image;
+	}
+
+	/**
+	 * Removes all the rendered decks from the cache.
+	 */
+	public static void clearRenderCache(){
+		synchronized (renderCache){
+			renderCache.clear();
+		}
+	}
+
+	/**
+	 * Draws the cards of a deck without using the cache.
+	 * @param deck the deck to draw
+	 * @param width the width of the BufferedImage to be returned
+	 * @param height the height of the BufferedImage to be returned
+	 * @return a new BufferedImage with all the cards drawn on it
+	 */
+	private static BufferedImage render(Deck deck, int width, int height){
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = image.getGraphics();
+		if (deck.size() == 0 )
+			return image;
+
+		// number of cards displayed per row
+		int cardsPerRow = ((width - Card.WIDTH) // total pixels excluding the one full card
+				/ Deck.CARD_LEFTSIDE) + 1; 				 // divide by CARD_LEFTSIDE to find how many overlapped can fit
+		// +1 to include the one full card
+
+		//number of rows of cards
+		// +1 due to integer division
+		int rows = deck.size() / cardsPerRow + 1; // number of rows of cards
+
+		// Save processing time when there are more rows than can be shown
+		rows = Math.min(rows, height/Card.HEIGHT + 1);
+
+		// draw the cards
+		int i = 0; // counter for cards drawn
+		for (int y = 0; y < rows && i < deck.size(); y++){
+			for (int x = 0; x < cardsPerRow-1 && i < deck.size()-1; x++){
+				// Draw the overlapped cards
+				Card card = deck.get(i);
+				g.drawImage(getImage(card, deck.isFaceUp(card)), x * Deck.CARD_LEFTSIDE, y * Card.HEIGHT,
+						(x+1) * Deck.CARD_LEFTSIDE+1, (y+1) * Card.HEIGHT+1, 0, 0, Deck.CARD_LEFTSIDE+1, Card.HEIGHT+1, null);
+				i++; // increment counter for cards, so that the next iteration draws the next card
+			}
+			// Draw the last card in the row
+			Card card = deck.get(i);
+			g.drawImage(getImage(card, deck.isFaceUp(card)),(i%cardsPerRow)*Deck.CARD_LEFTSIDE,y*Card.HEIGHT,null);
+			i++;
+		}
+		g.dispose();
+
+		return image;
+	}
+
+	/**
+	 * Identifies a rendering of a deck: the cards in order, whether each is face up, and the image size.
+	 */
+	private static final class RenderKey {
+		private final byte[] cards; // ordinal number of each card, with the high bit set if face down
+		private final int width;
+		private final int height;
+		private final int hash;
+
+		RenderKey(Deck deck, int width, int height){
+			cards = new byte[deck.size()];
+			for (int i = 0; i < cards.length; i++){
+				Card c = deck.get(i);
+				cards[i] = (byte) (c.getOrdinalNumber() | (deck.isFaceUp(c) ? 0 : 0x80));
+			}
+			this.width = width;
+			this.height = height;
+			hash = (Arrays.hashCode(cards) * 31 + width) * 31 + height;
+		}
+
+		public boolean equals(Object obj){
+			if (!(obj instanceof RenderKey))
+				return false;
+			RenderKey other = (RenderKey) obj;
+			return width == other.width && height == other.height && Arrays.equals(cards, other.cards);
+		}
+
+		public int hashCode(){
+			return hash;
+		}
+	}
+}
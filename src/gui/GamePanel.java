@@ -38,6 +38,7 @@ import javax.swing.JPanel;
 
 import network.GameConnection;
 import deck.Card;
+import deck.CardView;
 import deck.Deck;
 
 /**
@@ -285,7 +286,7 @@ implements KeyListener, GameStateChangeListener{
 					connection.restart();
 				} else if (singlePlayerGame != null){
 					singlePlayerGame.newGame();
-					(new Thread(singlePlayerGame)).start();
+					singlePlayerGame.start();
 				}
 			} else{
 				quit();
@@ -435,10 +436,11 @@ implements KeyListener, GameStateChangeListener{
 					getHeight() - metrics.getDescent());
 
 			// Draw cards
-			for (int i = 0; i < player.size(); i++){
+			CardView cards = player.getView();
+			for (int i = 0; i < cards.size(); i++){
 				// Integer added to y position of card to move it up or down when selected or not
 				int selectedModifier = selectedCards[i] ? 0 : Deck.CARD_TOP;
-				g.drawImage(player.getCards()[i].getImage(true),
+				g.drawImage(CardRenderer.getImage(cards.get(i)),
 						(getWidth() - getImageWidth(player.size())) / 2 + (i * Deck.CARD_LEFTSIDE),
 						getHeight() - (Card.HEIGHT + Deck.CARD_TOP) + selectedModifier, null);
 			}
@@ -457,7 +459,7 @@ implements KeyListener, GameStateChangeListener{
 
 			// Draw cards
 			for (int i = 0; i < player.size(); i++){
-				g.drawImage(Card.getHorizontalBack(), getWidth() - Card.HEIGHT,
+				g.drawImage(CardRenderer.getHorizontalBack(), getWidth() - Card.HEIGHT,
 						(getHeight() - getImageWidth(player.size())) / 2 + (i * Deck.CARD_LEFTSIDE), null);
 			}
 		}
@@ -473,7 +475,7 @@ implements KeyListener, GameStateChangeListener{
 
 			// Draw cards
 			for (int i = 0; i < player.size(); i++){
-				g.drawImage(Card.getHorizontalBack(), 0,
+				g.drawImage(CardRenderer.getHorizontalBack(), 0,
 						(getHeight() - getImageWidth(player.size())) / 2 + (i * Deck.CARD_LEFTSIDE), null);
 			}
 		}
@@ -491,7 +493,7 @@ implements KeyListener, GameStateChangeListener{
 
 			// Draw cards
 			for (int i = 0; i < player.size(); i++){
-				g.drawImage(Card.getVerticalBack(),
+				g.drawImage(CardRenderer.getVerticalBack(),
 						(getWidth() - getImageWidth(player.size())) / 2 + (i * Deck.CARD_LEFTSIDE), 0, null);
 			}
 		}
@@ -519,7 +521,7 @@ implements KeyListener, GameStateChangeListener{
 			int imageWidth = cards.length * Card.WIDTH + (cards.length - 1) * cardSeparation;
 
 			for (int i = 0; i < cards.length; i++){
-				g.drawImage(cards[i].getImage(true), (getWidth() - imageWidth) / 2 + // left side of image
+				g.drawImage(CardRenderer.getImage(cards[i]), (getWidth() - imageWidth) / 2 + // left side of image
 						i * (Card.WIDTH + cardSeparation), // move images over each iteration
 						(getHeight() - Card.HEIGHT) / 2, // top of image
 						null);
@@ -29,6 +29,7 @@ public class Main extends JPanel{
 	}
 	
 	public static void main(String[] args) {
+		CardRenderer.loadImages(); // decode the card images while the frame is being set up
 		JFrame frame = new JFrame("Network Big 2 Card Game");
 		frame.setContentPane(new Main());
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -93,7 +93,7 @@ public class MainPanel extends JPanel implements ActionListener {
 			panel.setSinglePlayerGame(game);
 			rootPanel.add(panel, "single");
 			rootPanel.getCardLayout().show(rootPanel, "single");
-			(new Thread(game)).start();
+			game.start();
 		} else if (cmd.equals("Multiplayer")) {
 			// Send you to lobby
 			if (!lobbyAdded) {
@@ -2,18 +2,22 @@ package gui;
 
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
+import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
 
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JSplitPane;
 
+import game.RuleSet;
+
 import network.GameConnection;
 import network.LobbyConnection;
 import network.NetworkChangeListener;
@@ -38,6 +42,9 @@ public class NetworkGamePanel extends JPanel implements NetworkChangeListener,
 	private Main rootPanel;
 	private LobbyPanel lobbyPanel;
 
+	/* the rules, chosen by the host */
+	private JCheckBox twosInStraights, flushesBySuit, bombs;
+
 	/** Creates and displays the network set up screen. */
 	public NetworkGamePanel(Main rootPanel, LobbyPanel lobbyPanel,
 			String host, String username) {
@@ -67,7 +74,8 @@ public class NetworkGamePanel extends JPanel implements NetworkChangeListener,
 		JPanel buttons = new JPanel();
 		ButtonListener listener = new ButtonListener();
 
-		if (host.equals(username)) { // add start button if host
+		if (host.equals(username)) { // add start button and rule options if host
+			add(createRuleOptions(), BorderLayout.LINE_END);
 			JButton start = new JButton("Start");
 			start.addActionListener(listener);
 			start.setActionCommand("start");
@@ -84,6 +92,32 @@ public class NetworkGamePanel extends JPanel implements NetworkChangeListener,
 		add(buttons, BorderLayout.PAGE_END);
 	}
 
+	/** Creates the options the host sets the rules of the game with. */
+	private JPanel createRuleOptions() {
+		twosInStraights = new JCheckBox("2s in straights",
+				RuleSet.STANDARD.isTwosInStraights());
+		flushesBySuit = new JCheckBox("Flushes ranked by suit",
+				RuleSet.STANDARD.getFlushOrder() == RuleSet.FlushOrder.SUIT);
+		bombs = new JCheckBox("Bombs beat anything",
+				RuleSet.STANDARD.isBombsBeatAnything());
+
+		JPanel options = new JPanel(new GridLayout(0, 1));
+		options.add(new JLabel("Rules:"));
+		options.add(twosInStraights);
+		options.add(flushesBySuit);
+		options.add(bombs);
+		return options;
+	}
+
+	/** Returns the rules chosen by the host, the standard rules if none were changed. */
+	private RuleSet getRuleSet() {
+		RuleSet rules = new RuleSet("House", RuleSet.STANDARD.getSuitOrder(),
+				twosInStraights.isSelected(),
+				flushesBySuit.isSelected() ? RuleSet.FlushOrder.SUIT
+						: RuleSet.FlushOrder.TOP_CARD, bombs.isSelected());
+		return rules.equals(RuleSet.STANDARD) ? RuleSet.STANDARD : rules;
+	}
+
 	@Override
 	/** updates the JList whenever the network connection changes */
 	public void networkConnectionChanged(NetworkConnection c) {
@@ -108,6 +142,7 @@ public class NetworkGamePanel extends JPanel implements NetworkChangeListener,
 					rootPanel.add(new NetworkSplitPane(connection.getPanel(),
 							connection), "game");
 					rootPanel.getCardLayout().show(rootPanel, "game");
+					connection.setRuleSet(getRuleSet());
 					connection.start(null); // null because this player is host
 				} catch (Exception e) {
 					JOptionPane.showMessageDialog(null,
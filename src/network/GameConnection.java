@@ -6,6 +6,9 @@ import game.Combination;
 import game.Game;
 import game.GameState;
 import game.GameStateChangeListener;
+import game.InvalidCombinationException;
+import game.RuleEngine;
+import game.RuleSet;
 import gui.GamePanel;
 import gui.LobbyPanel;
 import gui.NetworkSplitPane;
@@ -52,7 +55,9 @@ public class GameConnection extends NetworkConnection implements
 	private NetworkPlayer player;
 	private Game game = null;
 	private GamePanel gamePanel; // displays the game
-	private Thread gameThread;
+	private int numPlayers = Game.DEFAULT_NUM_PLAYERS; // seats at the table, filled with CPU's
+	private int numDecks = Game.DEFAULT_NUM_DECKS;
+	private RuleSet ruleSet = RuleSet.STANDARD;
 
 	@Override
 	public void viewAccepted(View new_view) {
@@ -103,7 +108,7 @@ public class GameConnection extends NetworkConnection implements
 			System.out.format("I [%s] am host, so I'm starting the game. ",
 					address);
 			/* set up game and gamePanel */
-			game = new Game(initPlayers());
+			game = new Game(initPlayers(numPlayers), numDecks, ruleSet);
 			game.addGameStateChangeListener(this);
 			notifyNetworkChangeListeners();
 			gamePanel.gameStateChanged(game.getGameState());
@@ -130,30 +135,57 @@ public class GameConnection extends NetworkConnection implements
 		rootPanel.getCardLayout().show(rootPanel, "game");
 
 		if (isHost()) {
-			/* start the game on a new Thread */
+			/* start the game on the game scheduler */
 			System.out.format(
 					"I [%s] am host so I'm starting the game loop.%n", address);
-			gameThread = new Thread(game);
-			gameThread.start();
+			game.start();
 		}
 	}
 
+	/**
+	 * Sets the size of the table and the number of decks used by the next game this host starts.
+	 * The set-up screen does not offer these, since GamePanel draws four seats of up to 13 cards, so
+	 * larger tables are only set up by calling this before start(GameState).
+	 *
+	 * @param numPlayers
+	 *            the number of seats, seats without a network player are CPU's
+	 * @param numDecks
+	 *            the number of decks the cards are dealt from
+	 */
+	public void setTable(int numPlayers, int numDecks) {
+		this.numPlayers = numPlayers;
+		this.numDecks = numDecks;
+	}
+
+	/**
+	 * Sets the rules of the next game this host starts.
+	 * 
+	 * @param ruleSet
+	 *            the rules, sent to the other players with the game state
+	 */
+	public void setRuleSet(RuleSet ruleSet) {
+		this.ruleSet = ruleSet;
+	}
+
 	/**
 	 * Registers the network players and sets remaining players as CPU's
 	 * 
+	 * @param numPlayers
+	 *            the number of seats at the table
 	 * @return AbstractPlayer[]
 	 */
-	private AbstractPlayer[] initPlayers() {
+	private AbstractPlayer[] initPlayers(int numPlayers) {
 		System.out.format("[%s] is initializing players. ", address);
 		List<Address> networkPlayers = view.getMembers();
 		System.out.println("Network players are: " + networkPlayers);
 
-		AbstractPlayer[] players = new AbstractPlayer[4];
+		AbstractPlayer[] players = new AbstractPlayer[Math.max(numPlayers,
+				networkPlayers.size())];
 		int i;
 		for (i = 0; i < networkPlayers.size(); i++) {
 			players[i] = new NetworkPlayer(networkPlayers.get(i), i);
 		}
-		while (i < 4) {
+		while (i < players.length) {
 			players[i] = new CPUPlayer();
 			i++;
 		}
@@ -206,11 +238,27 @@ public class GameConnection extends NetworkConnection implements
 					address, (Combination) msg.getObject(), msg.getSrc());
 			System.out.println("current player being "
 					+ game.getGameState().getCurrentPlayer());
-			NetworkPlayer p = (NetworkPlayer) game.getGameState()
-					.getCurrentPlayer(); // get current player
-			p.setSelectedCombination((Combination) msg.getObject()); // set his
-																		// cards
-			gameStateChanged(game.getGameState()); // sync to all
+			GameState state = game.getGameState();
+			Combination play = (Combination) msg.getObject();
+			/* only the current player may play, and only a legal play */
+			if (!(state.getCurrentPlayer() instanceof NetworkPlayer)
+					|| !((NetworkPlayer) state.getCurrentPlayer()).address
+							.equals(msg.getSrc())) {
+				System.err.format("[%s]: ignoring cards from %s, it is not their turn%n",
+						address, msg.getSrc());
+				break;
+			}
+			try {
+				RuleEngine.check(state, state.getCurrentPlayerIndex(), play);
+			} catch (InvalidCombinationException e) {
+				System.err.format("[%s]: rejected %s from %s: %s%n", address,
+						play, msg.getSrc(), e.getMessage());
+				gameStateChanged(state); // resync the player that sent it
+				break;
+			}
+			NetworkPlayer p = (NetworkPlayer) state.getCurrentPlayer();
+			p.setSelectedCombination(play); // set his cards
+			gameStateChanged(state); // sync to all
 			break;
 		case 't': // a notice that it's this player's turn
 			if (gamePanel == null)
@@ -262,7 +310,6 @@ public class GameConnection extends NetworkConnection implements
 	 * a new game can be started
 	 */
 	public void restart() {
-		gameThread = null;
 		gamePanel = null;
 		rootPanel.getCardLayout().show(rootPanel, "lobby");
 		((CardLayout) lobbyPanel.getLayout()).show(lobbyPanel, "game-setup");
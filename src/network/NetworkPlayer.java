@@ -5,12 +5,15 @@ import game.GameState;
 import game.GameStateChangeListener;
 import game.InvalidCombinationException;
 import game.LocalPlayer;
+import game.RuleEngine;
+import game.RuleSet;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 
 import org.jgroups.Address;
 import org.jgroups.Message;
@@ -33,8 +36,8 @@ public class NetworkPlayer extends LocalPlayer implements Serializable,
 	public GameConnection connection;
 	public Combination previousPlay = null;
 	public Combination selectedCombination;
-	public Thread gameLoopThread;
 	public Card forcedCard;
+	public RuleSet ruleSet = RuleSet.STANDARD;
 
 	/**
 	 * After this, setConnection(GameConnection) must be called for this network player to
@@ -64,14 +67,21 @@ public class NetworkPlayer extends LocalPlayer implements Serializable,
 	}
 
 	@Override
-	/** Send a message to the network player associated with this and sleeps the thread until there is a response */
-	public Combination doTurn(GameState state) {
+	/** Send a message to the network player associated with this. The future is completed when there is a response */
+	public CompletableFuture<Combination> requestTurn(GameState state) {
 		previousPlay = state.getPreviousPlay();
 		forcedCard = state.getForcedCard();
 		System.out.format(
 				"doTurn called on [%s] with previousPlay:%s, forcedCard:%s%n",
 				address, previousPlay, forcedCard);
 
+		/*
+		 * wait for a response (until host receives the cards and sets the selected
+		 * cards). The turn is waiting before the message is sent, so a quick
+		 * response cannot arrive before it
+		 */
+		CompletableFuture<Combination> turn = super.requestTurn(state);
+
 		/* send a message to the associated network player */
 		Message msg = new Message(address, null, previousPlay);
 		msg.putHeader(Command.HEADER_ID, new Command('t'));
@@ -82,34 +92,17 @@ public class NetworkPlayer extends LocalPlayer implements Serializable,
 		} catch (Exception e) {
 			System.err.println("Unable to send the doTurn message");
 			e.printStackTrace();
+			failTurn(e); // no response will come
+			return turn;
 		}
-
-		/*
-		 * wait for a response (until host receives the cards, interrupts the thread, and
-		 * sets the selected cards
-		 */
-		gameLoopThread = Thread.currentThread();
-		try {
-			System.out.println("Now waiting...");
-			Thread.sleep(Long.MAX_VALUE); // wait until interrupted
-		} catch (InterruptedException e) {
-			System.out.println("Done waiting for" + address
-					+ ". Thread interrupted by:" + e.getMessage());
-		} // continue
-
-		System.out.println("Returning the selected combination: "
-				+ selectedCombination);
-		Combination c = selectedCombination; // temp storage
-		selectedCombination = null; // reset selected combination
-		previousPlay = null;
-		return c;
+		return turn;
 	}
 
-	/** sets the selected combination and interrupts the sleeping thread */
+	/** sets the selected combination and completes the turn waiting for it */
 	public void setSelectedCombination(Combination c) {
 		System.out.format("[%s]: received %s and now setting.%n", address, c);
-		selectedCombination = c;
-		gameLoopThread.interrupt();
+		previousPlay = null;
+		finishTurn(c);
 	}
 
 	public void setPreviousPlay(Combination c) {
@@ -131,9 +124,7 @@ public class NetworkPlayer extends LocalPlayer implements Serializable,
 		// For a pass
 		if (selected == null) {
 			// If passing on the first play in a trick
-			if (previousPlay == Combination.getPassCombination())
-				throw new InvalidCombinationException(
-						"You cannot pass on a new trick.");
+			RuleEngine.checkPass(previousPlay);
 			selectedCombination = Combination.getPassCombination();
 		} else {
 			int nSelected = 0; // number of cards that are selected
@@ -143,20 +134,6 @@ public class NetworkPlayer extends LocalPlayer implements Serializable,
 				if (selected[i])
 					nSelected++;
 
-			if (nSelected == 0)
-				throw new InvalidCombinationException("No cards were selected."); // no
-																					// cards
-																					// selected,
-																					// nothing
-																					// happens
-			if (nSelected != previousPlay.getLength()
-					&& previousPlay.getLength() != Combination.PASS)
-				throw new InvalidCombinationException(
-						"You must play the same number of cards as the cards on the table."); // not
-																								// the
-																								// same
-																								// type
-
 			Card[] cards = new Card[nSelected]; // array of selected cards
 
 			int j = 0; // index of cards
@@ -167,33 +144,9 @@ public class NetworkPlayer extends LocalPlayer implements Serializable,
 				}
 			}
 
-			if (forcedCard != null) {
-				boolean hasCard = false;
-				for (int i = 0; i < cards.length; i++) {
-					if (forcedCard.equals(cards[i])) {
-						hasCard = true;
-						break;
-					}
-				}
-				if (!hasCard)
-					throw new InvalidCombinationException("You must have a "
-							+ forcedCard.toString() + " in your combination.");
-			}
-
-			Combination selectedCombination = Combination.getCombination(cards); // get
-																					// combination
-																					// and
-																					// set
-																					// it
-																					// so
-																					// do
-																					// turn
-																					// can
-																					// continue
-			if (selectedCombination.getValue() < previousPlay.getValue())
-				throw new InvalidCombinationException(
-						"The cards selected are of less value than the previously played cards.");
-
+			// get combination and set it so do turn can continue
+			Combination selectedCombination = RuleEngine.checkSelection(
+					ruleSet, previousPlay, forcedCard, cards);
 			this.selectedCombination = selectedCombination;
 		}
 		
@@ -217,6 +170,7 @@ public class NetworkPlayer extends LocalPlayer implements Serializable,
 	@Override
 	public void gameStateChanged(GameState state) {
 		previousPlay = state.getPreviousPlay();
+		ruleSet = state.getRuleSet();
 		hand = state.getPlayers()[index].getHand();
 	}
 }
@@ -0,0 +1,127 @@
+package deck;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import testing.Assert;
+
+/**
+ * Tests of CardCodec: everything written reads back the same, and corrupt input is rejected.
+ * @author Gabriel
+ *
+ */
+public class CardCodecTest {
+	public static void main(String[] args) throws Exception {
+		testCardsRoundTrip();
+		testHandsRoundTrip();
+		testOneDeckHandIsOneLong();
+		testOrderedRoundTrip();
+		testDeckSerialization();
+		testRejectsCorruptInput();
+		System.out.println("CardCodecTest passed");
+	}
+
+	static void testCardsRoundTrip() throws IOException {
+		for (int id = 0; id < Card.DECK_SIZE * Card.MAX_DECKS; id++){
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			CardCodec.writeCard(new DataOutputStream(bytes), Card.ofId(id));
+			Assert.check(bytes.size() == 1, "a card is not one byte");
+			Assert.check(CardCodec.readCard(input(bytes)) == Card.ofId(id), "card " + id);
+		}
+	}
+
+	static void testHandsRoundTrip() throws IOException {
+		SplittableRandom random = new SplittableRandom(5);
+		for (int numDecks = 1; numDecks <= Card.MAX_DECKS; numDecks++){
+			for (int i = 0; i < 100; i++){
+				CardSet hand = new CardSet();
+				for (int deck = 0; deck < numDecks; deck++)
+					hand.addAll(deck, random.nextLong() & CardSet.FULL_DECK);
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				CardCodec.writeHand(new DataOutputStream(bytes), hand);
+				Assert.check(hand.equals(CardCodec.readHand(input(bytes))), "hand of " + numDecks + " decks: " + hand);
+			}
+		}
+	}
+
+	static void testOneDeckHandIsOneLong() throws IOException {
+		CardSet hand = new CardSet(0x1234L);
+		hand.addAll(2, 0L); // an empty deck after the first is not written
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CardCodec.writeHand(new DataOutputStream(bytes), hand);
+		Assert.check(bytes.size() == 8, "a one deck hand took " + bytes.size() + " bytes");
+	}
+
+	static void testOrderedRoundTrip() throws IOException {
+		Deck deck = new Deck(true);
+		deck.addFullDeck(1);
+		deck.addFullDeck(1); // copies keep their place
+		deck.shuffle(new SplittableRandom(6));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CardCodec.writeOrdered(new DataOutputStream(bytes), deck);
+		Deck read = new Deck();
+		CardCodec.readOrdered(input(bytes), read);
+		Assert.check(Arrays.equals(deck.toArray(), read.toArray()), "the order of the deck was not kept");
+	}
+
+	static void testDeckSerialization() throws Exception {
+		Deck deck = new Deck(true);
+		deck.addFullDeck(3);
+		deck.shuffle(new SplittableRandom(7));
+		deck.setFaceUp(deck.get(4), false);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)){
+			out.writeObject(deck);
+		}
+		Deck read = (Deck) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		Assert.check(Arrays.equals(deck.toArray(), read.toArray()), "the cards of the deck were not kept");
+		Assert.check(read.getCardSet().equals(deck.getCardSet()), "the set of the deck was not rebuilt");
+		Assert.check(!read.isFaceUp(deck.get(4)) && read.isFaceUp(deck.get(5)), "face down cards were not kept");
+	}
+
+	static void testRejectsCorruptInput() throws IOException {
+		assertCorrupt(new byte[]{(byte) 60}, Kind.CARD); // ordinal number past the deck
+		assertCorrupt(longBytes(1L << 55), Kind.MASK);
+		assertCorrupt(longBytes(1L << 55), Kind.HAND);
+		// Every long says another deck follows
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (int i = 0; i <= Card.MAX_DECKS; i++)
+			out.writeLong(1L << 63 | 1);
+		assertCorrupt(bytes.toByteArray(), Kind.HAND);
+	}
+
+	private enum Kind { CARD, MASK, HAND }
+
+	private static void assertCorrupt(byte[] bytes, Kind kind) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		try {
+			switch (kind){
+			case CARD: CardCodec.readCard(in); break;
+			case MASK: CardCodec.readMask(in); break;
+			case HAND: CardCodec.readHand(in); break;
+			}
+			Assert.check(false, "corrupt " + kind + " was read");
+		} catch (StreamCorruptedException e){
+			// expected
+		}
+	}
+
+	private static byte[] longBytes(long value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new DataOutputStream(bytes).writeLong(value);
+		return bytes.toByteArray();
+	}
+
+	private static DataInputStream input(ByteArrayOutputStream bytes){
+		return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+}
@@ -0,0 +1,87 @@
+package deck;
+
+import java.util.SplittableRandom;
+
+import testing.Assert;
+
+/**
+ * Tests of CardSet, and of Deck keeping its set in step with its list.
+ * @author Gabriel
+ *
+ */
+public class CardSetTest {
+	public static void main(String[] args){
+		testAddRemoveContains();
+		testMultipleDecks();
+		testIterationOrder();
+		testDeckKeepsSetInStep();
+		System.out.println("CardSetTest passed");
+	}
+
+	static void testAddRemoveContains(){
+		CardSet set = new CardSet();
+		for (int n = 0; n < Card.DECK_SIZE; n += 3)
+			Assert.check(set.add(Card.of(n)), "card " + n + " was already in the set");
+		Assert.check(!set.add(Card.of(0)), "a card was added twice");
+		for (int n = 0; n < Card.DECK_SIZE; n++)
+			Assert.check(set.contains(Card.of(n)) == (n % 3 == 0), "contains(" + n + ")");
+		Assert.check(set.size() == 18, "size " + set.size());
+		Assert.check(set.remove(Card.of(3)) && !set.remove(Card.of(3)), "remove");
+		Assert.check(!set.contains(Card.of(3)) && set.size() == 17, "card still in the set after remove");
+		set.clear();
+		Assert.check(set.isEmpty() && set.toLong() == 0, "clear");
+	}
+
+	static void testMultipleDecks(){
+		CardSet set = new CardSet();
+		set.add(Card.of(0, 5));
+		set.add(Card.of(2, 5));
+		Assert.check(set.size() == 2 && set.numDecks() >= 3, "copies from other decks are separate cards");
+		Assert.check(set.getMask(0) == 1L << 5 && set.getMask(1) == 0 && set.getMask(2) == 1L << 5, "masks of each deck");
+		Assert.check(set.contains(Card.of(2, 5)) && !set.contains(Card.of(1, 5)), "contains by deck");
+		set.remove(Card.of(0, 5));
+		Assert.check(set.toLong() == 0 && set.contains(Card.of(2, 5)), "removing one copy keeps the other");
+	}
+
+	/**
+	 * get(int) and the iterator give the cards by deck, then by ordinal number.
+	 */
+	static void testIterationOrder(){
+		CardSet set = new CardSet();
+		int[] ids = {60, 3, 51, 104, 7};
+		for (int id : ids)
+			set.add(Card.ofId(id));
+		int[] expected = {3, 7, 51, 60, 104};
+		int i = 0;
+		for (Card c : set){
+			Assert.check(c.getId() == expected[i], "card " + i + " of the iteration is " + c);
+			Assert.check(set.get(i) == c, "get(" + i + ") is not the card iterated");
+			i++;
+		}
+		Assert.check(i == expected.length, "iterated " + i + " cards");
+	}
+
+	/**
+	 * A deck's set holds exactly the cards of its list through adds, removes and deals, including
+	 * copies of a card from the same deck index.
+	 */
+	static void testDeckKeepsSetInStep(){
+		SplittableRandom random = new SplittableRandom(3);
+		Deck deck = new Deck(true);
+		deck.addFullDeck(1);
+		deck.addFullDeck(0); // copies of the first deck
+		deck.shuffle(random);
+		while (deck.size() > 0){
+			Card c;
+			if (random.nextBoolean())
+				c = deck.deal();
+			else {
+				c = deck.get(random.nextInt(deck.size()));
+				Assert.check(deck.remove(c), "a card in the deck was not removed");
+			}
+			for (Card card : new Card[]{c, Card.of(c.getOrdinalNumber()), Card.of(1, c.getOrdinalNumber())})
+				Assert.check(deck.contains(card) == (deck.indexOf(card) >= 0), "set and list disagree on " + card);
+		}
+		Assert.check(deck.getCardSet().isEmpty(), "cards left in the set of an empty deck");
+	}
+}
@@ -0,0 +1,77 @@
+package deck;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import testing.Assert;
+
+/**
+ * Tests of ConstrainedDealer: constraints are met, hands have the right sizes, and the constrained
+ * cards are uniform over the ways to meet the constraint.
+ * @author Gabriel
+ *
+ */
+public class ConstrainedDealerTest {
+	public static void main(String[] args){
+		testConstraintsMet();
+		testFullHouseUniform();
+		testFlushUniform();
+		System.out.println("ConstrainedDealerTest passed");
+	}
+
+	static void testConstraintsMet(){
+		ConstrainedDealer dealer = new ConstrainedDealer(4, new SplittableRandom(1));
+		dealer.require(0, ConstrainedDealer.Constraint.fourOfAKind(Rank.TWO));
+		dealer.require(1, ConstrainedDealer.Constraint.straightFlush());
+		dealer.require(2, ConstrainedDealer.Constraint.fullHouse());
+		dealer.require(3, ConstrainedDealer.Constraint.flush());
+		CardSet[] hands = {new CardSet(), new CardSet(), new CardSet(), new CardSet()};
+		for (int deal = 0; deal < 1000; deal++){
+			dealer.nextDeal(hands);
+			long dealt = 0L;
+			for (int seat = 0; seat < hands.length; seat++){
+				Assert.check(hands[seat].size() == dealer.getHandSize(seat), "seat " + seat + " has " + hands[seat].size() + " cards");
+				Assert.check((dealt & hands[seat].toLong()) == 0, "a card was dealt twice");
+				dealt |= hands[seat].toLong();
+			}
+			Assert.check(dealt == CardSet.FULL_DECK, "cards were not dealt");
+			Assert.check(hands[0].containsAll(0xFL << 48), "no four 2s in " + hands[0]);
+		}
+	}
+
+	/**
+	 * With four 3s and three 4s available there are 4 * 3 full houses of 3s over 4s and 1 * 6 of 4s
+	 * over 3s, and each of the 18 should be dealt as often.
+	 */
+	static void testFullHouseUniform(){
+		long available = 0xFL | 0x7L << 4;
+		assertUniform(ConstrainedDealer.Constraint.fullHouse(), available, 18);
+	}
+
+	/**
+	 * With six diamonds and five clubs available there are 6 flushes of diamonds and 1 of clubs.
+	 */
+	static void testFlushUniform(){
+		long diamonds = 0L, clubs = 0L;
+		for (int rank = 0; rank < 6; rank++)
+			diamonds |= 1L << (rank * 4);
+		for (int rank = 0; rank < 5; rank++)
+			clubs |= 1L << (rank * 4 + 1);
+		assertUniform(ConstrainedDealer.Constraint.flush(), diamonds | clubs, 7);
+	}
+
+	/**
+	 * Checks that a constraint chooses each of its outcomes within 10% of equally often.
+	 */
+	private static void assertUniform(ConstrainedDealer.Constraint constraint, long available, int outcomes){
+		SplittableRandom random = new SplittableRandom(2);
+		int samples = outcomes * 5000;
+		Map<Long, Integer> counts = new HashMap<Long, Integer>();
+		for (int i = 0; i < samples; i++)
+			counts.merge(constraint.choose(available, random), 1, Integer::sum);
+		Assert.check(counts.size() == outcomes, counts.size() + " outcomes instead of " + outcomes);
+		for (Map.Entry<Long, Integer> e : counts.entrySet())
+			Assert.check(Math.abs(e.getValue() - 5000) < 500, Long.toHexString(e.getKey()) + " chosen " + e.getValue() + " times");
+	}
+}
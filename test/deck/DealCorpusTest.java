@@ -0,0 +1,129 @@
+package deck;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import testing.Assert;
+
+/**
+ * Tests of DealCorpus: deals read back as written, and corrupt files are rejected.
+ * @author Gabriel
+ *
+ */
+public class DealCorpusTest {
+	private static final int HEADER_SIZE = 16;
+
+	public static void main(String[] args) throws IOException {
+		testReadsWhatWasWritten(4, 1);
+		testReadsWhatWasWritten(6, 2);
+		testRejectsBitsOutsideTheDeck();
+		testRejectsCardsDealtTwice();
+		testRejectsWrongHandSizes();
+		testRejectsTruncatedFile();
+		System.out.println("DealCorpusTest passed");
+	}
+
+	static void testReadsWhatWasWritten(int numSeats, int numDecks) throws IOException {
+		Path file = write(numSeats, numDecks, 20, 7);
+		DealCorpus corpus = new DealCorpus(file);
+		Dealer dealer = new Dealer(numDecks);
+		SplittableRandom random = new SplittableRandom(7);
+		CardSet[] expected = hands(numSeats), actual = hands(numSeats);
+		while (corpus.hasNext()){
+			dealer.deal(expected, random);
+			corpus.nextDeal(actual);
+			for (int seat = 0; seat < numSeats; seat++)
+				Assert.check(expected[seat].equals(actual[seat]), "seat " + seat + " was dealt " + actual[seat]);
+		}
+		Files.delete(file);
+	}
+
+	static void testRejectsBitsOutsideTheDeck() throws IOException {
+		Path file = write(4, 1, 1, 1);
+		long mask = readLong(file, HEADER_SIZE);
+		writeLong(file, HEADER_SIZE, mask | 1L << 60);
+		assertCorrupt(file);
+	}
+
+	static void testRejectsCardsDealtTwice() throws IOException {
+		// Give seat 0 a card of seat 1 as well
+		Path file = write(4, 1, 1, 2);
+		long seat0 = readLong(file, HEADER_SIZE), seat1 = readLong(file, HEADER_SIZE + 8);
+		writeLong(file, HEADER_SIZE, seat0 | Long.lowestOneBit(seat1));
+		assertCorrupt(file);
+	}
+
+	static void testRejectsWrongHandSizes() throws IOException {
+		// Move a card from seat 1 to seat 0, so every card is still dealt once
+		Path file = write(4, 1, 1, 3);
+		long seat0 = readLong(file, HEADER_SIZE), seat1 = readLong(file, HEADER_SIZE + 8);
+		long card = Long.lowestOneBit(seat1);
+		writeLong(file, HEADER_SIZE, seat0 | card);
+		writeLong(file, HEADER_SIZE + 8, seat1 & ~card);
+		assertCorrupt(file);
+	}
+
+	static void testRejectsTruncatedFile() throws IOException {
+		Path file = write(4, 1, 3, 4);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+			channel.truncate(channel.size() - 8);
+		}
+		try {
+			new DealCorpus(file);
+			Assert.check(false, "a truncated corpus was opened");
+		} catch (IOException e){
+			// expected
+		}
+		Files.delete(file);
+	}
+
+	private static void assertCorrupt(Path file) throws IOException {
+		DealCorpus corpus = new DealCorpus(file);
+		CardSet[] hands = hands(corpus.getNumSeats());
+		try {
+			corpus.nextDeal(hands);
+			Assert.check(false, "a corrupt deal was dealt");
+		} catch (UncheckedIOException e){
+			// expected
+		}
+		for (CardSet hand : hands)
+			Assert.check(hand.isEmpty(), "hands were changed by a corrupt deal");
+		Files.delete(file);
+	}
+
+	private static Path write(int numSeats, int numDecks, long numDeals, long seed) throws IOException {
+		Path file = Files.createTempFile("corpus", ".b2dc");
+		try (OutputStream out = Files.newOutputStream(file)){
+			DealCorpus.write(out, numSeats, numDecks, numDeals, new SplittableRandom(seed));
+		}
+		return file;
+	}
+
+	private static long readLong(Path file, long position) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			ByteBuffer buffer = ByteBuffer.allocate(8);
+			channel.read(buffer, position);
+			return buffer.getLong(0);
+		}
+	}
+
+	private static void writeLong(Path file, long position, long value) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+			channel.write(ByteBuffer.allocate(8).putLong(0, value), position);
+		}
+	}
+
+	private static CardSet[] hands(int numSeats){
+		CardSet[] hands = new CardSet[numSeats];
+		for (int i = 0; i < numSeats; i++)
+			hands[i] = new CardSet();
+		return hands;
+	}
+}
@@ -0,0 +1,89 @@
+package deck;
+
+import java.util.SplittableRandom;
+
+import testing.Assert;
+
+/**
+ * Tests of Dealer.
+ * @author Gabriel
+ *
+ */
+public class DealerTest {
+	public static void main(String[] args){
+		testSameAsShufflingADeck(4, 1);
+		testSameAsShufflingADeck(3, 1);
+		testSameAsShufflingADeck(6, 2);
+		testEveryCardDealtOnce(8, 3);
+		testCardsEvenlySpread();
+		System.out.println("DealerTest passed");
+	}
+
+	/**
+	 * A generator in a given state deals the same hands as shuffling a full deck with it and dealing
+	 * round robin.
+	 */
+	static void testSameAsShufflingADeck(int numSeats, int numDecks){
+		Dealer dealer = new Dealer(numDecks);
+		CardSet[] hands = hands(numSeats);
+		for (long seed = 0; seed < 50; seed++){
+			dealer.deal(hands, new SplittableRandom(seed));
+			Deck deck = new Deck();
+			for (int d = 0; d < numDecks; d++)
+				deck.addFullDeck(d);
+			deck.shuffle(new SplittableRandom(seed));
+			CardSet[] expected = hands(numSeats);
+			for (int i = 0; deck.size() > 0; i++)
+				expected[i % numSeats].add(deck.deal());
+			for (int seat = 0; seat < numSeats; seat++)
+				Assert.check(expected[seat].equals(hands[seat]), "seat " + seat + " of seed " + seed);
+		}
+	}
+
+	static void testEveryCardDealtOnce(int numSeats, int numDecks){
+		Dealer dealer = new Dealer(numDecks);
+		CardSet[] hands = hands(numSeats);
+		int numCards = numDecks * Card.DECK_SIZE;
+		for (long seed = 0; seed < 50; seed++){
+			dealer.deal(hands, new SplittableRandom(seed));
+			for (int deck = 0; deck < numDecks; deck++){
+				long dealt = 0L;
+				for (CardSet hand : hands){
+					Assert.check((dealt & hand.getMask(deck)) == 0, "a card was dealt twice");
+					dealt |= hand.getMask(deck);
+				}
+				Assert.check(dealt == CardSet.FULL_DECK, "cards of deck " + deck + " were not dealt");
+			}
+			for (int seat = 0; seat < numSeats; seat++)
+				Assert.check(hands[seat].size() == numCards / numSeats + (seat < numCards % numSeats ? 1 : 0),
+						"seat " + seat + " has " + hands[seat].size() + " cards");
+		}
+	}
+
+	/**
+	 * Every card goes to every seat about equally often.
+	 */
+	static void testCardsEvenlySpread(){
+		Dealer dealer = new Dealer();
+		CardSet[] hands = hands(4);
+		SplittableRandom random = new SplittableRandom(13);
+		int[][] counts = new int[4][Card.DECK_SIZE];
+		int deals = 20000;
+		for (int i = 0; i < deals; i++){
+			dealer.deal(hands, random);
+			for (int seat = 0; seat < 4; seat++)
+				for (long cards = hands[seat].toLong(); cards != 0; cards &= cards - 1)
+					counts[seat][Long.numberOfTrailingZeros(cards)]++;
+		}
+		for (int seat = 0; seat < 4; seat++)
+			for (int n = 0; n < Card.DECK_SIZE; n++)
+				Assert.check(Math.abs(counts[seat][n] - deals / 4) < deals / 40, Card.of(n) + " went to seat " + seat + " " + counts[seat][n] + " times");
+	}
+
+	private static CardSet[] hands(int numSeats){
+		CardSet[] hands = new CardSet[numSeats];
+		for (int i = 0; i < numSeats; i++)
+			hands[i] = new CardSet();
+		return hands;
+	}
+}
@@ -0,0 +1,48 @@
+package deck;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+import testing.Assert;
+
+/**
+ * Tests of Deck.sort(CardOrder) against a comparison sort of the same keys.
+ * @author Gabriel
+ *
+ */
+public class DeckSortTest {
+	public static void main(String[] args){
+		SplittableRandom random = new SplittableRandom(11);
+		for (CardOrder order : CardOrder.values()){
+			for (int numDecks = 1; numDecks <= 2; numDecks++){
+				Deck deck = new Deck();
+				for (int d = 0; d < numDecks; d++)
+					deck.addFullDeck(d);
+				deck.shuffle(random);
+				while (deck.size() > 20)
+					deck.deal();
+				Card[] expected = deck.toArray();
+				Arrays.sort(expected, Comparator.comparingInt(order::key)); // stable, like the counting sort
+				deck.sort(order);
+				Assert.check(Arrays.equals(expected, deck.toArray()), order + " sorted " + deck);
+			}
+		}
+		testOrders();
+		System.out.println("DeckSortTest passed");
+	}
+
+	/**
+	 * The first and last cards of each order.
+	 */
+	static void testOrders(){
+		Deck deck = new Deck(true);
+		deck.shuffle(new SplittableRandom(12));
+		deck.sort(CardOrder.BIG_TWO);
+		Assert.check(deck.get(0) == Card.of(Rank.THREE, Suit.DIAMONDS) && deck.get(51) == Card.of(Rank.TWO, Suit.SPADES), "Big 2 order");
+		deck.sort(CardOrder.SUIT_THEN_RANK);
+		Assert.check(deck.get(0) == Card.of(Rank.ACE, Suit.SPADES) && deck.get(51) == Card.of(Rank.KING, Suit.DIAMONDS), "suit then rank order");
+		deck.sort(CardOrder.ACE_LOW);
+		Assert.check(deck.get(0).rank == Rank.ACE && deck.get(51).rank == Rank.KING, "ace low order");
+	}
+}
@@ -0,0 +1,101 @@
+package deck;
+
+import java.util.SplittableRandom;
+
+import testing.Assert;
+
+/**
+ * Tests of SuitCanonicalizer: relabellings it allows keep the order of the live cards, and positions
+ * that only differ by such a relabelling have the same canonical form.
+ * @author Gabriel
+ *
+ */
+public class SuitCanonicalizerTest {
+	private static final int NUM_PERMUTATIONS = 24;
+
+	public static void main(String[] args){
+		testFullDeckOnlyIdentity();
+		testValidKeepsOrder();
+		testEquivalentPositionsMatch();
+		testMapUnmap();
+		System.out.println("SuitCanonicalizerTest passed");
+	}
+
+	static void testFullDeckOnlyIdentity(){
+		for (int p = 1; p < NUM_PERMUTATIONS; p++)
+			Assert.check(!SuitCanonicalizer.isValid(p, CardSet.FULL_DECK), "permutation " + p + " is valid with every card live");
+		Assert.check(SuitCanonicalizer.isValid(0, CardSet.FULL_DECK), "the identity is not valid");
+	}
+
+	/**
+	 * A valid relabelling keeps the order of every two live cards, keeps the three of diamonds, and
+	 * with a global suit order keeps the order of the live suits.
+	 */
+	static void testValidKeepsOrder(){
+		SplittableRandom random = new SplittableRandom(8);
+		for (int i = 0; i < 2000; i++){
+			long live = sparse(random);
+			boolean global = random.nextBoolean();
+			for (int p = 0; p < NUM_PERMUTATIONS; p++){
+				if (!SuitCanonicalizer.isValid(p, live, Suit.values(), global))
+					continue;
+				Assert.check(SuitCanonicalizer.apply(p, live & 1) == (live & 1), "the three of diamonds moved");
+				for (long a = live; a != 0; a &= a - 1){
+					long cardA = Long.lowestOneBit(a);
+					for (long b = a & (a - 1); b != 0; b &= b - 1){
+						long cardB = Long.lowestOneBit(b);
+						// cardA is the lower card, so it must still be after relabelling
+						Assert.check(Long.compareUnsigned(SuitCanonicalizer.apply(p, cardA), SuitCanonicalizer.apply(p, cardB)) < 0,
+								"permutation " + p + " changes the order of live cards of " + Long.toHexString(live));
+						int suitA = Long.numberOfTrailingZeros(cardA) % 4, suitB = Long.numberOfTrailingZeros(cardB) % 4;
+						int mappedA = Long.numberOfTrailingZeros(SuitCanonicalizer.apply(p, cardA)) % 4;
+						int mappedB = Long.numberOfTrailingZeros(SuitCanonicalizer.apply(p, cardB)) % 4;
+						if (global && suitA != suitB)
+							Assert.check((suitA < suitB) == (mappedA < mappedB), "permutation " + p + " changes the order of live suits");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Relabelling a position with any valid permutation gives the same canonical form.
+	 */
+	static void testEquivalentPositionsMatch(){
+		SplittableRandom random = new SplittableRandom(9);
+		for (int i = 0; i < 2000; i++){
+			long live = sparse(random);
+			long hand0 = live & random.nextLong(), hand1 = live & ~hand0;
+			SuitCanonicalizer.Canonical canonical = SuitCanonicalizer.canonicalize(live, hand0, hand1);
+			for (int p = 0; p < NUM_PERMUTATIONS; p++){
+				if (!SuitCanonicalizer.isValid(p, live))
+					continue;
+				long mappedLive = SuitCanonicalizer.apply(p, live);
+				SuitCanonicalizer.Canonical other = SuitCanonicalizer.canonicalize(mappedLive,
+						SuitCanonicalizer.apply(p, hand0), SuitCanonicalizer.apply(p, hand1));
+				Assert.check(canonical.equals(other) && canonical.hashCode() == other.hashCode(),
+						"relabelled position of " + Long.toHexString(live) + " has another canonical form");
+			}
+		}
+	}
+
+	static void testMapUnmap(){
+		SplittableRandom random = new SplittableRandom(10);
+		for (int i = 0; i < 200; i++){
+			long live = sparse(random);
+			SuitCanonicalizer.Canonical canonical = SuitCanonicalizer.canonicalize(live, live);
+			Assert.check(canonical.getLive() == SuitCanonicalizer.apply(canonical.getPermutation(), live), "the live cards were not relabelled");
+			for (int n = 0; n < Card.DECK_SIZE; n++){
+				Card card = Card.of(n);
+				Assert.check(canonical.unmap(canonical.map(card)) == card, "unmap does not undo map for " + card);
+			}
+		}
+	}
+
+	/**
+	 * Returns random live cards, few enough that suits can often be relabelled.
+	 */
+	private static long sparse(SplittableRandom random){
+		return random.nextLong() & random.nextLong() & random.nextLong() & CardSet.FULL_DECK;
+	}
+}
@@ -0,0 +1,145 @@
+package game;
+
+import java.util.List;
+import java.util.Random;
+
+import deck.Card;
+import deck.CardSet;
+import testing.Assert;
+
+/**
+ * Tests BeatsIndex against a search of every move of a hand, under every variant of the rules.
+ * @author Gabriel
+ *
+ */
+public class BeatsIndexTest {
+	private static final int HANDS = 200;
+	private static final int PLAYS_PER_HAND = 50;
+
+	public static void main(String[] args){
+		Random random = new Random(18);
+		for (RuleSet rules : RuleSetTest.variants()){
+			MoveGenerator generator = new MoveGenerator(rules);
+			long[] plays = moves(generator, CardSet.FULL_DECK, rules);
+			for (int hand = 0; hand < HANDS; hand++)
+				testHand(rules, generator, randomHand(random, 13), plays, random);
+		}
+		testPassRejected();
+		System.out.println("BeatsIndexTest passed");
+	}
+
+	/**
+	 * The index of a hand answers like a search of its moves, before and after some of its cards are
+	 * played.
+	 */
+	static void testHand(RuleSet rules, MoveGenerator generator, long hand, long[] plays, Random random){
+		BeatsIndex index = BeatsIndex.forHand(hand, rules);
+		for (int step = 0; step < 3 && hand != 0; step++){
+			long[] moves = moves(generator, hand, rules);
+			for (int length = Combination.SINGLE; length <= Combination.POKER_HAND; length++)
+				Assert.check(index.size(length) == count(moves, length), "the index of " + describe(hand)
+						+ " has " + index.size(length) + " moves of length " + length);
+			for (int i = 0; i < PLAYS_PER_HAND; i++)
+				checkBeating(rules, index, moves, plays[random.nextInt(plays.length)]);
+
+			// Play a move of the hand and remove its cards
+			long played = Move.mask(moves[random.nextInt(moves.length)]);
+			int removed = index.removeCards(played);
+			int using = 0;
+			for (long move : moves)
+				if ((Move.mask(move) & played) != 0)
+					using++;
+			Assert.check(removed == using, "removing " + describe(played) + " removed " + removed
+					+ " moves instead of " + using);
+			hand &= ~played;
+		}
+	}
+
+	/**
+	 * The cheapest move that beats a play is that of the same length with the smallest value, or the
+	 * cheapest bomb if there is none, and beating lists every move that beats the play.
+	 */
+	static void checkBeating(RuleSet rules, BeatsIndex index, long[] moves, long previous){
+		long sameLength = Move.NONE, other = Move.NONE;
+		int numBeating = 0;
+		for (long move : moves){
+			if (!Move.beats(move, previous, rules))
+				continue;
+			numBeating++;
+			if (Move.length(move) == Move.length(previous)){
+				if (sameLength == Move.NONE || Move.value(move) < Move.value(sameLength))
+					sameLength = move;
+			}
+			else if (other == Move.NONE || Move.value(move) < Move.value(other))
+				other = move;
+		}
+		long expected = sameLength != Move.NONE ? sameLength : other;
+		long actual = index.cheapestBeating(previous);
+		String play = Move.toString(previous);
+		if (expected == Move.NONE)
+			Assert.check(actual == Move.NONE, Move.toString(actual) + " was found to beat " + play);
+		else {
+			Assert.check(actual != Move.NONE, "nothing was found to beat " + play);
+			Assert.check(Move.beats(actual, previous, rules), Move.toString(actual) + " does not beat " + play);
+			Assert.check(Move.length(actual) == Move.length(expected) && Move.value(actual) == Move.value(expected),
+					Move.toString(actual) + " was found to beat " + play + " instead of " + Move.toString(expected));
+		}
+
+		Combination combination = Move.toCombination(previous);
+		Combination cheapest = index.cheapestBeating(combination);
+		Assert.check(expected == Move.NONE ? cheapest == null : cheapest != null
+				&& Move.value(Move.of(cheapest, rules)) == Move.value(expected),
+				cheapest + " was found to beat " + combination);
+		List<Combination> beating = index.beating(combination);
+		Assert.check(beating.size() == numBeating, beating.size() + " combinations were found to beat "
+				+ combination + " instead of " + numBeating);
+		for (Combination c : beating)
+			Assert.check(Move.beats(Move.of(c, rules), previous, rules), c + " does not beat " + combination);
+	}
+
+	static void testPassRejected(){
+		BeatsIndex index = BeatsIndex.forHand(CardSet.FULL_DECK);
+		try {
+			index.cheapestBeating(Combination.getPassCombination());
+			Assert.check(false, "a pass was accepted as a play to beat");
+		} catch (IllegalArgumentException e){
+		}
+		try {
+			index.add(Move.PASS);
+			Assert.check(false, "a pass was indexed");
+		} catch (IllegalArgumentException e){
+		}
+	}
+
+	/**
+	 * Returns every move of a hand, packed with the rules.
+	 */
+	static long[] moves(MoveGenerator generator, long hand, RuleSet rules){
+		long[] moves = new long[generator.generate(hand)];
+		for (int i = 0; i < moves.length; i++)
+			moves[i] = Move.of(generator.get(i), rules);
+		return moves;
+	}
+
+	private static int count(long[] moves, int length){
+		int count = 0;
+		for (long move : moves)
+			if (Move.length(move) == length)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Returns a random mask of some cards of the first deck.
+	 */
+	static long randomHand(Random random, int size){
+		long hand = 0;
+		while (Long.bitCount(hand) < size)
+			hand |= 1L << random.nextInt(Card.DECK_SIZE);
+		return hand;
+	}
+
+	static String describe(long mask){
+		return new CardSet(mask).toString();
+	}
+}
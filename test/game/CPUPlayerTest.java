@@ -0,0 +1,119 @@
+package game;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import deck.Card;
+import deck.CardSet;
+import deck.Rank;
+import deck.Suit;
+import testing.Assert;
+
+/**
+ * Tests of CPUPlayer. The simulations play seeded games at full speed and check every play of every
+ * CPU player against RuleEngine, so a CPU that plays cards it no longer holds fails them.
+ * @author Gabriel
+ *
+ */
+public class CPUPlayerTest {
+	public static void main(String[] args) throws Exception {
+		testNoCombinationOfPlayedCards();
+		testCardsLeftOutBecomeSingles();
+		testLegalPlays(4, 1, 1000);
+		testLegalPlays(8, 2, 200);
+		System.out.println("CPUPlayerTest passed");
+	}
+
+	/**
+	 * After a quad and kicker is played, no other combination with those cards may be led.
+	 */
+	static void testNoCombinationOfPlayedCards(){
+		CPUPlayer cpu = new CPUPlayer();
+		cpu.setHand(set(Card.of(Rank.SIX, Suit.CLUBS), Card.of(Rank.NINE, Suit.DIAMONDS),
+				Card.of(Rank.KING, Suit.DIAMONDS), Card.of(Rank.KING, Suit.CLUBS),
+				Card.of(Rank.KING, Suit.HEARTS), Card.of(Rank.KING, Suit.SPADES)));
+		GameState state = new GameState(new AbstractPlayer[]{cpu, new CPUPlayer()});
+
+		Combination first = cpu.doTurn(state);
+		Assert.check(first.getLength() == Combination.POKER_HAND, "the quad was not led: " + first);
+		cpu.removeCombination(first);
+
+		Combination second = cpu.doTurn(state);
+		Assert.check(RuleEngine.isLegal(state, 0, second), "led cards no longer held: " + second);
+		Assert.check(second.getLength() == Combination.SINGLE, "expected the last card: " + second);
+	}
+
+	/**
+	 * Cards whose only combinations were removed with a play are kept as singles.
+	 */
+	static void testCardsLeftOutBecomeSingles(){
+		// The flushes 3 to J and 5 to K of diamonds, and 3 is in no other combination
+		CPUPlayer cpu = new CPUPlayer();
+		Card[] diamonds = new Card[7];
+		for (int i = 0; i < diamonds.length; i++)
+			diamonds[i] = Card.of(Rank.values()[i * 2], Suit.DIAMONDS);
+		cpu.setHand(set(diamonds));
+		GameState state = new GameState(new AbstractPlayer[]{cpu, new CPUPlayer()});
+
+		// Beat a flush to Q with the flush to K
+		Card[] hearts = new Card[5];
+		for (int i = 0; i < hearts.length; i++)
+			hearts[i] = Card.of(Rank.values()[i * 2 + 1], Suit.HEARTS);
+		state.setPreviousPlay(Combination.getCombinationOrNull(hearts));
+		Combination played = cpu.doTurn(state);
+		Assert.check(played.getLength() == Combination.POKER_HAND, "the flush was not played: " + played);
+		Assert.check(Move.contains(Move.of(played), Card.of(Rank.KING, Suit.DIAMONDS)), "the wrong flush was played: " + played);
+		cpu.removeCombination(played);
+
+		// The 3 is now the cheapest single
+		state.setPreviousPlay(Combination.getPassCombination());
+		Combination lead = cpu.doTurn(state);
+		Assert.check(RuleEngine.isLegal(state, 0, lead), "led cards no longer held: " + lead);
+		Assert.check(Move.contains(Move.of(lead), Card.of(Rank.THREE, Suit.DIAMONDS)), "the 3 was not led: " + lead);
+	}
+
+	/**
+	 * Plays seeded games of CPU players and checks that every play is legal.
+	 */
+	static void testLegalPlays(int numPlayers, int numDecks, int games) throws Exception {
+		long seed = ThreadLocalRandom.current().nextLong();
+		for (int g = 0; g < games; g++){
+			CheckedCPUPlayer[] players = new CheckedCPUPlayer[numPlayers];
+			for (int i = 0; i < players.length; i++)
+				players[i] = new CheckedCPUPlayer(i);
+			Game game = new Game(players, numDecks);
+			game.setTurbo(true);
+			game.newGame(seed + g);
+			Assert.check(game.start().get().isGameOver(), "the game did not finish");
+			for (CheckedCPUPlayer p : players)
+				Assert.check(p.illegal == null, "illegal play " + p.illegal + " in the game of seed "
+						+ (seed + g) + " with " + numPlayers + " players and " + numDecks + " decks");
+		}
+	}
+
+	private static CardSet set(Card... cards){
+		CardSet set = new CardSet();
+		for (Card c : cards)
+			set.add(c);
+		return set;
+	}
+
+	/**
+	 * A CPU player that records the first of its plays the rules do not allow.
+	 */
+	private static class CheckedCPUPlayer extends CPUPlayer {
+		final int seat;
+		Combination illegal;
+
+		CheckedCPUPlayer(int seat){
+			this.seat = seat;
+		}
+
+		@Override
+		public Combination doTurn(GameState state){
+			Combination play = super.doTurn(state);
+			if (illegal == null && play.getLength() != Combination.PASS && !RuleEngine.isLegal(state, seat, play))
+				illegal = play;
+			return play;
+		}
+	}
+}
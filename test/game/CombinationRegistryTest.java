@@ -0,0 +1,63 @@
+package game;
+
+import deck.Card;
+import testing.Assert;
+
+/**
+ * Tests that CombinationRegistry holds exactly the combinations of one deck, as shared instances.
+ * @author Gabriel
+ *
+ */
+public class CombinationRegistryTest {
+	public static void main(String[] args){
+		testPass();
+		testMatchesCombination();
+		System.out.println("CombinationRegistryTest passed");
+	}
+
+	static void testPass(){
+		Assert.check(CombinationRegistry.get(0L).getLength() == Combination.PASS, "the empty mask is not a pass");
+	}
+
+	/**
+	 * Every subset of 1, 2, 3 or 5 cards is in the registry exactly when the cards form a combination,
+	 * with the same value, and every lookup returns the same instance.
+	 */
+	static void testMatchesCombination(){
+		int found = 0;
+		for (int length : new int[]{1, 2, 3, 5})
+			found += checkSubsets(0L, 0, length);
+		Assert.check(found == CombinationRegistry.size(), "the registry has " + CombinationRegistry.size()
+				+ " combinations, but there are " + found);
+	}
+
+	private static int checkSubsets(long mask, int from, int left){
+		if (left == 0)
+			return check(mask) ? 1 : 0;
+		int found = 0;
+		for (int n = from; n <= Card.DECK_SIZE - left; n++)
+			found += checkSubsets(mask | 1L << n, n + 1, left - 1);
+		return found;
+	}
+
+	private static boolean check(long mask){
+		Card[] cards = new Card[Long.bitCount(mask)];
+		int k = 0;
+		for (long bits = mask; bits != 0; bits &= bits - 1)
+			cards[k++] = Card.of(Long.numberOfTrailingZeros(bits));
+		Combination expected = Combination.getCombinationOrNull(cards);
+		Combination actual = CombinationRegistry.get(mask);
+		if (expected == null){
+			Assert.check(actual == null, "the registry has " + actual + ", which is not a combination");
+			return false;
+		}
+		Assert.check(actual != null, "the registry is missing " + expected);
+		Assert.check(actual.getMask() == mask, actual + " has the wrong mask");
+		Assert.check(actual.getValue() == expected.getValue(), actual + " has value " + actual.getValue()
+				+ " instead of " + expected.getValue());
+		Assert.check(actual.equals(expected) && actual.hashCode() == expected.hashCode(),
+				actual + " is not equal to a new combination of its cards");
+		Assert.check(CombinationRegistry.get(mask) == actual, actual + " is not shared");
+		return true;
+	}
+}
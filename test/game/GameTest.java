@@ -0,0 +1,140 @@
+package game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import deck.CardSet;
+import deck.ConstrainedDealer;
+import testing.Assert;
+
+/**
+ * Tests of Game.
+ * @author Gabriel
+ *
+ */
+public class GameTest {
+	public static void main(String[] args) throws Exception {
+		testSeedReproducesDeal();
+		testNoSeedForDealSourceDeals();
+		testTurboNotifiesOnlyWhenOver();
+		testGamesShareOneThread();
+		System.out.println("GameTest passed");
+	}
+
+	static void testSeedReproducesDeal(){
+		Game game = Game.createSinglePlayerGame();
+		game.newGame(42);
+		Assert.check(game.hasDealSeed() && game.getDealSeed() == 42, "the seed was not kept");
+		CardSet hand = new CardSet(game.getGameState().getPlayer(0).getCardSet());
+		game.newGame(43);
+		game.newGame(42);
+		Assert.check(hand.equals(game.getGameState().getPlayer(0).getCardSet()), "the seed did not reproduce the deal");
+	}
+
+	static void testNoSeedForDealSourceDeals(){
+		Game game = Game.createSinglePlayerGame();
+		game.newGame(42);
+		game.setDealSource(new ConstrainedDealer(Game.DEFAULT_NUM_PLAYERS, new SplittableRandom(1)));
+		game.newGame();
+		Assert.check(!game.hasDealSeed(), "a deal source deal has a seed");
+		try {
+			game.getDealSeed();
+			Assert.check(false, "the seed of an earlier deal was returned");
+		} catch (IllegalStateException e){
+			// expected
+		}
+	}
+
+	/**
+	 * A turbo game between CPU players plays to the end and notifies its listeners once, when it is
+	 * over, while a game without pauses notifies them before every play.
+	 */
+	static void testTurboNotifiesOnlyWhenOver() throws Exception {
+		Game game = cpuGame();
+		AtomicInteger notifications = new AtomicInteger();
+		game.addGameStateChangeListener(state -> notifications.incrementAndGet());
+
+		game.setTurbo(true);
+		game.newGame(7);
+		notifications.set(0);
+		GameState state = game.start().get(10, TimeUnit.SECONDS);
+		Assert.check(state.isGameOver(), "the turbo game did not finish");
+		Assert.check(notifications.get() == 1, "the turbo game notified " + notifications.get() + " times");
+
+		game.setTurbo(false);
+		game.setPace(0);
+		game.newGame(7);
+		notifications.set(0);
+		game.start().get(10, TimeUnit.SECONDS);
+		int plays = plays(game.getMoveLog());
+		Assert.check(notifications.get() > plays, "the game without pauses notified " + notifications.get()
+				+ " times for " + plays + " plays");
+	}
+
+	/**
+	 * Games paced on a scheduler of one thread are played side by side: neither a pause nor a player
+	 * waiting for input holds the thread.
+	 */
+	static void testGamesShareOneThread() throws Exception {
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		try {
+			// The first game waits for its first player until the second game is over
+			CompletableFuture<Void> gate = new CompletableFuture<Void>();
+			AbstractPlayer[] players = new AbstractPlayer[Game.DEFAULT_NUM_PLAYERS];
+			players[0] = new CPUPlayer(){
+				@Override
+				public CompletableFuture<Combination> requestTurn(GameState state){
+					return gate.thenApply(v -> doTurn(state));
+				}
+			};
+			for (int i = 1; i < players.length; i++)
+				players[i] = new CPUPlayer();
+			Game waiting = new Game(players);
+			waiting.setScheduler(scheduler);
+			waiting.setPace(1);
+			waiting.newGame(11);
+			CompletableFuture<GameState> waitingOver = waiting.start();
+
+			Game paced = cpuGame();
+			paced.setScheduler(scheduler);
+			paced.setPace(1);
+			paced.newGame(12);
+			long start = System.nanoTime();
+			GameState state = paced.start().get(30, TimeUnit.SECONDS);
+			Assert.check(state.isGameOver(), "the paced game did not finish");
+			Assert.check(!waitingOver.isDone(), "the game waiting for its player finished");
+			Assert.check(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(plays(paced.getMoveLog())),
+					"the paced game did not pause before every play");
+
+			gate.complete(null);
+			Assert.check(waitingOver.get(30, TimeUnit.SECONDS).isGameOver(), "the waiting game did not finish");
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the number of moves in a log that are not passes.
+	 */
+	static int plays(MoveLog log){
+		int plays = 0;
+		for (int i = 0; i < log.size(); i++)
+			if (!Move.isPass(log.getMove(i)))
+				plays++;
+		return plays;
+	}
+
+	/**
+	 * Returns a game between CPU players.
+	 */
+	static Game cpuGame(){
+		AbstractPlayer[] players = new AbstractPlayer[Game.DEFAULT_NUM_PLAYERS];
+		for (int i = 0; i < players.length; i++)
+			players[i] = new CPUPlayer();
+		return new Game(players);
+	}
+}
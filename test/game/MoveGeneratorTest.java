@@ -0,0 +1,94 @@
+package game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import deck.Card;
+import deck.CardSet;
+import testing.Assert;
+
+/**
+ * Tests MoveGenerator against every subset of random hands, under every variant of the rules.
+ * @author Gabriel
+ *
+ */
+public class MoveGeneratorTest {
+	private static final int HANDS = 100;
+
+	public static void main(String[] args){
+		Random random = new Random(19);
+		long[] plays = BeatsIndexTest.moves(new MoveGenerator(), CardSet.FULL_DECK, RuleSet.STANDARD);
+		for (RuleSet rules : RuleSetTest.variants()){
+			MoveGenerator generator = new MoveGenerator(rules);
+			for (int i = 0; i < HANDS; i++){
+				long hand = BeatsIndexTest.randomHand(random, 1 + random.nextInt(13));
+				testAllMoves(rules, generator, hand);
+				Combination previous = Move.toCombination(plays[random.nextInt(plays.length)]);
+				testRestricted(rules, generator, hand, previous, null);
+				testRestricted(rules, generator, hand, Combination.getPassCombination(),
+						Card.of(Long.numberOfTrailingZeros(hand)));
+			}
+			testRestricted(rules, generator, 0x1FFFL, Combination.getPassCombination(), Card.of(0));
+		}
+		System.out.println("MoveGeneratorTest passed");
+	}
+
+	/**
+	 * The moves of a hand are the subsets the rules classify as combinations, each exactly once, with
+	 * the values of the rules.
+	 */
+	static void testAllMoves(RuleSet rules, MoveGenerator generator, long hand){
+		int size = generator.generate(hand);
+		long[] generated = new long[size];
+		for (int i = 0; i < size; i++){
+			generated[i] = generator.get(i);
+			Assert.check(Move.of(generated[i], rules) != Move.NONE, Move.toString(Move.of(generated[i]))
+					+ " is not allowed under the " + rules + " rules");
+			Assert.check(generator.getCombination(i) == CombinationRegistry.get(generated[i]),
+					"the combination of a move is not the shared one");
+		}
+		long[] expected = subsets(hand, rules, Combination.getPassCombination(), null);
+		checkSame(hand, generated, expected);
+	}
+
+	/**
+	 * The moves after a previous play are the subsets RuleEngine would accept after it.
+	 */
+	static void testRestricted(RuleSet rules, MoveGenerator generator, long hand, Combination previous, Card forcedCard){
+		int size = generator.generate(hand, previous, forcedCard);
+		long[] generated = new long[size];
+		for (int i = 0; i < size; i++)
+			generated[i] = generator.get(i);
+		checkSame(hand, generated, subsets(hand, rules, previous, forcedCard));
+	}
+
+	private static void checkSame(long hand, long[] generated, long[] expected){
+		Arrays.sort(generated);
+		for (int i = 1; i < generated.length; i++)
+			Assert.check(generated[i] != generated[i - 1], Move.toString(Move.of(generated[i]))
+					+ " was generated twice from " + BeatsIndexTest.describe(hand));
+		Assert.check(Arrays.equals(generated, expected), generated.length + " moves were generated from "
+				+ BeatsIndexTest.describe(hand) + " instead of " + expected.length);
+	}
+
+	/**
+	 * Returns the sorted masks of the subsets of a hand that may be played after a previous play.
+	 */
+	private static long[] subsets(long hand, RuleSet rules, Combination previous, Card forcedCard){
+		long[] subsets = new long[1 << Long.bitCount(hand)];
+		int count = 0;
+		for (long subset = hand; subset != 0; subset = (subset - 1) & hand){
+			Combination play = CombinationRegistry.get(subset);
+			if (play == null)
+				continue;
+			try {
+				RuleEngine.checkPlay(rules, previous, forcedCard, play);
+				subsets[count++] = subset;
+			} catch (InvalidCombinationException e){
+			}
+		}
+		subsets = Arrays.copyOf(subsets, count);
+		Arrays.sort(subsets);
+		return subsets;
+	}
+}
@@ -0,0 +1,111 @@
+package game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import deck.Card;
+import deck.CardSet;
+import testing.Assert;
+
+/**
+ * Tests that moves pack every combination, of the first deck or of copies from other decks, without
+ * losing its cards or value.
+ * @author Gabriel
+ *
+ */
+public class MoveTest {
+	public static void main(String[] args){
+		testPassAndNone();
+		for (RuleSet rules : RuleSetTest.variants()){
+			long[] moves = BeatsIndexTest.moves(new MoveGenerator(rules), CardSet.FULL_DECK, rules);
+			testFirstDeck(rules, moves);
+			testOrderedByValue(moves, new Random(22));
+			testCopies(rules, moves, new Random(22));
+		}
+		System.out.println("MoveTest passed");
+	}
+
+	static void testPassAndNone(){
+		Assert.check(Move.of(Combination.getPassCombination(), RuleSet.STANDARD) == Move.PASS, "the pass is not PASS");
+		Assert.check(Move.isPass(Move.PASS) && Move.value(Move.PASS) == -1, "PASS is not a pass");
+		Assert.check(Move.toCombination(Move.PASS) == Combination.getPassCombination(), "PASS is not the pass combination");
+		long notCombination = CardSet.bit(Card.of(0)) | CardSet.bit(Card.of(5));
+		Assert.check(Move.of(notCombination) == Move.NONE, "two cards of different ranks are a move");
+	}
+
+	/**
+	 * Every combination of the first deck gives back its shared combination, cards and value.
+	 */
+	static void testFirstDeck(RuleSet rules, long[] moves){
+		int[] ids = new int[Combination.POKER_HAND];
+		for (long move : moves){
+			long mask = Move.mask(move);
+			Combination combination = CombinationRegistry.get(mask);
+			Assert.check(Move.toCombination(move) == combination, Move.toString(move) + " is not its shared combination");
+			Assert.check(Move.of(combination, rules) == move, combination + " does not pack to the same move");
+			Assert.check(Move.value(move) == rules.value(combination), combination + " has the wrong value");
+			Assert.check(Move.length(move) == combination.getLength(), combination + " has the wrong length");
+			Assert.check(CardSet.mask(Move.getCards(move)) == mask, combination + " has the wrong cards");
+			int length = Move.getIds(move, ids, 0);
+			for (int i = 0; i < length; i++)
+				Assert.check(Move.contains(move, Card.ofId(ids[i])), combination + " does not contain id " + ids[i]);
+			Assert.check(Long.bitCount(mask) == length, combination + " has " + length + " ids");
+			for (int n = 0; n < Card.DECK_SIZE; n++)
+				Assert.check(Move.contains(move, Card.of(n)) == ((mask >>> n & 1) != 0),
+						combination + " is wrong about containing " + Card.of(n));
+		}
+	}
+
+	/**
+	 * Moves of the same length compare as unsigned longs in the order of their values.
+	 */
+	static void testOrderedByValue(long[] moves, Random random){
+		for (int i = 0; i < 100000; i++){
+			long a = moves[random.nextInt(moves.length)], b = moves[random.nextInt(moves.length)];
+			if (Move.length(a) != Move.length(b) || Move.value(a) == Move.value(b))
+				continue;
+			Assert.check(Integer.signum(Long.compareUnsigned(a, b)) == Integer.signum(Move.value(a) - Move.value(b)),
+					Move.toString(a) + " and " + Move.toString(b) + " are not in order of value");
+		}
+	}
+
+	/**
+	 * Replacing cards by their copies from other decks keeps the value and gives back the copies.
+	 */
+	static void testCopies(RuleSet rules, long[] moves, Random random){
+		int[] ids = new int[Combination.POKER_HAND];
+		for (int i = 0; i < 20000; i++){
+			long original = moves[random.nextInt(moves.length)];
+			Card[] cards = Move.getCards(original);
+			long firstDeck = 0L;
+			for (int k = 0; k < cards.length; k++){
+				int deck = random.nextInt(Card.MAX_DECKS);
+				cards[k] = Card.of(deck, cards[k].getOrdinalNumber());
+				if (deck == 0)
+					firstDeck |= CardSet.bit(cards[k]);
+			}
+			long move = Move.of(cards, rules);
+			String description = Arrays.toString(cards);
+			Assert.check(move != Move.NONE, description + " is not a move");
+			Assert.check(Move.value(move) == Move.value(original) && Move.kind(move) == Move.kind(original),
+					description + " is not valued like " + Move.toString(original));
+			Assert.check(Move.mask(move) == firstDeck, description + " has the wrong cards of the first deck");
+
+			Card[] sorted = cards.clone();
+			Arrays.sort(sorted, (x, y) -> x.getId() - y.getId());
+			Assert.check(Arrays.equals(Move.getCards(move), sorted), description + " gave back "
+					+ Arrays.toString(Move.getCards(move)));
+			Assert.check(Move.getIds(move, ids, 0) == cards.length, description + " has the wrong number of ids");
+			for (int k = 0; k < cards.length; k++){
+				Assert.check(ids[k] == sorted[k].getId(), description + " has the wrong ids");
+				Assert.check(Move.contains(move, cards[k]), description + " does not contain " + cards[k]);
+				if (cards[k].getDeckIndex() != 0)
+					Assert.check(!Move.contains(move, Card.of(cards[k].getOrdinalNumber()))
+							|| (firstDeck & CardSet.bit(Card.of(cards[k].getOrdinalNumber()))) != 0,
+							description + " contains a card of the first deck it does not have");
+			}
+			Combination combination = Move.toCombination(move);
+			Assert.check(Move.of(combination, rules) == move, description + " does not come back as the same move");
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package game;
+
+import deck.Card;
+import deck.CardSet;
+import deck.Rank;
+import deck.Suit;
+import testing.Assert;
+
+/**
+ * Tests of the checks of RuleEngine, on a small game state set up by hand.
+ * @author Gabriel
+ *
+ */
+public class RuleEngineTest {
+	private static final Card THREE_D = Card.of(Rank.THREE, Suit.DIAMONDS), THREE_C = Card.of(Rank.THREE, Suit.CLUBS),
+			FOUR_D = Card.of(Rank.FOUR, Suit.DIAMONDS), FIVE_D = Card.of(Rank.FIVE, Suit.DIAMONDS),
+			SIX_D = Card.of(Rank.SIX, Suit.DIAMONDS), SEVEN_D = Card.of(Rank.SEVEN, Suit.DIAMONDS),
+			EIGHT_D = Card.of(Rank.EIGHT, Suit.DIAMONDS), KING_S = Card.of(Rank.KING, Suit.SPADES),
+			KING_H = Card.of(Rank.KING, Suit.HEARTS), FOUR_C = Card.of(Rank.FOUR, Suit.CLUBS),
+			FOUR_H = Card.of(Rank.FOUR, Suit.HEARTS), TWO_S = Card.of(Rank.TWO, Suit.SPADES);
+
+	public static void main(String[] args){
+		testFirstTurn();
+		testFollowing();
+		testForgedCombinations();
+		testSelectionProblemsInOrder();
+		System.out.println("RuleEngineTest passed");
+	}
+
+	/**
+	 * Two players, the first holding a run of diamonds, a pair of threes and the king of spades, the
+	 * second a pair of fours and the two of spades.
+	 */
+	static GameState state(){
+		GameState state = new GameState(new AbstractPlayer[]{new CPUPlayer(), new CPUPlayer()});
+		state.getPlayer(0).setHand(set(THREE_D, THREE_C, FOUR_D, FIVE_D, SIX_D, SEVEN_D, EIGHT_D, KING_S));
+		state.getPlayer(1).setHand(set(FOUR_C, FOUR_H, TWO_S));
+		state.setCurrentPlayerIndex(0);
+		state.setPreviousMove(Move.PASS);
+		return state;
+	}
+
+	/**
+	 * On the first turn the player with the three of diamonds must lead a combination containing it.
+	 */
+	static void testFirstTurn(){
+		GameState state = state();
+		state.setForcedCard(THREE_D);
+		checkIllegal(state, 1, play(FOUR_C), "It is not your turn.");
+		checkIllegal(state, 0, Combination.getPassCombination(), "You cannot pass on a new trick.");
+		checkIllegal(state, 0, play(FOUR_D), "You must have a " + THREE_D + " in your combination.");
+		checkIllegal(state, 0, play(TWO_S), "You do not have the cards you played.");
+		checkLegal(state, 0, play(THREE_D));
+		checkLegal(state, 0, play(THREE_D, THREE_C));
+		checkLegal(state, 0, play(THREE_D, FOUR_D, FIVE_D, SIX_D, SEVEN_D));
+	}
+
+	/**
+	 * After a play, a player must beat it with as many cards, or pass.
+	 */
+	static void testFollowing(){
+		GameState state = state();
+		state.setPreviousPlay(play(KING_H));
+		checkLegal(state, 0, Combination.getPassCombination());
+		checkLegal(state, 0, play(KING_S));
+		checkIllegal(state, 0, play(EIGHT_D),
+				"The cards selected are not of more value than the previously played cards.");
+		checkIllegal(state, 0, play(THREE_D, THREE_C),
+				"You must play the same number of cards as the cards on the table.");
+
+		state.setPreviousPlay(play(THREE_D, THREE_C));
+		state.setCurrentPlayerIndex(1);
+		checkLegal(state, 1, play(FOUR_C, FOUR_H));
+		checkIllegal(state, 1, play(TWO_S), "You must play the same number of cards as the cards on the table.");
+	}
+
+	/**
+	 * Combinations that claim the wrong value, or hold a card twice, are rejected whatever the rules.
+	 */
+	static void testForgedCombinations(){
+		GameState state = state();
+		Card[] threes = {THREE_D, THREE_C};
+		int higherPair = CombinationClassifier.classify(new Card[]{FOUR_C, FOUR_H});
+		checkIllegal(state, 0, Combination.create(threes, higherPair), "The cards do not form a valid combination.");
+		checkIllegal(state, 0, null, "The cards do not form a valid combination.");
+
+		// A copy from a second deck cannot be played twice as a pair
+		Card copy = Card.of(1, THREE_D.getOrdinalNumber());
+		CardSet hand = new CardSet(state.getPlayer(0).getCardSet());
+		hand.add(copy);
+		state.getPlayer(0).setHand(hand);
+		Combination twice = Combination.getCombinationOrNull(new Card[]{copy, copy});
+		Assert.check(!RuleEngine.isLegal(state, 0, twice), "a card was played twice");
+		checkLegal(state, 0, play(THREE_D, copy));
+	}
+
+	/**
+	 * A selection is checked for the number of cards, then the forced card, then the combination and
+	 * then its value.
+	 */
+	static void testSelectionProblemsInOrder(){
+		RuleSet rules = RuleSet.STANDARD;
+		Combination pass = Combination.getPassCombination();
+		checkSelection(rules, pass, null, new Card[0], "No cards were selected.");
+		checkSelection(rules, play(KING_H), THREE_D, new Card[]{FOUR_D, FIVE_D},
+				"You must play the same number of cards as the cards on the table.");
+		checkSelection(rules, pass, THREE_D, new Card[]{FOUR_D, FIVE_D}, "You must have a " + THREE_D
+				+ " in your combination.");
+		checkSelection(rules, pass, THREE_D, new Card[]{THREE_D, FIVE_D}, Combination.invalid(2).getMessage());
+		checkSelection(rules, play(KING_S), null, new Card[]{KING_H},
+				"The cards selected are not of more value than the previously played cards.");
+		try {
+			Combination c = RuleEngine.checkSelection(rules, pass, THREE_D, new Card[]{THREE_D, THREE_C});
+			Assert.check(c.equals(play(THREE_D, THREE_C)), "the selection gave " + c);
+		} catch (InvalidCombinationException e){
+			Assert.check(false, "a pair of threes was rejected: " + e.getMessage());
+		}
+	}
+
+	private static void checkLegal(GameState state, int player, Combination play){
+		try {
+			RuleEngine.check(state, player, play);
+		} catch (InvalidCombinationException e){
+			Assert.check(false, play + " by player " + player + " was rejected: " + e.getMessage());
+		}
+		Assert.check(RuleEngine.isLegal(state, player, play), "isLegal disagrees with check on " + play);
+	}
+
+	private static void checkIllegal(GameState state, int player, Combination play, String message){
+		try {
+			RuleEngine.check(state, player, play);
+			Assert.check(false, play + " by player " + player + " was allowed");
+		} catch (InvalidCombinationException e){
+			Assert.check(message.equals(e.getMessage()), play + " was rejected with \"" + e.getMessage()
+					+ "\" instead of \"" + message + "\"");
+		}
+		Assert.check(!RuleEngine.isLegal(state, player, play), "isLegal disagrees with check on " + play);
+	}
+
+	private static void checkSelection(RuleSet rules, Combination previous, Card forcedCard, Card[] cards, String message){
+		try {
+			RuleEngine.checkSelection(rules, previous, forcedCard, cards);
+			Assert.check(false, "the selection of " + cards.length + " cards was allowed");
+		} catch (InvalidCombinationException e){
+			Assert.check(message.equals(e.getMessage()), "the selection was rejected with \"" + e.getMessage()
+					+ "\" instead of \"" + message + "\"");
+		}
+	}
+
+	private static Combination play(Card... cards){
+		return Combination.getCombinationOrNull(cards);
+	}
+
+	private static CardSet set(Card... cards){
+		CardSet set = new CardSet();
+		for (Card c : cards)
+			set.add(c);
+		return set;
+	}
+}
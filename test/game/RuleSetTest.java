@@ -0,0 +1,162 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import deck.Card;
+import deck.CardSet;
+import deck.Suit;
+import testing.Assert;
+
+/**
+ * Tests of the value tables of RuleSet, under every variant of the rules.
+ * @author Gabriel
+ *
+ */
+public class RuleSetTest {
+	private static final int NUM_RANKS = 13;
+
+	public static void main(String[] args){
+		for (RuleSet rules : variants()){
+			testDoublesIncreaseByRank(rules);
+			testKindsInOrder(rules);
+			testValuesFitInMoves(rules);
+			testCopiesValuedLikeOriginals(rules);
+		}
+		testStandardMatchesCombination();
+		testFlushOrder();
+		System.out.println("RuleSetTest passed");
+	}
+
+	/**
+	 * Every rule set with the standard order of suits, and one with another order.
+	 */
+	static List<RuleSet> variants(){
+		List<RuleSet> variants = new ArrayList<RuleSet>();
+		variants.add(RuleSet.STANDARD);
+		for (int rules = 0; rules < 8; rules++)
+			variants.add(new RuleSet("Variant " + rules, RuleSet.STANDARD.getSuitOrder(), (rules & 1) != 0,
+					(rules & 2) != 0 ? RuleSet.FlushOrder.SUIT : RuleSet.FlushOrder.TOP_CARD, (rules & 4) != 0));
+		variants.add(new RuleSet("Spades low", new Suit[]{Suit.SPADES, Suit.HEARTS, Suit.CLUBS, Suit.DIAMONDS},
+				true, RuleSet.FlushOrder.TOP_CARD, false));
+		return variants;
+	}
+
+	/**
+	 * Doubles, including two copies of a card, rank above every single and every double of a lower
+	 * rank.
+	 */
+	static void testDoublesIncreaseByRank(RuleSet rules){
+		int highestSingle = -1;
+		for (int n = 0; n < Card.DECK_SIZE; n++)
+			highestSingle = Math.max(highestSingle, value(rules, Card.of(n)));
+
+		int previousHighest = highestSingle;
+		for (int rank = 0; rank < NUM_RANKS; rank++){
+			int lowest = Integer.MAX_VALUE, highest = -1;
+			for (int a = 0; a < 4; a++){
+				for (int b = a; b < 4; b++){
+					// Two cards of the first deck, or a card and a copy from the second deck
+					Card first = Card.of(rank * 4 + a);
+					Card second = a == b ? Card.of(1, rank * 4 + b) : Card.of(rank * 4 + b);
+					int value = value(rules, first, second);
+					Assert.check(value > highestSingle, rules + ": " + first + second + " is below the singles");
+					lowest = Math.min(lowest, value);
+					highest = Math.max(highest, value);
+				}
+			}
+			Assert.check(lowest > previousHighest, rules + ": doubles of rank " + rank + " do not beat those below");
+			previousHighest = highest;
+		}
+	}
+
+	/**
+	 * Each kind of combination has its own block of values, in the order of the kinds.
+	 */
+	static void testKindsInOrder(RuleSet rules){
+		int[] lowest = new int[CombinationClassifier.STRAIGHT_FLUSH + 1];
+		int[] highest = new int[CombinationClassifier.STRAIGHT_FLUSH + 1];
+		Arrays.fill(lowest, Integer.MAX_VALUE);
+		Arrays.fill(highest, -1);
+		forEachCombination(rules, (kind, value) -> {
+			lowest[kind] = Math.min(lowest[kind], value);
+			highest[kind] = Math.max(highest[kind], value);
+		});
+		for (int kind = CombinationClassifier.DOUBLE; kind <= CombinationClassifier.STRAIGHT_FLUSH; kind++)
+			if (highest[kind] >= 0)
+				Assert.check(lowest[kind] > highest[kind - 1], rules + ": kind " + kind + " overlaps the kind below");
+	}
+
+	/**
+	 * Every value fits in the 8 bits a move holds it in.
+	 */
+	static void testValuesFitInMoves(RuleSet rules){
+		forEachCombination(rules, (kind, value) ->
+				Assert.check(value >= 0 && value < 256, rules + ": value " + value + " does not fit in a move"));
+	}
+
+	/**
+	 * Cards from another deck are worth the same as the cards of the first deck.
+	 */
+	static void testCopiesValuedLikeOriginals(RuleSet rules){
+		for (int n = 0; n < Card.DECK_SIZE; n++)
+			Assert.check(value(rules, Card.of(n)) == value(rules, Card.of(2, n)), rules + ": copy of " + Card.of(n));
+		for (int n = 0; n + 8 < Card.DECK_SIZE; n += 4){
+			// A triple with one card from another deck
+			Card[] triple = {Card.of(n), Card.of(n + 1), Card.of(n + 2)};
+			Card[] copies = {Card.of(n), Card.of(1, n + 1), Card.of(n + 2)};
+			Assert.check(value(rules, triple) == value(rules, copies), rules + ": copy in triple of rank " + n / 4);
+		}
+	}
+
+	/**
+	 * Under the standard rules, values are those of Combination.getValue().
+	 */
+	static void testStandardMatchesCombination(){
+		MoveGenerator generator = new MoveGenerator();
+		int size = generator.generate(CardSet.FULL_DECK);
+		for (int i = 0; i < size; i++){
+			Combination c = generator.getCombination(i);
+			int result = RuleSet.STANDARD.classify(generator.get(i));
+			Assert.check(c.getValue() == CombinationClassifier.value(result), "value of " + c);
+		}
+	}
+
+	/**
+	 * Flushes ranked by suit put every spade flush above every diamond flush.
+	 */
+	static void testFlushOrder(){
+		RuleSet bySuit = new RuleSet("By suit", RuleSet.STANDARD.getSuitOrder(), true, RuleSet.FlushOrder.SUIT, false);
+		long lowSpades = 0L, highDiamonds = 0L;
+		for (int rank : new int[]{0, 2, 4, 6, 8}) // 3, 5, 7, 9, J
+			lowSpades |= 1L << (rank * 4 + Suit.SPADES.ordinal());
+		for (int rank : new int[]{4, 6, 8, 10, 12}) // 7, 9, J, K, 2
+			highDiamonds |= 1L << (rank * 4 + Suit.DIAMONDS.ordinal());
+		Assert.check(bySuit.beats(bySuit.classify(lowSpades), bySuit.classify(highDiamonds)), "spades do not beat diamonds");
+		Assert.check(RuleSet.STANDARD.beats(RuleSet.STANDARD.classify(highDiamonds), RuleSet.STANDARD.classify(lowSpades)),
+				"the top card does not rank flushes");
+	}
+
+	private static int value(RuleSet rules, Card... cards){
+		int result = rules.classify(cards);
+		Assert.check(result != CombinationClassifier.INVALID, rules + ": not a combination");
+		return CombinationClassifier.value(result);
+	}
+
+	interface KindValue {
+		void accept(int kind, int value);
+	}
+
+	/**
+	 * Gives the kind and value of every combination of the first deck these rules allow.
+	 */
+	private static void forEachCombination(RuleSet rules, KindValue action){
+		MoveGenerator generator = new MoveGenerator(rules);
+		int size = generator.generate(CardSet.FULL_DECK);
+		for (int i = 0; i < size; i++){
+			int result = rules.classify(generator.get(i));
+			action.accept(CombinationClassifier.kind(result), CombinationClassifier.value(result));
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package testing;
+
+/**
+ * Checks for the tests, which are run as programs so they need nothing but the JDK.
+ * @author Gabriel
+ *
+ */
+public class Assert {
+	private Assert(){}
+
+	/**
+	 * Fails a test if a condition does not hold.
+	 * @param condition the condition
+	 * @param message what went wrong
+	 * @throws AssertionError if the condition is false
+	 */
+	public static void check(boolean condition, String message) throws AssertionError {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}